@@ -39,6 +39,7 @@ import jetbrains.exodus.entitystore.Entity;
 import jetbrains.exodus.entitystore.EntityId;
 import jetbrains.exodus.entitystore.StoreTransaction;
 import meghanada.cache.GlobalCache;
+import meghanada.config.Config;
 import meghanada.index.IndexableWord;
 import meghanada.index.SearchIndexable;
 import meghanada.reflect.CandidateUnit;
@@ -52,6 +53,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.EntryMessage;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 
@@ -86,6 +88,8 @@ public class Source implements Serializable, Storable, SearchIndexable {
   private long classStartLine;
   private long pkgStartLine;
   private Map<String, String> importMap;
+  // length of the analyzed file, weighs the source cache without a stat
+  private long contentLength;
 
   private transient List<LineRange> lineRange;
   private transient LineMap lineMap;
@@ -553,14 +557,21 @@ public class Source implements Serializable, Storable, SearchIndexable {
   }
 
   public void invalidateCache() {
-    this.invalidateCache(this.classScopes);
+    GlobalCache.getInstance().refreshMemberDescriptors(this.getClassNames());
   }
 
-  private void invalidateCache(final List<ClassScope> classScopes) {
-    final GlobalCache globalCache = GlobalCache.getInstance();
+  /** FQCNs of the classes declared in the source, nested ones included. */
+  public List<String> getClassNames() {
+    final List<String> names = new ArrayList<>(4);
+    collectClassNames(this.classScopes, names);
+    return names;
+  }
+
+  private static void collectClassNames(
+      final List<ClassScope> classScopes, final List<String> names) {
     for (final ClassScope classScope : classScopes) {
-      globalCache.invalidateMemberDescriptors(classScope.getFQCN());
-      this.invalidateCache(classScope.classScopes);
+      names.add(classScope.getFQCN());
+      collectClassNames(classScope.classScopes, names);
     }
   }
 
@@ -684,6 +695,10 @@ public class Source implements Serializable, Storable, SearchIndexable {
     this.lineRange = null;
   }
 
+  public void releaseIndexWords() {
+    this.indexWords.clear();
+  }
+
   public String getImportedClassFQCN(final String shortName, @Nullable final String defaultValue) {
     try (TelemetryUtils.ScopedSpan scope =
         TelemetryUtils.startScopedSpanLow("Source.getImportedClassFQCN")) {
@@ -837,6 +852,14 @@ public class Source implements Serializable, Storable, SearchIndexable {
     this.packageName = packageName;
   }
 
+  public long getContentLength() {
+    return contentLength;
+  }
+
+  public void setContentLength(long contentLength) {
+    this.contentLength = contentLength;
+  }
+
   public long getClassStartLine() {
     return classStartLine;
   }
@@ -858,6 +881,11 @@ public class Source implements Serializable, Storable, SearchIndexable {
     return this.filePath;
   }
 
+  @Override
+  public boolean isLineIndex() {
+    return true;
+  }
+
   @Override
   public List<Document> getDocumentIndices() {
     return new ArrayList<>(createSourceTextIndices());
@@ -865,6 +893,7 @@ public class Source implements Serializable, Storable, SearchIndexable {
 
   private Collection<? extends Document> createSourceTextIndices() {
     final List<Document> documents = new ArrayList<>(128);
+    final boolean ngram = Config.load().useIndexNgram();
     try (final BufferedReader br =
         new BufferedReader(
             new InputStreamReader(new FileInputStream(this.filePath), StandardCharsets.UTF_8))) {
@@ -873,10 +902,13 @@ public class Source implements Serializable, Storable, SearchIndexable {
       while ((s = br.readLine()) != null) {
         final Document doc = getBaseDocument(lineNumber);
         doc.add(new TextField(CODE.getName(), s, YES));
+        if (ngram) {
+          doc.add(new TextField(CODE.getName() + SearchIndexable.NGRAM_SUFFIX, s, NO));
+        }
 
-        if (this.indexWords.containsKey(lineNumber)) {
-
-          List<IndexableWord> words = this.indexWords.get(lineNumber);
+        // released under memory pressure
+        List<IndexableWord> words = this.indexWords.get(lineNumber);
+        if (nonNull(words)) {
           words.sort(
               (w1, w2) -> {
                 Integer sortNo1 = w1.field.getSortNo();
@@ -915,7 +947,7 @@ public class Source implements Serializable, Storable, SearchIndexable {
   private Document getBaseDocument(long lineNumber) {
     final Document doc = new Document();
     doc.add(new StringField(SearchIndexable.GROUP_ID, this.filePath, YES));
-    doc.add(new StringField(SearchIndexable.LINE_NUMBER, Long.toString(lineNumber), YES));
+    doc.add(new NumericDocValuesField(SearchIndexable.LINE_NUMBER, lineNumber));
     return doc;
   }
 
@@ -531,6 +531,7 @@ public class TreeAnalyzer {
     File file = new File(uri.normalize());
     String path = file.getCanonicalPath();
     Source source = new Source(path, lineMap);
+    source.setContentLength(file.length());
     if (errorFiles.contains(file)) {
       source.hasCompileError = true;
     }
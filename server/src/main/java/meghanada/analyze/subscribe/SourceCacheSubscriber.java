@@ -3,11 +3,13 @@ package meghanada.analyze.subscribe;
 import com.google.common.eventbus.Subscribe;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import meghanada.analyze.ClassScope;
 import meghanada.analyze.JavaAnalyzer;
@@ -50,7 +52,9 @@ public class SourceCacheSubscriber {
     }
   }
 
-  private void analyzed(final Source source, final boolean isDiagnostics) throws IOException {
+  private void analyzed(
+      final Source source, final boolean isDiagnostics, final Collection<String> changed)
+      throws IOException {
 
     Project project = projectSupplier.get();
     Map<String, Set<String>> callerMap = project.getCallerMap();
@@ -86,7 +90,7 @@ public class SourceCacheSubscriber {
     }
 
     if (!isDiagnostics) {
-      source.invalidateCache();
+      changed.addAll(source.getClassNames());
     }
 
     globalCache.replaceSource(source);
@@ -124,6 +128,7 @@ public class SourceCacheSubscriber {
               .build("event"));
 
       final Map<File, Source> analyzedMap = event.analyzedMap;
+      final Set<String> changed = ConcurrentHashMap.newKeySet();
 
       try (TelemetryUtils.ScopedSpan child =
           TelemetryUtils.startScopedSpan("SourceCacheSubscriber.analyzed")) {
@@ -134,12 +139,14 @@ public class SourceCacheSubscriber {
             .forEach(
                 source -> {
                   try {
-                    this.analyzed(source, event.diagnostics);
+                    this.analyzed(source, event.diagnostics, changed);
                   } catch (Exception ex) {
                     log.catching(ex);
                   }
                 });
       }
+      // one reload pass for the compile
+      GlobalCache.getInstance().refreshMemberDescriptors(changed);
       try (TelemetryUtils.ScopedSpan child =
           TelemetryUtils.startScopedSpan("SourceCacheSubscriber.complete")) {
         this.complete();
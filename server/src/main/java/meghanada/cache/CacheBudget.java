@@ -0,0 +1,131 @@
+package meghanada.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import meghanada.analyze.Source;
+import meghanada.config.Config;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+
+/**
+ * Heap budget shared by the in-memory caches.
+ *
+ * <p>The budget is a ratio of the max heap ({@code cache-heap-ratio}) split into fixed shares.
+ * Entries are weighed by an estimate of their retained size in bytes, so a cache of a few huge
+ * classes and a cache of many small ones hold about the same amount of memory. The {@link
+ * MemoryGovernor} scales the budget down while the heap is under pressure.
+ */
+public final class CacheBudget {
+
+  // rough JVM layout sizes
+  private static final int OBJECT_BYTES = 16;
+  private static final int REFERENCE_BYTES = 8;
+  private static final int STRING_BYTES = 40;
+  private static final int MAP_ENTRY_BYTES = 32;
+  private static final int MEMBER_BYTES = 96;
+  private static final int PARAMETER_BYTES = 32;
+  // scopes, symbols, index words and line tables per byte of source text
+  private static final int SOURCE_BYTES_PER_CHAR = 16;
+  private static final int SOURCE_BYTES = 4096;
+  private static final long MIN_BUDGET = 16L * 1024 * 1024;
+
+  private static long budget;
+  // percent of the budget in use, lowered under memory pressure
+  private static volatile int scale = 100;
+
+  private CacheBudget() {}
+
+  public static synchronized long getBudget() {
+    if (budget == 0) {
+      long max = Runtime.getRuntime().maxMemory();
+      if (max == Long.MAX_VALUE) {
+        max = Runtime.getRuntime().totalMemory() * 4;
+      }
+      int ratio = Config.load().getCacheHeapRatio();
+      budget = Math.max(MIN_BUDGET, max / 100 * ratio);
+    }
+    return budget;
+  }
+
+  public static long getMaximumWeight(Share share) {
+    return getBudget() / 100 * share.percent / 100 * scale;
+  }
+
+  public static int getScale() {
+    return scale;
+  }
+
+  static void setScale(int percent) {
+    scale = percent;
+  }
+
+  /** Builder bounded by the share of the budget. */
+  public static <K, V> CacheBuilder<K, V> newBuilder(Share share, Weigher<K, V> weigher) {
+    return CacheBuilder.newBuilder().maximumWeight(getMaximumWeight(share)).weigher(weigher);
+  }
+
+  public static int weigh(String s) {
+    return isNull(s) ? 0 : STRING_BYTES + s.length() * 2;
+  }
+
+  public static int weigh(List<String> list) {
+    long size = OBJECT_BYTES + (long) REFERENCE_BYTES * list.size();
+    for (String s : list) {
+      size += weigh(s);
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  public static int weighMembers(List<MemberDescriptor> members) {
+    long size = OBJECT_BYTES + (long) REFERENCE_BYTES * members.size();
+    for (MemberDescriptor md : members) {
+      size += weighMember(md);
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  private static long weighMember(MemberDescriptor md) {
+    long size = MEMBER_BYTES;
+    size += weigh(md.declaringClass);
+    size += weigh(md.name);
+    size += weigh(md.modifier);
+    size += weigh(md.returnType);
+    Map<String, String> typeParameterMap = md.typeParameterMap;
+    if (nonNull(typeParameterMap)) {
+      size += (long) MAP_ENTRY_BYTES * typeParameterMap.size();
+    }
+    if (md instanceof MethodDescriptor) {
+      for (MethodParameter parameter : ((MethodDescriptor) md).parameters) {
+        size += PARAMETER_BYTES + weigh(parameter.type) + weigh(parameter.name);
+      }
+    }
+    return size;
+  }
+
+  public static int weighSource(File file, Source source) {
+    // the weigher runs under the cache lock, the length is taken when the source is analyzed
+    long size = SOURCE_BYTES + source.getContentLength() * SOURCE_BYTES_PER_CHAR;
+    size += (long) MAP_ENTRY_BYTES * (source.importClasses.size() + source.usingClasses.size());
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  public enum Share {
+    MEMBER(40),
+    SOURCE(40),
+    INNER_MEMBER(15),
+    LOCATION(5);
+
+    private final int percent;
+
+    Share(int percent) {
+      this.percent = percent;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package meghanada.cache;
+
+/**
+ * Approximate access frequency of keys.
+ *
+ * <p>A count-min sketch of small saturating counters. All counters are halved after a fixed number
+ * of increments, so keys that were popular a long time ago fade out.
+ */
+final class FrequencySketch {
+
+  private static final int DEPTH = 4;
+  private static final int MAX_COUNT = 15;
+  private static final int[] SEEDS = {0x97cb3127, 0x5f356495, 0x2a54cf79, 0x8ae2b1e5};
+
+  private final byte[][] table;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(int capacity) {
+    int width = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+    this.table = new byte[DEPTH][width];
+    this.mask = width - 1;
+    this.sampleSize = width * 10;
+  }
+
+  private int index(int hash, int row) {
+    int h = (hash ^ (hash >>> 16)) * SEEDS[row];
+    h ^= h >>> 15;
+    return h & this.mask;
+  }
+
+  synchronized void increment(Object key) {
+    int hash = key.hashCode();
+    boolean added = false;
+    for (int row = 0; row < DEPTH; row++) {
+      int i = this.index(hash, row);
+      if (this.table[row][i] < MAX_COUNT) {
+        this.table[row][i]++;
+        added = true;
+      }
+    }
+    if (added && ++this.additions >= this.sampleSize) {
+      this.reset();
+    }
+  }
+
+  synchronized int frequency(Object key) {
+    int hash = key.hashCode();
+    int min = MAX_COUNT;
+    for (int row = 0; row < DEPTH; row++) {
+      min = Math.min(min, this.table[row][this.index(hash, row)]);
+    }
+    return min;
+  }
+
+  private void reset() {
+    for (byte[] counters : this.table) {
+      for (int i = 0; i < counters.length; i++) {
+        counters[i] = (byte) (counters[i] >>> 1);
+      }
+    }
+    this.additions /= 2;
+  }
+}
@@ -1,21 +1,30 @@
 package meghanada.cache;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import meghanada.analyze.Source;
-import meghanada.config.Config;
 import meghanada.project.Project;
 import meghanada.reflect.MemberDescriptor;
 import meghanada.store.ProjectDatabaseHelper;
@@ -25,7 +34,11 @@ import org.apache.logging.log4j.Logger;
 
 public class GlobalCache {
 
-  private static final int MEMBER_CACHE_MAX = 512;
+  // percent of the member share for entries seen only once
+  private static final int MEMBER_WINDOW_PERCENT = 20;
+  private static final int MEMBER_SKETCH_SIZE = 4096;
+  // accesses before a class is admitted to the main member cache
+  private static final int ADMIT_FREQUENCY = 2;
 
   private static final Logger log = LogManager.getLogger(GlobalCache.class);
 
@@ -34,12 +47,16 @@ public class GlobalCache {
   private final Map<File, JavaSourceLoader> sourceLoaders;
   private final Map<File, Map<String, String>> sourceMapCaches;
 
-  private LoadingCache<String, List<MemberDescriptor>> memberCache;
+  private volatile LoadingCache<String, List<MemberDescriptor>> memberCache;
+  private volatile Cache<String, List<MemberDescriptor>> memberWindow;
+  // stats of the caches replaced by resize
+  private CacheStats memberStats = new CacheStats(0, 0, 0, 0, 0, 0);
+  private FrequencySketch memberSketch;
   private MemberCacheLoader memberCacheLoader;
 
   private Supplier<Project> projectSupplier;
 
-  private GlobalCache() {
+  GlobalCache() {
 
     this.sourceCaches = new HashMap<>(1);
     this.sourceLoaders = new HashMap<>(1);
@@ -69,17 +86,117 @@ public class GlobalCache {
   }
 
   public void setupMemberCache() {
+    this.setupMemberCache(new MemberCacheLoader());
+  }
+
+  void setupMemberCache(MemberCacheLoader memberCacheLoader) {
     if (nonNull(this.memberCache)) {
       return;
     }
-    this.memberCacheLoader = new MemberCacheLoader();
-    this.memberCache =
+    this.memberCacheLoader = memberCacheLoader;
+    this.memberSketch = new FrequencySketch(MEMBER_SKETCH_SIZE);
+    this.buildMemberCache();
+  }
+
+  private synchronized void buildMemberCache() {
+    long weight = CacheBudget.getMaximumWeight(CacheBudget.Share.MEMBER);
+    long windowWeight = weight / 100 * MEMBER_WINDOW_PERCENT;
+    LoadingCache<String, List<MemberDescriptor>> oldCache = this.memberCache;
+    Cache<String, List<MemberDescriptor>> oldWindow = this.memberWindow;
+    LoadingCache<String, List<MemberDescriptor>> cache =
         CacheBuilder.newBuilder()
-            .maximumSize(MEMBER_CACHE_MAX)
+            .maximumWeight(weight - windowWeight)
+            .weigher(GlobalCache::weighMembers)
             .recordStats()
             .expireAfterAccess(30, TimeUnit.MINUTES)
             .removalListener(memberCacheLoader)
             .build(memberCacheLoader);
+    Cache<String, List<MemberDescriptor>> window =
+        CacheBuilder.newBuilder()
+            .maximumWeight(windowWeight)
+            .weigher(GlobalCache::weighMembers)
+            .recordStats()
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+    if (isNull(oldCache)) {
+      this.memberCache = cache;
+      this.memberWindow = window;
+      return;
+    }
+    // taken before the copy so a reload completing during it is still applied,
+    // refreshMemberDescriptors holds the same lock
+    Map<String, ListenableFuture<List<MemberDescriptor>>> reloads =
+        this.memberCacheLoader.getPendingReloads();
+    // entries over the new weight are evicted, not removed from the database
+    cache.putAll(oldCache.asMap());
+    window.putAll(oldWindow.asMap());
+    this.memberStats = this.memberStats.plus(oldCache.stats()).plus(oldWindow.stats());
+    this.memberCache = cache;
+    this.memberWindow = window;
+    // pending reloads refresh the old cache, apply them to the new one
+    reloads.forEach(
+        (fqcn, future) ->
+            future.addListener(
+                () -> this.completeReload(fqcn, future), MoreExecutors.directExecutor()));
+  }
+
+  private void completeReload(String fqcn, Future<List<MemberDescriptor>> future) {
+    try {
+      List<MemberDescriptor> members = Futures.getDone(future);
+      // skip classes invalidated or evicted meanwhile
+      this.memberCache.asMap().replace(fqcn, members);
+    } catch (ExecutionException | CancellationException e) {
+      log.warn("failed to reload {}", fqcn, e);
+    }
+  }
+
+  private static LoadingCache<File, Source> buildSourceCache(
+      JavaSourceLoader loader, Map<File, Source> sources) {
+    LoadingCache<File, Source> cache =
+        CacheBudget.newBuilder(CacheBudget.Share.SOURCE, CacheBudget::weighSource)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .removalListener(loader)
+            .build(loader);
+    cache.putAll(sources);
+    return cache;
+  }
+
+  /** Rebuilds the caches with the current weight of the budget, keeping what still fits. */
+  public void resizeCaches() {
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("GlobalCache.resizeCaches")) {
+      if (nonNull(this.memberCache)) {
+        this.buildMemberCache();
+      }
+      synchronized (this.sourceCaches) {
+        this.sourceCaches.replaceAll(
+            (root, cache) -> buildSourceCache(this.sourceLoaders.get(root), cache.asMap()));
+      }
+    }
+  }
+
+  /** Drops classes requested only once. */
+  public void invalidateMemberWindow() {
+    if (nonNull(this.memberWindow)) {
+      // the window has no removal listener, the database entries are kept
+      this.memberWindow.invalidateAll();
+    }
+  }
+
+  /** Releases the data of the cached sources that is only used while indexing and is rebuilt. */
+  public void releaseSources() {
+    synchronized (this.sourceCaches) {
+      for (LoadingCache<File, Source> cache : this.sourceCaches.values()) {
+        for (Source source : cache.asMap().values()) {
+          source.releaseIndexWords();
+          source.resetLineRange();
+        }
+      }
+    }
+  }
+
+  private static int weighMembers(String fqcn, List<MemberDescriptor> members) {
+    return CacheBudget.weigh(fqcn) + CacheBudget.weighMembers(members);
   }
 
   public List<MemberDescriptor> getMemberDescriptors(final String fqcn) throws ExecutionException {
@@ -89,6 +206,16 @@ public class GlobalCache {
 
       scope.addAnnotation(TelemetryUtils.annotationBuilder().put("fqcn", fqcn).build("args"));
 
+      this.memberSketch.increment(fqcn);
+      if (this.memberSketch.frequency(fqcn) < ADMIT_FREQUENCY
+          && isNull(this.memberCache.asMap().get(fqcn))) {
+        // a class seen once, e.g. while scanning, must not evict the hot classes
+        return this.memberWindow.get(fqcn, () -> this.memberCacheLoader.load(fqcn));
+      }
+      List<MemberDescriptor> promoted = this.memberWindow.asMap().remove(fqcn);
+      if (nonNull(promoted)) {
+        this.memberCache.put(fqcn, promoted);
+      }
       return this.memberCache.get(fqcn);
     } finally {
       TelemetryUtils.recordMemberCacheRate(getMemberDescriptorsRateStats());
@@ -103,21 +230,26 @@ public class GlobalCache {
       scope.addAnnotation(TelemetryUtils.annotationBuilder().put("fqcn", fqcn).build("args"));
 
       List<MemberDescriptor> descriptors = this.memberCacheLoader.load(fqcn);
+      this.memberWindow.invalidate(fqcn);
       this.memberCache.put(fqcn, descriptors);
     } finally {
       TelemetryUtils.recordMemberCacheRate(getMemberDescriptorsRateStats());
     }
   }
 
+  private CacheStats getMemberCacheStats() {
+    return this.memberStats.plus(this.memberCache.stats()).plus(this.memberWindow.stats());
+  }
+
   public double[] getMemberDescriptorsRateStats() throws ExecutionException {
-    CacheStats cacheStats = this.memberCache.stats();
+    CacheStats cacheStats = this.getMemberCacheStats();
     return new double[] {
       cacheStats.hitRate(), cacheStats.loadExceptionRate(), cacheStats.missRate(),
     };
   }
 
   public long[] getMemberDescriptorsCountStats() throws ExecutionException {
-    CacheStats cacheStats = this.memberCache.stats();
+    CacheStats cacheStats = this.getMemberCacheStats();
     return new long[] {
       cacheStats.hitCount(),
       cacheStats.loadCount(),
@@ -129,24 +261,47 @@ public class GlobalCache {
   }
 
   public void invalidateMemberDescriptors(final String fqcn) {
+    if (nonNull(this.memberWindow.asMap().remove(fqcn))) {
+      // the window has no removal listener
+      boolean b = ProjectDatabaseHelper.deleteMemberDescriptors(fqcn);
+    }
     this.memberCache.invalidate(fqcn);
   }
 
+  /**
+   * Reloads the members of changed classes in the background.
+   *
+   * <p>The previous members are returned until the new ones are loaded, and the classes of one call
+   * are reloaded together in one pass.
+   */
+  public synchronized void refreshMemberDescriptors(final Collection<String> fqcns) {
+    for (String fqcn : fqcns) {
+      if (nonNull(this.memberWindow.asMap().remove(fqcn))) {
+        boolean b = ProjectDatabaseHelper.deleteMemberDescriptors(fqcn);
+      } else if (this.memberCache.asMap().containsKey(fqcn)) {
+        this.memberCache.refresh(fqcn);
+      }
+    }
+    this.memberCacheLoader.reloadPending();
+  }
+
+  Map<String, List<MemberDescriptor>> getMemberDescriptorsSnapshot() {
+    if (isNull(this.memberCache)) {
+      return Collections.emptyMap();
+    }
+    return new HashMap<>(this.memberCache.asMap());
+  }
+
   private LoadingCache<File, Source> getSourceCache() {
     Project project = this.projectSupplier.get();
     final File projectRoot = project.getProjectRoot();
-    if (this.sourceCaches.containsKey(projectRoot)) {
-      return this.sourceCaches.get(projectRoot);
-    } else {
+    synchronized (this.sourceCaches) {
+      if (this.sourceCaches.containsKey(projectRoot)) {
+        return this.sourceCaches.get(projectRoot);
+      }
       final JavaSourceLoader javaSourceLoader = new JavaSourceLoader(this.projectSupplier);
-
-      int size = Config.load().getSourceCacheSize();
       final LoadingCache<File, Source> loadingCache =
-          CacheBuilder.newBuilder()
-              .maximumSize(size)
-              .expireAfterAccess(30, TimeUnit.MINUTES)
-              .removalListener(javaSourceLoader)
-              .build(javaSourceLoader);
+          buildSourceCache(javaSourceLoader, Collections.emptyMap());
       this.sourceCaches.put(projectRoot, loadingCache);
       this.sourceLoaders.put(projectRoot, javaSourceLoader);
       return loadingCache;
@@ -182,6 +337,20 @@ public class GlobalCache {
     }
   }
 
+  public boolean preloadSource(final File file, final Map<String, String> checksumMap)
+      throws IOException {
+    final LoadingCache<File, Source> sourceCache = this.getSourceCache();
+    if (nonNull(sourceCache.getIfPresent(file))) {
+      return true;
+    }
+    Project project = this.projectSupplier.get();
+    JavaSourceLoader loader = sourceLoaders.get(project.getProjectRoot());
+    // persisted and unmodified sources only, never parse here
+    Optional<Source> source = loader.loadFromCache(file, checksumMap);
+    source.ifPresent(s -> sourceCache.put(file, s));
+    return source.isPresent();
+  }
+
   public void replaceSource(final Source source) {
     final LoadingCache<File, Source> sourceCache = this.getSourceCache();
     sourceCache.put(source.getFile(), source);
@@ -222,6 +391,18 @@ public class GlobalCache {
     sourceMap.put(fqcn, path);
   }
 
+  Map<String, String> getSourceMapSnapshot() {
+    return new HashMap<>(this.getSourceMapCache());
+  }
+
+  void restoreSourceMap(Map<String, String> sourceMap) {
+    Project project = this.projectSupplier.get();
+    final File projectRoot = project.getProjectRoot();
+    if (!this.sourceMapCaches.containsKey(projectRoot)) {
+      this.sourceMapCaches.put(projectRoot, new ConcurrentHashMap<>(sourceMap));
+    }
+  }
+
   public void saveSourceMap() {
     try (TelemetryUtils.ScopedSpan scope =
         TelemetryUtils.startScopedSpan("GlobalCache.saveSourceMap")) {
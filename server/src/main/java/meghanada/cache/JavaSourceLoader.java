@@ -52,12 +52,22 @@ class JavaSourceLoader extends CacheLoader<File, Source> implements RemovalListe
 
     final String projectRootPath = project.getProjectRootPath();
     final Map<String, String> checksumMap = ProjectDatabaseHelper.getChecksumMap(projectRootPath);
+    final Optional<Source> cached = this.loadFromCache(file, checksumMap);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    log.warn("source cache miss {}", file);
+    final CompileResult compileResult = project.parseFile(file.getCanonicalFile());
+    return compileResult.getSources().get(file.getCanonicalFile());
+  }
 
+  Optional<Source> loadFromCache(final File file, final Map<String, String> checksumMap)
+      throws IOException {
     final String path = file.getCanonicalPath();
-    final String md5sum = FileUtils.getChecksum(file);
     if (checksumMap.containsKey(path)) {
       // compare checksum
       final String prevSum = checksumMap.get(path);
+      final String md5sum = FileUtils.getChecksum(file);
       if (md5sum.equals(prevSum)) {
         // not modify
         // load from cache
@@ -65,16 +75,14 @@ class JavaSourceLoader extends CacheLoader<File, Source> implements RemovalListe
           final Optional<Source> source = loadSource(file);
           if (source.isPresent()) {
             log.debug("hit source cache {}", file);
-            return source.get();
+            return source;
           }
         } catch (Exception e) {
           log.catching(e);
         }
       }
     }
-    log.warn("source cache miss {}", file);
-    final CompileResult compileResult = project.parseFile(file.getCanonicalFile());
-    return compileResult.getSources().get(file.getCanonicalFile());
+    return Optional.empty();
   }
 
   @Override
@@ -9,14 +9,25 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import meghanada.config.Config;
+import meghanada.module.ModuleHelper;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
@@ -24,6 +35,8 @@ import meghanada.reflect.asm.ASMReflector;
 import meghanada.reflect.asm.CachedASMReflector;
 import meghanada.reflect.asm.InheritanceInfo;
 import meghanada.store.ProjectDatabaseHelper;
+import meghanada.store.SharedJarCache;
+import meghanada.system.Executor;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.utils.ClassName;
 import meghanada.utils.ClassNameUtils;
@@ -35,6 +48,13 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>>
 
   private static final Logger log = LogManager.getLogger(MemberCacheLoader.class);
 
+  // classes waiting for the next reload pass
+  private final Map<String, SettableFuture<List<MemberDescriptor>>> reloads =
+      new ConcurrentHashMap<>(16);
+  // classes of the running reload pass
+  private final Map<String, SettableFuture<List<MemberDescriptor>>> loading =
+      new ConcurrentHashMap<>(16);
+
   MemberCacheLoader() {}
 
   private static Optional<List<MemberDescriptor>> getCachedMemberDescriptors(String fqcn) {
@@ -103,6 +123,11 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>>
       scope.addAnnotation(
           TelemetryUtils.annotationBuilder().put("className", className).build("args"));
 
+      final Optional<List<MemberDescriptor>> restored = WarmState.takeRestoredMembers(className);
+      if (restored.isPresent()) {
+        return restored.get();
+      }
+
       final ClassName cn = new ClassName(className);
       final String fqcn = cn.getName();
 
@@ -121,10 +146,25 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>>
       boolean isMyProject = classFilePath.startsWith(projectRoot);
 
       if (!isMyProject) {
-        final List<MemberDescriptor> members = loadFromReflector(fqcn);
-        if (!members.isEmpty()) {
-          storeMembers(fqcn, members);
-          return members;
+        final Optional<String> sharedKey = MemberCacheLoader.getSharedMemberKey(fqcn);
+        if (sharedKey.isPresent()) {
+          final SharedJarCache sharedJarCache = SharedJarCache.getInstance();
+          final Optional<List<MemberDescriptor>> shared =
+              sharedJarCache.loadMembers(sharedKey.get());
+          if (shared.isPresent()) {
+            return shared.get();
+          }
+          final List<MemberDescriptor> members = loadFromReflector(fqcn);
+          if (!members.isEmpty()) {
+            sharedJarCache.saveMembers(sharedKey.get(), members);
+            return members;
+          }
+        } else {
+          final List<MemberDescriptor> members = loadFromReflector(fqcn);
+          if (!members.isEmpty()) {
+            storeMembers(fqcn, members);
+            return members;
+          }
         }
       }
 
@@ -140,6 +180,98 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>>
     }
   }
 
+  @Override
+  public ListenableFuture<List<MemberDescriptor>> reload(
+      final String className, final List<MemberDescriptor> oldValue) {
+    // the cache keeps returning the old value until the pass sets the future
+    return this.reloads.computeIfAbsent(className, k -> SettableFuture.create());
+  }
+
+  /** Reloads the requested classes in one background pass. */
+  void reloadPending() {
+    if (this.reloads.isEmpty()) {
+      return;
+    }
+    Executor.getInstance().execute(this::reloadAll);
+  }
+
+  /** Classes waiting for or in a reload pass, with the futures their cache is refreshed from. */
+  Map<String, ListenableFuture<List<MemberDescriptor>>> getPendingReloads() {
+    // a class is put in loading before it leaves reloads
+    Map<String, ListenableFuture<List<MemberDescriptor>>> pending = new HashMap<>(this.reloads);
+    pending.putAll(this.loading);
+    return pending;
+  }
+
+  private void reloadAll() {
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("MemberCacheLoader.reloadAll")) {
+
+      scope.addAnnotation(
+          TelemetryUtils.annotationBuilder().put("size", this.reloads.size()).build("args"));
+
+      for (String className : new ArrayList<>(this.reloads.keySet())) {
+        SettableFuture<List<MemberDescriptor>> future = this.reloads.get(className);
+        if (isNull(future)) {
+          continue;
+        }
+        this.loading.put(className, future);
+        this.reloads.remove(className, future);
+        try {
+          // the stored members are stale
+          boolean b = ProjectDatabaseHelper.deleteMemberDescriptors(className);
+          b = future.set(this.load(className));
+        } catch (Throwable t) {
+          boolean b = future.setException(t);
+        } finally {
+          this.loading.remove(className, future);
+        }
+      }
+    }
+  }
+
+  private static Optional<String> getSharedMemberKey(final String fqcn) throws IOException {
+    if (!SharedJarCache.isEnabled()) {
+      return Optional.empty();
+    }
+
+    // members include inherited ones, so the key covers every jar of the class hierarchy
+    final Map<String, ClassIndex> globalClassIndex =
+        CachedASMReflector.getInstance().getGlobalClassIndex();
+    final SharedJarCache sharedJarCache = SharedJarCache.getInstance();
+    final Set<String> visited = new HashSet<>(8);
+    final Set<String> contentKeys = new TreeSet<>();
+    final Deque<String> queue = new ArrayDeque<>(8);
+    queue.add(fqcn);
+
+    while (!queue.isEmpty()) {
+      final String name = ClassNameUtils.removeTypeParameter(queue.poll());
+      if (!visited.add(name)) {
+        continue;
+      }
+      ClassIndex classIndex = globalClassIndex.get(name);
+      if (isNull(classIndex)) {
+        classIndex = globalClassIndex.get(ClassNameUtils.replaceInnerMark(name));
+      }
+      if (isNull(classIndex) || isNull(classIndex.getFilePath())) {
+        contentKeys.add("missing:" + name);
+        continue;
+      }
+      final File file = new File(classIndex.getFilePath());
+      if (ModuleHelper.isJrtFsFile(file)) {
+        final Config config = Config.load();
+        contentKeys.add("jrt:" + config.getJavaVersion() + ':' + config.getJavaHomeDir());
+      } else if (SharedJarCache.isCacheable(file)) {
+        contentKeys.add(sharedJarCache.getContentHash(file));
+      } else {
+        // project or directory classes are not shareable
+        return Optional.empty();
+      }
+      queue.addAll(classIndex.getSupers());
+    }
+    return Optional.of(sharedJarCache.getMemberKey(fqcn, contentKeys));
+  }
+
   private static List<MemberDescriptor> loadFromReflector(String fqcn) {
 
     try (TelemetryUtils.ScopedSpan scope =
@@ -0,0 +1,168 @@
+package meghanada.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import meghanada.reflect.asm.ASMReflector;
+import meghanada.telemetry.TelemetryUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Sheds cached data when the heap gets close to its limit.
+ *
+ * <p>Watches the old generation through the usage threshold notifications of its memory pool and
+ * the notifications of the garbage collectors. The decision is made on the usage after the last
+ * collection, so garbage alone never raises the stage. Each stage sheds more: the caches are shrunk
+ * first, then the inner member cache is dropped, then the index words and line tables of the cached
+ * sources are released. The stage steps back down, and the caches grow again, once the usage after
+ * collection stays well below the threshold of the stage.
+ */
+public final class MemoryGovernor implements NotificationListener {
+
+  private static final Logger log = LogManager.getLogger(MemoryGovernor.class);
+  // a lower stage is restored below the threshold minus this
+  private static final double HYSTERESIS = 0.1;
+
+  private static MemoryGovernor governor;
+
+  private final MemoryPoolMXBean pool;
+  private final long max;
+  private volatile Stage stage = Stage.NORMAL;
+
+  private MemoryGovernor(MemoryPoolMXBean pool, long max) {
+    this.pool = pool;
+    this.max = max;
+  }
+
+  public static synchronized void start() {
+    if (nonNull(governor)) {
+      return;
+    }
+    MemoryPoolMXBean oldGen = null;
+    long max = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP
+          && pool.isUsageThresholdSupported()
+          && pool.isCollectionUsageThresholdSupported()
+          && pool.getUsage().getMax() > max) {
+        oldGen = pool;
+        max = pool.getUsage().getMax();
+      }
+    }
+    if (isNull(oldGen)) {
+      log.warn("memory governor disabled, no heap pool with a usage threshold");
+      return;
+    }
+    governor = new MemoryGovernor(oldGen, max);
+    long threshold = (long) (max * Stage.SHRINK.threshold);
+    oldGen.setUsageThreshold(threshold);
+    oldGen.setCollectionUsageThreshold(threshold);
+    ((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+        .addNotificationListener(governor, null, null);
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (gc instanceof NotificationEmitter) {
+        ((NotificationEmitter) gc).addNotificationListener(governor, null, null);
+      }
+    }
+    log.info("start memory governor pool:{} max:{}MB", oldGen.getName(), max / 1024 / 1024);
+  }
+
+  /** Next stage for the usage ratio after collection, one step down at a time. */
+  static Stage nextStage(Stage current, double ratio) {
+    Stage target = Stage.NORMAL;
+    for (Stage s : Stage.values()) {
+      if (ratio >= s.threshold) {
+        target = s;
+      }
+    }
+    if (target.ordinal() >= current.ordinal()) {
+      return target;
+    }
+    if (ratio < current.threshold - HYSTERESIS) {
+      return Stage.values()[current.ordinal() - 1];
+    }
+    return current;
+  }
+
+  @Override
+  public void handleNotification(Notification notification, Object handback) {
+    String type = notification.getType();
+    if (type.equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)
+        || type.equals(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED)
+        || type.equals(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED)) {
+      try {
+        this.update();
+      } catch (Throwable t) {
+        log.catching(t);
+      }
+    }
+  }
+
+  private synchronized void update() {
+    MemoryUsage usage = this.pool.getCollectionUsage();
+    if (isNull(usage)) {
+      return;
+    }
+    double ratio = (double) usage.getUsed() / this.max;
+    Stage current = this.stage;
+    Stage next = nextStage(current, ratio);
+    if (next == current) {
+      return;
+    }
+    log.info(
+        "memory pressure {} -> {} old gen used after gc:{}%",
+        current, next, String.format("%.1f", ratio * 100));
+    this.stage = next;
+    this.shed(current, next);
+    TelemetryUtils.recordMemoryPressure(next.ordinal());
+  }
+
+  private void shed(Stage current, Stage next) {
+    try (TelemetryUtils.ScopedSpan scope = TelemetryUtils.startScopedSpan("MemoryGovernor.shed")) {
+      GlobalCache globalCache = GlobalCache.getInstance();
+      boolean raise = next.ordinal() > current.ordinal();
+      if (raise) {
+        globalCache.invalidateMemberWindow();
+      }
+      if (next.scale != current.scale) {
+        CacheBudget.setScale(next.scale);
+        globalCache.resizeCaches();
+      }
+      if (raise && next.ordinal() >= Stage.DROP.ordinal()) {
+        ASMReflector.clearInnerCache();
+      }
+      if (raise && next == Stage.RELEASE) {
+        globalCache.releaseSources();
+      }
+    }
+  }
+
+  enum Stage {
+    NORMAL(0.0, 100),
+    // shrink the caches
+    SHRINK(0.75, 50),
+    // drop the inner member cache
+    DROP(0.85, 25),
+    // release the index words and line tables of the sources
+    RELEASE(0.92, 25);
+
+    private final double threshold;
+    private final int scale;
+
+    Stage(double threshold, int scale) {
+      this.threshold = threshold;
+      this.scale = scale;
+    }
+  }
+}
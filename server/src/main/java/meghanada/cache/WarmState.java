@@ -0,0 +1,415 @@
+package meghanada.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.hash.Hashing;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import meghanada.Main;
+import meghanada.config.Config;
+import meghanada.module.ModuleHelper;
+import meghanada.project.Project;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.session.Readiness;
+import meghanada.store.Serializer;
+import meghanada.telemetry.TelemetryUtils;
+import meghanada.utils.ClassNameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Warm-state snapshot of a project session.
+ *
+ * <p>Captures the class index, hot member cache entries, the source map, the caller map and the
+ * readiness phase durations into one sequential file at clean shutdown and periodically while idle.
+ * On startup the snapshot is restored before the class index is created; entries that came from a
+ * jar or a class file of an output directory are only used when the fingerprint (size and mtime) of
+ * the file still matches, the rest is refreshed by the usual scan and compile.
+ *
+ * <p>Member lists stay serialized until the member cache first loads the class. Members include the
+ * inherited ones, so a list is validated against every jar of the class hierarchy, and a jar is
+ * only checked once it is needed.
+ */
+public class WarmState implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final int FORMAT_VERSION = 3;
+  private static final Logger log = LogManager.getLogger(WarmState.class);
+  private static final String DIR_NAME = "warm";
+  private static final String MISSING = "missing";
+  private static final long SAVE_INTERVAL = TimeUnit.MINUTES.toSeconds(10);
+
+  // set after the first full analyze, a partial state is never captured
+  private static volatile boolean capturable;
+  private static volatile long lastSaved;
+  // member lists of the restored snapshot not loaded yet
+  private static volatile WarmState restored;
+
+  private final int version;
+  private final String projectRoot;
+  private final Map<String, String> fingerprints = new HashMap<>(64);
+  private final List<ClassIndex> classIndexes = new ArrayList<>(1024);
+  private final Map<String, byte[]> members = new ConcurrentHashMap<>(128);
+  // jars of the class hierarchy of each member list
+  private final Map<String, List<String>> memberJars = new ConcurrentHashMap<>(128);
+  private Map<String, String> sourceMap = new HashMap<>(0);
+  private Map<String, Set<String>> callerMap = new HashMap<>(0);
+  // readiness phase durations of the last run, the eta of a fresh start
+  private Map<String, Long> phaseDurations = new HashMap<>(0);
+  private transient Map<String, Boolean> checked;
+
+  WarmState(String projectRoot) {
+    this.version = FORMAT_VERSION;
+    this.projectRoot = projectRoot;
+  }
+
+  public static boolean isEnabled() {
+    return Config.load().useWarmState();
+  }
+
+  public static void setCapturable(boolean capturable) {
+    WarmState.capturable = capturable;
+    if (capturable) {
+      lastSaved = Instant.now().getEpochSecond();
+    }
+  }
+
+  private static String fingerprint(String path) {
+    File file = new File(path);
+    if (!file.exists()) {
+      // e.g. jrt-fs, pinned by java.home in the snapshot file name
+      return MISSING;
+    }
+    return file.length() + ":" + file.lastModified();
+  }
+
+  private static File getStateFile(Project project) throws IOException {
+    Config config = Config.load();
+    String hash =
+        Hashing.sha256()
+            .newHasher()
+            .putInt(FORMAT_VERSION)
+            .putString(project.getProjectRootPath(), StandardCharsets.UTF_8)
+            .putString(Main.getVersion(), StandardCharsets.UTF_8)
+            .putString(config.getJavaVersion(), StandardCharsets.UTF_8)
+            .putString(config.getJavaHomeDir(), StandardCharsets.UTF_8)
+            .hash()
+            .toString();
+    File dir = new File(config.getCacheRoot(), DIR_NAME);
+    return new File(dir, hash.substring(0, 32) + ".state");
+  }
+
+  public static void saveIfStale(Project project) {
+    long now = Instant.now().getEpochSecond();
+    if (now - lastSaved > SAVE_INTERVAL) {
+      save(project);
+    }
+  }
+
+  public static synchronized void save(Project project) {
+    if (!capturable || !isEnabled() || isNull(project)) {
+      return;
+    }
+    try (TelemetryUtils.ScopedSpan scope = TelemetryUtils.startScopedSpan("WarmState.save")) {
+      File file = getStateFile(project);
+      WarmState state = capture(project);
+      state.write(file);
+      lastSaved = Instant.now().getEpochSecond();
+      log.info(
+          "saved warm state {} classes:{} members:{}",
+          file,
+          state.classIndexes.size(),
+          state.members.size());
+    } catch (Exception e) {
+      log.warn("failed save warm state {}", e.getMessage());
+    }
+  }
+
+  private static WarmState capture(Project project) {
+    CachedASMReflector reflector = CachedASMReflector.getInstance();
+    GlobalCache globalCache = GlobalCache.getInstance();
+    WarmState state = new WarmState(project.getProjectRootPath());
+
+    for (ClassIndex index : reflector.getLocalClassIndexes()) {
+      state.putClassIndex(index);
+    }
+
+    Map<String, ClassIndex> globalClassIndex = reflector.getGlobalClassIndex();
+    globalCache
+        .getMemberDescriptorsSnapshot()
+        .forEach(
+            (fqcn, list) ->
+                getHierarchyJars(globalClassIndex, fqcn)
+                    .ifPresent(jars -> state.putMembers(fqcn, list, jars)));
+
+    WarmState previous = restored;
+    if (nonNull(previous)) {
+      // keep the restored lists that were not requested in this session
+      previous.members.forEach(
+          (fqcn, bytes) -> {
+            List<String> jars = previous.memberJars.get(fqcn);
+            if (nonNull(jars)
+                && !state.members.containsKey(fqcn)
+                && previous.isValid(jars, getHierarchyJars(globalClassIndex, fqcn).orElse(null))) {
+              jars.forEach(path -> state.fingerprints.put(path, previous.fingerprints.get(path)));
+              state.members.put(fqcn, bytes);
+              state.memberJars.put(fqcn, jars);
+            }
+          });
+    }
+
+    state.sourceMap = new HashMap<>(globalCache.getSourceMapSnapshot());
+    Map<String, Set<String>> callerMap = new HashMap<>(project.getCallerMap().size());
+    project.getCallerMap().forEach((k, v) -> callerMap.put(k, new HashSet<>(v)));
+    state.callerMap = callerMap;
+    state.phaseDurations = Readiness.getInstance().getLastDurations();
+    return state;
+  }
+
+  // jars the members of the class come from, empty when a class of the hierarchy is not in a jar
+  private static Optional<List<String>> getHierarchyJars(
+      Map<String, ClassIndex> globalClassIndex, String fqcn) {
+    Set<String> visited = new HashSet<>(8);
+    Set<String> jars = new TreeSet<>();
+    Deque<String> queue = new ArrayDeque<>(8);
+    queue.add(fqcn);
+
+    while (!queue.isEmpty()) {
+      String name = ClassNameUtils.removeTypeParameter(queue.poll());
+      if (!visited.add(name)) {
+        continue;
+      }
+      ClassIndex classIndex = globalClassIndex.get(name);
+      if (isNull(classIndex)) {
+        classIndex = globalClassIndex.get(ClassNameUtils.replaceInnerMark(name));
+      }
+      if (isNull(classIndex) || isNull(classIndex.getFilePath())) {
+        return Optional.empty();
+      }
+      // jrt-fs is pinned by java.home in the snapshot file name
+      String path = classIndex.getFilePath();
+      if (path.endsWith(".jar")) {
+        jars.add(path);
+      } else if (!ModuleHelper.isJrtFsFile(new File(path))) {
+        // project classes are recompiled, keep library members only
+        return Optional.empty();
+      }
+      queue.addAll(classIndex.getSupers());
+    }
+    return Optional.of(new ArrayList<>(jars));
+  }
+
+  void putClassIndex(ClassIndex index) {
+    String path = index.getFilePath();
+    if (nonNull(path) && !ModuleHelper.isJrtFsFile(new File(path))) {
+      // the class file of a project class, or its jar
+      String fp = this.fingerprints.computeIfAbsent(path, WarmState::fingerprint);
+      if (MISSING.equals(fp)) {
+        return;
+      }
+    }
+    this.classIndexes.add(index);
+  }
+
+  /**
+   * The class indexes that still match their jar or class file. Classes of a changed jar are read
+   * again with the jar, and changed or deleted class files of the output directories are left to
+   * the directory scan.
+   *
+   * @param jarPaths the jars of the project by canonical path
+   * @param restoredJars receives the jars whose classes are all restored
+   */
+  List<ClassIndex> getValidClassIndexes(Map<String, File> jarPaths, Set<File> restoredJars) {
+    List<ClassIndex> indexes = new ArrayList<>(this.classIndexes.size());
+    for (ClassIndex index : this.classIndexes) {
+      String path = index.getFilePath();
+      if (nonNull(path) && path.endsWith(".jar")) {
+        File jar = jarPaths.get(path);
+        if (isNull(jar) || !this.isValid(path)) {
+          continue;
+        }
+        index.loaded = true;
+        restoredJars.add(jar);
+      } else if (nonNull(path)
+          && !ModuleHelper.isJrtFsFile(new File(path))
+          && !this.isValid(path)) {
+        continue;
+      }
+      indexes.add(index);
+    }
+    return indexes;
+  }
+
+  void putMembers(String fqcn, List<MemberDescriptor> list, List<String> jars) {
+    for (String path : jars) {
+      this.fingerprints.computeIfAbsent(path, WarmState::fingerprint);
+    }
+    this.members.put(fqcn, Serializer.asByte(new ArrayList<>(list)));
+    this.memberJars.put(fqcn, jars);
+  }
+
+  /**
+   * Takes the restored members of the class.
+   *
+   * <p>Each list is used at most once, later loads of the class read the jars again.
+   */
+  static Optional<List<MemberDescriptor>> takeRestoredMembers(String fqcn) {
+    WarmState state = restored;
+    if (isNull(state) || !state.members.containsKey(fqcn)) {
+      return Optional.empty();
+    }
+    Map<String, ClassIndex> globalClassIndex =
+        CachedASMReflector.getInstance().getGlobalClassIndex();
+    return state.takeMembers(fqcn, getHierarchyJars(globalClassIndex, fqcn).orElse(null));
+  }
+
+  /**
+   * Takes the members of the class if they were captured from the given hierarchy jars and none of
+   * the jars changed since.
+   */
+  @SuppressWarnings("unchecked")
+  Optional<List<MemberDescriptor>> takeMembers(String fqcn, @Nullable List<String> currentJars) {
+    byte[] bytes = this.members.remove(fqcn);
+    List<String> jars = this.memberJars.remove(fqcn);
+    if (isNull(bytes) || isNull(jars) || !this.isValid(jars, currentJars)) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(Serializer.asObject(bytes, List.class));
+  }
+
+  private boolean isValid(List<String> jars, @Nullable List<String> currentJars) {
+    // a dependency bump may move the class or one of its supers to another jar
+    if (!jars.equals(currentJars)) {
+      return false;
+    }
+    for (String path : jars) {
+      if (!this.isValid(path)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isValid(String path) {
+    String fp = this.fingerprints.get(path);
+    if (isNull(fp)) {
+      return false;
+    }
+    // a jar is checked once, when it is first needed
+    return this.checked.computeIfAbsent(path, p -> fp.equals(fingerprint(p)));
+  }
+
+  void write(File file) throws IOException {
+    File dir = file.getParentFile();
+    if (!dir.exists() && !dir.mkdirs()) {
+      throw new IOException(dir + " mkdirs fail");
+    }
+    File temp = File.createTempFile(file.getName(), ".tmp", dir);
+    try {
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+        Serializer.writeObject(out, this);
+      }
+      try {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      if (temp.exists() && !temp.delete()) {
+        log.warn("{} delete fail", temp);
+      }
+    }
+  }
+
+  @Nullable
+  static WarmState read(File file) {
+    WarmState state = Serializer.readObjectFromFile(file, WarmState.class);
+    if (isNull(state) || state.version != FORMAT_VERSION) {
+      return null;
+    }
+    state.checked = new ConcurrentHashMap<>(state.fingerprints.size());
+    return state;
+  }
+
+  public static synchronized boolean restore(Project project) {
+    if (!isEnabled()) {
+      return false;
+    }
+    if (nonNull(System.getProperty("new-project-database"))) {
+      // restored jar indexes are not stored again, keep the database in sync
+      return false;
+    }
+    try (TelemetryUtils.ScopedSpan scope = TelemetryUtils.startScopedSpan("WarmState.restore")) {
+      File file = getStateFile(project);
+      if (!file.exists()) {
+        return false;
+      }
+      WarmState state = read(file);
+      if (isNull(state) || !project.getProjectRootPath().equals(state.projectRoot)) {
+        return false;
+      }
+      state.apply(project);
+      return true;
+    } catch (Exception e) {
+      log.warn("failed restore warm state {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private void apply(Project project) {
+    CachedASMReflector reflector = CachedASMReflector.getInstance();
+    Set<File> jars = reflector.getJars();
+    Map<String, File> jarPaths = new HashMap<>(jars.size());
+    for (File jar : jars) {
+      try {
+        jarPaths.put(jar.getCanonicalPath(), jar);
+      } catch (IOException e) {
+        jarPaths.put(jar.getPath(), jar);
+      }
+    }
+
+    Set<File> restoredJars = new HashSet<>(jars.size());
+    List<ClassIndex> indexes = this.getValidClassIndexes(jarPaths, restoredJars);
+    reflector.restoreClassIndexes(restoredJars, indexes);
+    this.classIndexes.clear();
+
+    // member lists are validated when the member cache loads them
+    restored = this;
+    GlobalCache globalCache = GlobalCache.getInstance();
+    globalCache.restoreSourceMap(this.sourceMap);
+    project.restoreCallerMap(this.callerMap);
+    Readiness.getInstance().restoreLastDurations(this.phaseDurations);
+
+    log.info(
+        "restored warm state classes:{} members:{} jars:{}/{}",
+        indexes.size(),
+        this.members.size(),
+        restoredJars.size(),
+        jars.size());
+  }
+}
@@ -20,11 +20,14 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import meghanada.analyze.AccessSymbol;
 import meghanada.analyze.Annotation;
 import meghanada.analyze.ClassScope;
@@ -43,6 +46,7 @@ import meghanada.completion.matcher.FuzzyMatcher;
 import meghanada.completion.matcher.PrefixMatcher;
 import meghanada.config.Config;
 import meghanada.index.IndexDatabase;
+import meghanada.index.IndexedMember;
 import meghanada.project.Project;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.ClassIndex;
@@ -65,6 +69,9 @@ public class JavaCompletion {
 
   private final Supplier<Project> projectSupplier;
   private Collection<? extends CandidateUnit> hits;
+  private LastCompletion lastCompletion;
+  private final AtomicLong narrowHits = new AtomicLong();
+  private final AtomicLong narrowMisses = new AtomicLong();
 
   public JavaCompletion(final Supplier<Project> supplier) {
     this.projectSupplier = supplier;
@@ -90,7 +97,7 @@ public class JavaCompletion {
       CompletionMatcher matcher = getClassCompletionMatcher(classPrefix);
       CachedASMReflector reflector = CachedASMReflector.getInstance();
       return reflector
-          .allClassStream()
+          .classNameStream(matcher::candidates)
           .filter(
               c -> {
                 if (!c.isAnnotation()) {
@@ -441,7 +448,7 @@ public class JavaCompletion {
       CachedASMReflector reflector = CachedASMReflector.getInstance();
       List<ClassIndex> classes =
           reflector
-              .allClassStream()
+              .classNameStream(classMatcher::candidates)
               .filter(
                   c -> {
                     if (c.isAnnotation()) {
@@ -950,7 +957,7 @@ public class JavaCompletion {
         // use class completion matcher
         CompletionMatcher matcher = getClassCompletionMatcher(classPrefix);
         return reflector
-            .allClassStream()
+            .classNameStream(matcher::candidates)
             .filter(matcher::match)
             .map(
                 c -> {
@@ -965,19 +972,30 @@ public class JavaCompletion {
     }
   }
 
-  private static List<MemberDescriptor> completionStaticMembers(
+  private static List<IndexedMember> completionStaticMembers(
       Set<CandidateUnit> result, final String name) {
 
     try (TelemetryUtils.ScopedSpan scope =
         TelemetryUtils.startScopedSpan("JavaCompletion.comletionStaticMembers")) {
 
-      List<MemberDescriptor> members = new ArrayList<>(16);
+      List<IndexedMember> members = new ArrayList<>(16);
       List<String> classes = Config.load().searchStaticMethodClasses();
       if (classes.isEmpty()) {
         return Collections.emptyList();
       }
       String s = Joiner.on(" OR ").join(classes);
       CompletionMatcher matcher = getCompletionMatcher(name);
+      // a prefix query only narrows what the prefix matcher accepts
+      String nameQuery =
+          Config.load().completionMatcher() == Config.CompletionType.PREFIX
+              ? IndexDatabase.prefix(name)
+              : "";
+      // members already completed from the imports
+      Set<String> found =
+          result.stream()
+              .filter(c -> c instanceof MemberDescriptor)
+              .map(c -> memberKey(((MemberDescriptor) c).getDeclaringClass(), c))
+              .collect(Collectors.toSet());
       try {
         members =
             IndexDatabase.getInstance()
@@ -985,14 +1003,11 @@ public class JavaCompletion {
                     IndexDatabase.paren(s),
                     IndexDatabase.doubleQuote("public static"),
                     "(\"METHOD\" OR \"FIELD\")",
-                    "")
+                    nameQuery)
                 .stream()
-                .filter(m -> !result.contains(m) && matcher.match(m))
-                .peek(
-                    m -> {
-                      m.setExtra("static-import " + m.getDeclaringClass());
-                      m.showStaticClassName = true;
-                    })
+                .filter(
+                    m -> !found.contains(memberKey(m.getDeclaringClass(), m)) && matcher.match(m))
+                .map(m -> m.withExtra("static-import " + m.getDeclaringClass()))
                 .collect(Collectors.toList());
       } catch (Exception ex) {
         log.warn("fail getting static method for {}", name);
@@ -1001,6 +1016,10 @@ public class JavaCompletion {
     }
   }
 
+  private static String memberKey(String declaringClass, CandidateUnit c) {
+    return declaringClass + '#' + c.getType() + '#' + c.getName() + '#' + c.getReturnType();
+  }
+
   private static String getMemberType(
       final Source source, final int line, final String typeOrMember) {
 
@@ -1097,7 +1116,7 @@ public class JavaCompletion {
           }
         }
         return reflector
-            .allClassStream()
+            .classNameStream(matcher::candidates)
             .filter(matcher::match)
             .map(CachedASMReflector::cloneClassIndex)
             .sorted(cmp)
@@ -1147,15 +1166,122 @@ public class JavaCompletion {
               .put("prefix", prefix)
               .build("args"));
 
+      Optional<List<CandidateUnit>> narrowed = this.narrow(file, line, prefix);
+      if (narrowed.isPresent()) {
+        this.hits = narrowed.get();
+        return narrowed.get();
+      }
+      this.narrowMisses.incrementAndGet();
       Collection<? extends CandidateUnit> collection =
           this.completionAtInternal(file, line, column, prefix);
+      this.lastCompletion = null;
       if (nonNull(collection)) {
         this.hits = collection;
+        this.lastCompletion = LastCompletion.create(file, line, prefix, collection);
       }
       return collection;
     }
   }
 
+  // filter and re-rank the last candidates when only the prefix was extended
+  private Optional<List<CandidateUnit>> narrow(
+      final File file, final int line, final String searchWord) {
+    final LastCompletion last = this.lastCompletion;
+    if (isNull(last)
+        || last.line != line
+        || !last.file.equals(file)
+        || last.lastModified != file.lastModified()) {
+      return Optional.empty();
+    }
+    final String context = narrowingContext(searchWord);
+    if (isNull(context) || !context.equals(last.context)) {
+      return Optional.empty();
+    }
+    final String prefix = searchWord.substring(context.length());
+    if (!prefix.startsWith(last.prefix)) {
+      return Optional.empty();
+    }
+    final CompletionMatcher matcher = getCompletionMatcher(prefix);
+    final CompletionMatcher classMatcher = getClassCompletionMatcher(prefix);
+    final boolean symbols = context.isEmpty();
+    final List<CandidateUnit> result =
+        last.candidates.stream()
+            .filter(
+                c -> {
+                  if (prefix.isEmpty()) {
+                    return true;
+                  }
+                  if (symbols && c instanceof ClassIndex) {
+                    return classMatcher.match(c);
+                  }
+                  return matcher.match(c);
+                })
+            .sorted(last.ranker.apply(prefix))
+            .collect(Collectors.toList());
+    log.debug(
+        "narrowed {} -> {} prefix:{} hits:{} misses:{}",
+        last.candidates.size(),
+        result.size(),
+        prefix,
+        this.narrowHits.incrementAndGet(),
+        this.narrowMisses.get());
+    this.lastCompletion = last.narrowed(prefix, result);
+    return Optional.of(result);
+  }
+
+  // the search word without the prefix, null when the results can't be narrowed
+  private static String narrowingContext(final String searchWord) {
+    final Config config = Config.load();
+    if (config.completionMatcher() == Config.CompletionType.FUZZY
+        || config.classCompletionMatcher() == Config.CompletionType.FUZZY) {
+      // the score threshold grows with the query, a longer one may match more
+      return null;
+    }
+    if (searchWord.startsWith("@")) {
+      return null;
+    }
+    if (!searchWord.startsWith("*")) {
+      return searchWord.isEmpty() ? null : "";
+    }
+    if (searchWord.startsWith("*import")
+        || searchWord.startsWith("*new")
+        || searchWord.startsWith("*package")) {
+      return null;
+    }
+    final int idx = searchWord.lastIndexOf('#');
+    if (idx <= 0) {
+      return null;
+    }
+    if (searchWord.startsWith("*method") && searchWord.lastIndexOf(':') <= 0) {
+      return null;
+    }
+    return searchWord.substring(0, idx + 1);
+  }
+
+  // the comparator completionAtInternal sorts the candidates of the context with
+  private static Function<String, Comparator<? super CandidateUnit>> ranker(
+      final Source source, final int line, final String context) {
+    if (context.isEmpty()) {
+      return prefix -> comparing(source, prefix);
+    }
+    final String searchWord = context.substring(0, context.length() - 1);
+    final int typeIdx = searchWord.lastIndexOf('*');
+    if (typeIdx > 1) {
+      // smart completion
+      final String type = getMemberType(source, line, searchWord.substring(typeIdx + 1));
+      return prefix -> getComparatorWithType(prefix, type);
+    }
+    return JavaCompletion::methodComparing;
+  }
+
+  public long getNarrowHits() {
+    return this.narrowHits.get();
+  }
+
+  public long getNarrowMisses() {
+    return this.narrowMisses.get();
+  }
+
   private Collection<? extends CandidateUnit> completionAtInternal(
       final File file, int line, int column, String prefix) {
 
@@ -1356,17 +1482,35 @@ public class JavaCompletion {
           c -> {
             if (c.getType().equals(type) && c.getDisplayDeclaration().equals(declaration)) {
               // match
-              Integer count = this.statisticsTable.get(file, c);
+              CandidateUnit unit = c instanceof IndexedMember ? materialize((IndexedMember) c) : c;
+              Integer count = this.statisticsTable.get(file, unit);
               if (isNull(count)) {
                 count = 0;
               }
               count++;
-              this.statisticsTable.put(file, c, count);
+              this.statisticsTable.put(file, unit, count);
             }
           });
     }
   }
 
+  // the descriptor of a member found by the index
+  private static CandidateUnit materialize(IndexedMember member) {
+    String declaringClass = member.getDeclaringClass();
+    for (MemberDescriptor md : CachedASMReflector.getInstance().reflect(declaringClass)) {
+      if (md.getName().equals(member.getName())
+          && md.getType().equals(member.getType())
+          && md.getDeclaringClass().equals(declaringClass)
+          && md.getParameters().equals(member.getParameters())) {
+        MemberDescriptor copy = md.clone();
+        copy.showStaticClassName = true;
+        copy.setExtra(member.getExtra());
+        return copy;
+      }
+    }
+    return member;
+  }
+
   public void dumpStatsTable() {
     this.statisticsTable
         .rowKeySet()
@@ -1380,6 +1524,66 @@ public class JavaCompletion {
             });
   }
 
+  private static final class LastCompletion {
+
+    final File file;
+    final long lastModified;
+    final int line;
+    final String context;
+    final String prefix;
+    final List<CandidateUnit> candidates;
+    final Function<String, Comparator<? super CandidateUnit>> ranker;
+
+    private LastCompletion(
+        File file,
+        long lastModified,
+        int line,
+        String context,
+        String prefix,
+        List<CandidateUnit> candidates,
+        Function<String, Comparator<? super CandidateUnit>> ranker) {
+      this.file = file;
+      this.lastModified = lastModified;
+      this.line = line;
+      this.context = context;
+      this.prefix = prefix;
+      this.candidates = candidates;
+      this.ranker = ranker;
+    }
+
+    @Nullable
+    static LastCompletion create(
+        File file, int line, String searchWord, Collection<? extends CandidateUnit> candidates) {
+      // an empty result may be a failure
+      if (candidates.isEmpty()) {
+        return null;
+      }
+      String context = narrowingContext(searchWord);
+      if (isNull(context)) {
+        return null;
+      }
+      try {
+        Source source = JavaCompletion.getSource(file);
+        return new LastCompletion(
+            file,
+            file.lastModified(),
+            line,
+            context,
+            searchWord.substring(context.length()),
+            new ArrayList<>(candidates),
+            ranker(source, line, context));
+      } catch (IOException | ExecutionException e) {
+        log.catching(e);
+        return null;
+      }
+    }
+
+    LastCompletion narrowed(String prefix, List<CandidateUnit> candidates) {
+      return new LastCompletion(
+          this.file, this.lastModified, this.line, this.context, prefix, candidates, this.ranker);
+    }
+  }
+
   private static class MyCandidateUnit implements CandidateUnit {
     private final String pkg;
 
@@ -2,7 +2,9 @@ package meghanada.completion.matcher;
 
 import java.util.Comparator;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.asm.ClassNameIndex;
 import meghanada.utils.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -30,6 +32,20 @@ public class CamelCaseMatcher implements CompletionMatcher {
     return StringUtils.isMatchCamelCase(s, this.query);
   }
 
+  @Override
+  public Stream<String> candidates(ClassNameIndex index) {
+    // the pattern is anchored and humps can't be skipped, so a name starts with the first hump
+    // of the query and its upper case letters start with those of the query
+    int i = 1;
+    while (i < this.query.length() && !Character.isUpperCase(this.query.charAt(i))) {
+      i++;
+    }
+    String hump = this.query.substring(0, Math.min(i, this.query.length()));
+    String letters = ClassNameIndex.upperCaseLetters(this.query);
+    Stream<String> names = letters.length() > 1 ? index.humps(letters) : index.prefixed(hump);
+    return names.filter(s -> s.startsWith(hump)).filter(this::matchString);
+  }
+
   @Override
   public Predicate<CandidateUnit> filter() {
     return this::match;
@@ -2,7 +2,9 @@ package meghanada.completion.matcher;
 
 import java.util.Comparator;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.asm.ClassNameIndex;
 
 public interface CompletionMatcher {
 
@@ -13,4 +15,9 @@ public interface CompletionMatcher {
   Predicate<CandidateUnit> filter();
 
   Comparator<CandidateUnit> comparator();
+
+  /** Class names that may match, a superset of the names accepted by {@link #match}. */
+  default Stream<String> candidates(ClassNameIndex index) {
+    return index.names().filter(this::matchString);
+  }
 }
@@ -6,9 +6,11 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 import meghanada.analyze.Source;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.reflect.asm.ClassNameIndex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -39,6 +41,11 @@ public class ContainsMatcher implements CompletionMatcher {
     return s.contains(this.query);
   }
 
+  @Override
+  public Stream<String> candidates(ClassNameIndex index) {
+    return index.containing(this.query);
+  }
+
   @Override
   public Predicate<CandidateUnit> filter() {
     return this::match;
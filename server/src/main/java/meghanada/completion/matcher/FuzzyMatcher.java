@@ -6,9 +6,11 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 import meghanada.analyze.Source;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.ClassIndex;
+import meghanada.reflect.asm.ClassNameIndex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -107,6 +109,19 @@ public class FuzzyMatcher implements CompletionMatcher {
     return this.matchString(name);
   }
 
+  @Override
+  public Stream<String> candidates(ClassNameIndex index) {
+    if (this.query.isEmpty()) {
+      return index.names().filter(this::matchString);
+    }
+    // the score requires the first character to match, the rest can't be narrowed by the index
+    Stream<String> names = index.prefixed(this.query.substring(0, 1)).parallel();
+    if (this.advanced) {
+      names = Stream.concat(names, index.containing(this.query)).distinct();
+    }
+    return names.filter(this::matchString);
+  }
+
   @Override
   public Predicate<CandidateUnit> filter() {
     return this::match;
@@ -6,8 +6,10 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 import meghanada.analyze.Source;
 import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.asm.ClassNameIndex;
 import meghanada.utils.ClassNameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -55,6 +57,11 @@ public class PrefixMatcher implements CompletionMatcher {
     return s.startsWith(this.query);
   }
 
+  @Override
+  public Stream<String> candidates(ClassNameIndex index) {
+    return index.prefixed(this.query);
+  }
+
   @Override
   public Predicate<CandidateUnit> filter() {
     return this::match;
@@ -55,9 +55,11 @@ public class Config {
   private List<String> java12JavacArgs = new ArrayList<>(8);
   private List<String> javaExecArgs = new ArrayList<>(8);
   private boolean buildWithDependency = true;
+  private boolean readinessInResponse;
 
   private Config() {
     this.c = ConfigFactory.load();
+    this.readinessInResponse = c.getBoolean("readiness-in-response");
     final String logLevel = c.getString("log-level");
     Level level = Level.toLevel(logLevel);
     final String lowerLevel = logLevel.toLowerCase();
@@ -373,6 +375,10 @@ public class Config {
     return c.getInt("source-cache-size");
   }
 
+  public int getCacheHeapRatio() {
+    return c.getInt("cache-heap-ratio");
+  }
+
   public int getDebuggerPort() {
     return c.getInt("debugger-port");
   }
@@ -461,6 +467,26 @@ public class Config {
     return c.getBoolean("cache-in-project");
   }
 
+  public boolean useSharedJarCache() {
+    return c.getBoolean("shared-jar-cache");
+  }
+
+  public boolean useJDKSnapshot() {
+    return c.getBoolean("jdk-snapshot");
+  }
+
+  public boolean useWarmState() {
+    return c.getBoolean("warm-state");
+  }
+
+  public boolean isReadinessInResponse() {
+    return readinessInResponse;
+  }
+
+  public void setReadinessInResponse(boolean readinessInResponse) {
+    this.readinessInResponse = readinessInResponse;
+  }
+
   public boolean useFullTextSearch() {
     return c.getBoolean("full-text-search");
   }
@@ -469,6 +495,38 @@ public class Config {
     return c.getBoolean("idle-cache");
   }
 
+  public boolean useMemoryGovernor() {
+    return c.getBoolean("memory-governor");
+  }
+
+  public String getIndexBackend() {
+    return c.getString("index-backend");
+  }
+
+  public int getSearchMaxHits() {
+    return c.getInt("search-max-hits");
+  }
+
+  public long getSearchTimeout() {
+    return c.getLong("search-timeout");
+  }
+
+  public boolean useIndexNgram() {
+    return c.getBoolean("index-ngram");
+  }
+
+  public double getIndexRamBufferSize() {
+    return c.getDouble("index-ram-buffer-size");
+  }
+
+  public int getIndexThreads() {
+    int threads = c.getInt("index-threads");
+    if (threads <= 0) {
+      return Runtime.getRuntime().availableProcessors();
+    }
+    return threads;
+  }
+
   public List<String> searchStaticMethodClasses() {
     final String classes = c.getString("search-static-method-classes");
     return commaSplitter.trimResults().omitEmptyStrings().splitToList(classes);
@@ -0,0 +1,73 @@
+package meghanada.index;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.FlattenGraphFilter;
+import org.apache.lucene.analysis.miscellaneous.WordDelimiterGraphFilter;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.apache.lucene.analysis.util.CharTokenizer;
+
+/**
+ * Analyzer for source code.
+ *
+ * <p>Identifiers and dotted names are indexed as a whole and split at camelCase humps, underscores,
+ * dots and digits, so {@code getDocumentIndices} is found by {@code getDocumentIndices}, {@code
+ * document} and {@code indices}. Fields with the n-gram suffix also index the edge n-grams of every
+ * word, which turns a prefix query into a term lookup. Query text is only lowercased, the parts are
+ * already in the index.
+ */
+final class CodeAnalyzer extends Analyzer {
+
+  static final int MIN_GRAM = 2;
+  static final int MAX_GRAM = 20;
+
+  private static final int FLAGS =
+      WordDelimiterGraphFilter.GENERATE_WORD_PARTS
+          | WordDelimiterGraphFilter.GENERATE_NUMBER_PARTS
+          | WordDelimiterGraphFilter.SPLIT_ON_CASE_CHANGE
+          | WordDelimiterGraphFilter.SPLIT_ON_NUMERICS
+          | WordDelimiterGraphFilter.PRESERVE_ORIGINAL;
+
+  private final boolean query;
+
+  private CodeAnalyzer(boolean query) {
+    // the n-gram fields have their own components
+    super(PER_FIELD_REUSE_STRATEGY);
+    this.query = query;
+  }
+
+  static CodeAnalyzer forIndex() {
+    return new CodeAnalyzer(false);
+  }
+
+  static CodeAnalyzer forQuery() {
+    return new CodeAnalyzer(true);
+  }
+
+  static boolean isWordChar(int c) {
+    return c == '.' || (Character.isJavaIdentifierPart(c) && !Character.isIdentifierIgnorable(c));
+  }
+
+  @Override
+  protected TokenStreamComponents createComponents(String fieldName) {
+    Tokenizer tokenizer = CharTokenizer.fromTokenCharPredicate(CodeAnalyzer::isWordChar);
+    TokenStream stream = tokenizer;
+    if (!this.query) {
+      stream = new WordDelimiterGraphFilter(stream, FLAGS, null);
+      // the index can't store a token graph
+      stream = new FlattenGraphFilter(stream);
+    }
+    stream = new LowerCaseFilter(stream);
+    if (!this.query && fieldName.endsWith(SearchIndexable.NGRAM_SUFFIX)) {
+      stream = new EdgeNGramTokenFilter(stream, MIN_GRAM, MAX_GRAM, true);
+    }
+    return new TokenStreamComponents(tokenizer, stream);
+  }
+
+  @Override
+  protected TokenStream normalize(String fieldName, TokenStream in) {
+    return new LowerCaseFilter(in);
+  }
+}
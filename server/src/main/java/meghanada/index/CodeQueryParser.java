@@ -0,0 +1,80 @@
+package meghanada.index;
+
+import static java.util.Objects.nonNull;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * Query parser for the {@link CodeAnalyzer} index.
+ *
+ * <p>The word parts of identifiers are indexed, so {@code *Searcher} looks up the part {@code
+ * searcher} and {@code *Search*} the parts starting with {@code search}, instead of enumerating the
+ * whole term dictionary. A prefix becomes a term lookup when the field has an n-gram field. A part
+ * of a word, {@code *eader}, is only found by scanning, the caller parses the query again without
+ * word parts when the lookup finds nothing. {@link #isScan()} tells the caller to bound the time.
+ */
+final class CodeQueryParser extends QueryParser {
+
+  private static final Pattern LEADING_WILDCARD_WORD = Pattern.compile("^\\*+([\\w$]+)(\\*?)$");
+
+  private final FieldInfos fieldInfos;
+  private final boolean wordParts;
+  private boolean scan;
+  private boolean rewritten;
+
+  CodeQueryParser(String field, Analyzer analyzer, FieldInfos fieldInfos, boolean wordParts) {
+    super(field, analyzer);
+    this.fieldInfos = fieldInfos;
+    this.wordParts = wordParts;
+    this.setAllowLeadingWildcard(true);
+    this.setDefaultOperator(QueryParser.Operator.OR);
+  }
+
+  boolean isScan() {
+    return this.scan;
+  }
+
+  /** True when a leading wildcard was replaced by a lookup of word parts. */
+  boolean isRewritten() {
+    return this.rewritten;
+  }
+
+  @Override
+  protected Query getPrefixQuery(String field, String termStr) throws ParseException {
+    String ngramField = field + SearchIndexable.NGRAM_SUFFIX;
+    int len = termStr.length();
+    if (len >= CodeAnalyzer.MIN_GRAM
+        && len <= CodeAnalyzer.MAX_GRAM
+        && nonNull(this.fieldInfos.fieldInfo(ngramField))
+        && termStr.codePoints().allMatch(CodeAnalyzer::isWordChar)) {
+      return new TermQuery(new Term(ngramField, this.getAnalyzer().normalize(ngramField, termStr)));
+    }
+    return super.getPrefixQuery(field, termStr);
+  }
+
+  @Override
+  protected Query getWildcardQuery(String field, String termStr) throws ParseException {
+    Matcher m = LEADING_WILDCARD_WORD.matcher(termStr);
+    if (this.wordParts && m.matches()) {
+      this.rewritten = true;
+      String part = m.group(1);
+      if (m.group(2).isEmpty()) {
+        return new TermQuery(new Term(field, this.getAnalyzer().normalize(field, part)));
+      }
+      return this.getPrefixQuery(field, part);
+    }
+    // *:* is all documents
+    if (!field.equals("*") && (termStr.startsWith("*") || termStr.startsWith("?"))) {
+      this.scan = true;
+    }
+    return super.getWildcardQuery(field, termStr);
+  }
+}
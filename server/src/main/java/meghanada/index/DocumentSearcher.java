@@ -1,47 +1,85 @@
 package meghanada.index;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import jetbrains.exodus.env.ContextualEnvironment;
-import jetbrains.exodus.env.Environment;
 import jetbrains.exodus.env.StoreConfig;
 import jetbrains.exodus.lucene.ExodusDirectory;
 import jetbrains.exodus.lucene.codecs.Lucene70CodecWithNoFieldCompression;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.QueryTimeoutImpl;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SerialMergeScheduler;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TimeLimitingCollector;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
 
 public class DocumentSearcher implements AutoCloseable {
 
   private static final Logger log = LogManager.getLogger(DocumentSearcher.class);
+  private static final long COMMIT_INTERVAL = TimeUnit.SECONDS.toMillis(30);
 
-  private final Environment environment;
+  // null for the directory backend
+  private final ContextualEnvironment environment;
   private final Directory directory;
-  private final Analyzer analyzer;
-  private IndexWriter indexWriter;
-  private IndexSearcher indexSearcher;
+  private final Analyzer indexAnalyzer = CodeAnalyzer.forIndex();
+  private final Analyzer queryAnalyzer = CodeAnalyzer.forQuery();
+  // opened once, new documents are visible to searches after maybeRefresh
+  private volatile IndexWriter indexWriter;
+  // read by searches without a lock
+  private volatile SearcherManager searcherManager;
+  // guards opening and closing the writer, searches never wait for a write holding the monitor
+  private final Object writerLock = new Object();
+  private long lastCommit;
+  // bumped whenever searches may see other documents
+  private final AtomicLong generation = new AtomicLong();
+  // time budget of queries with a leading wildcard
+  private long searchTimeout = TimeUnit.SECONDS.toMillis(1);
+  private double ramBufferSize = IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB;
 
   private DocumentSearcher(final ContextualEnvironment environment, final boolean withPrefixing)
       throws IOException {
@@ -51,151 +89,385 @@ public class DocumentSearcher implements AutoCloseable {
             ? StoreConfig.WITHOUT_DUPLICATES_WITH_PREFIXING
             : StoreConfig.WITHOUT_DUPLICATES;
     this.directory = new ExodusDirectory(environment, config);
-    this.analyzer = createAnalyzer();
   }
 
   DocumentSearcher(final ContextualEnvironment environment) throws IOException {
     this(environment, false);
   }
 
-  private static Analyzer createAnalyzer() {
-    return new StandardAnalyzer();
+  /** Index in a plain directory, files are memory mapped and not read through transactions. */
+  DocumentSearcher(final File indexDir) throws IOException {
+    this.environment = null;
+    this.directory = new MMapDirectory(indexDir.toPath());
   }
 
-  private static IndexWriterConfig createIndexConfig(Analyzer analyzer) {
-    IndexWriterConfig config = new IndexWriterConfig(analyzer);
-    config.setMergeScheduler(new ConcurrentMergeScheduler());
-    config.setCodec(new Lucene70CodecWithNoFieldCompression());
+  void setSearchTimeout(final long millis) {
+    this.searchTimeout = millis;
+  }
+
+  long getGeneration() {
+    return this.generation.get();
+  }
+
+  // takes effect when the writer is opened
+  void setRamBufferSize(final double mb) {
+    this.ramBufferSize = mb;
+  }
+
+  /** The writer accepts documents from many threads, the Xodus directory is bound to one. */
+  boolean isConcurrentWritable() {
+    return isNull(this.environment);
+  }
+
+  private IndexWriterConfig createIndexConfig() {
+    IndexWriterConfig config = new IndexWriterConfig(this.indexAnalyzer);
+    config.setRAMBufferSizeMB(this.ramBufferSize);
+    if (isNull(this.environment)) {
+      config.setMergeScheduler(new ConcurrentMergeScheduler());
+    } else {
+      // merge in the thread of the transaction, the directory is only accessible inside it
+      config.setMergeScheduler(new SerialMergeScheduler());
+      config.setCodec(new Lucene70CodecWithNoFieldCompression());
+    }
     return config;
   }
 
-  private synchronized IndexWriter createIndexWriter(
-      Directory directory, IndexWriterConfig indexConfig) throws IOException {
-    if (nonNull(this.indexWriter)) {
-      return this.indexWriter;
+  // must be called in a write transaction
+  private IndexWriter openIndexWriter() throws IOException {
+    IndexWriter opened = this.indexWriter;
+    if (nonNull(opened)) {
+      return opened;
+    }
+    synchronized (this.writerLock) {
+      if (nonNull(this.indexWriter)) {
+        return this.indexWriter;
+      }
+      return this.createIndexWriter();
     }
-    this.indexWriter = new IndexWriter(directory, indexConfig);
-    return indexWriter;
   }
 
-  private static IndexReader createIndexReader(Directory directory) throws IOException {
-    return DirectoryReader.open(directory);
+  private IndexWriter createIndexWriter() throws IOException {
+    IndexWriter writer;
+    try {
+      writer = new IndexWriter(this.directory, this.createIndexConfig());
+    } catch (CorruptIndexException | IndexFormatTooOldException e) {
+      // the index is rebuilt by the next analyze
+      log.warn("recreate index {} {}", this.directory, e.getMessage());
+      for (String name : this.directory.listAll()) {
+        this.directory.deleteFile(name);
+      }
+      IndexWriterConfig config = this.createIndexConfig();
+      config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+      writer = new IndexWriter(this.directory, config);
+    }
+    this.searcherManager = new SearcherManager(writer, null);
+    this.lastCommit = System.currentTimeMillis();
+    this.indexWriter = writer;
+    return writer;
+  }
+
+  // in a write transaction of the Xodus backend
+  private void write(final IndexAction action) {
+    if (isNull(this.environment)) {
+      try {
+        action.run();
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      return;
+    }
+    this.environment.executeInTransaction(
+        txn -> {
+          try {
+            action.run();
+          } catch (IOException ex) {
+            txn.abort();
+            throw new UncheckedIOException(ex);
+          }
+        });
   }
 
-  private synchronized IndexSearcher createIndexSearcher(IndexReader indexReader) {
-    if (nonNull(this.indexSearcher)) {
-      return this.indexSearcher;
+  // in a read-only transaction of the Xodus backend
+  private <T> T read(final Supplier<T> fn) {
+    if (isNull(this.environment)) {
+      return fn.get();
     }
-    this.indexSearcher = new IndexSearcher(indexReader);
-    return this.indexSearcher;
+    return this.environment.computeInReadonlyTransaction(txn -> fn.get());
   }
 
   private synchronized void closeIndexWriter() {
-    if (nonNull(this.indexWriter)) {
+    synchronized (this.writerLock) {
+      if (isNull(this.indexWriter)) {
+        return;
+      }
       try {
-        this.indexWriter.close();
+        this.write(
+            () -> {
+              this.searcherManager.close();
+              // commits
+              this.indexWriter.close();
+            });
+      } catch (UncheckedIOException e) {
+        log.catching(e);
+      }
+      this.searcherManager = null;
+      this.indexWriter = null;
+    }
+  }
+
+  // called by a write holding the monitor
+  private void rollbackIndexWriter() {
+    synchronized (this.writerLock) {
+      try {
+        this.searcherManager.close();
+        this.indexWriter.rollback();
       } catch (IOException e) {
         log.catching(e);
+      } finally {
+        this.searcherManager = null;
+        this.indexWriter = null;
+        // after the close, results read from the rolled back reader are stale
+        this.generation.incrementAndGet();
       }
     }
-    this.indexWriter = null;
   }
 
   void addDocuments(final Collection<Document> docs) throws IOException {
     indexWriter.addDocuments(docs);
   }
 
+  // atomically replaces the documents of the term, safe from any thread
+  void updateDocuments(final String fld, final String idValue, final Collection<Document> docs)
+      throws IOException {
+    indexWriter.updateDocuments(new Term(fld, idValue), docs);
+  }
+
   void deleteDocuments(final String fld, final String idValue) throws IOException {
     indexWriter.deleteDocuments(new Term(fld, idValue));
   }
 
-  private Query getQuery(final String field, final String query) throws ParseException {
-    final QueryParser queryParser = new QueryParser(field, analyzer);
-    queryParser.setAllowLeadingWildcard(true);
-    queryParser.setDefaultOperator(QueryParser.Operator.OR);
-    return queryParser.parse(query);
+  void updateLineNumber(final String fld, final String idValue, final long line)
+      throws IOException {
+    indexWriter.updateNumericDocValue(new Term(fld, idValue), SearchIndexable.LINE_NUMBER, line);
   }
 
-  synchronized List<Document> search(final String field, final String query, final int cnt)
+  // doc values of the hit are added like stored fields, line numbers are updated in place and
+  // member rows are read without the stored fields
+  private static Document loadDocument(
+      final IndexSearcher indexSearcher, final int docId, @Nullable final Set<String> fieldsToLoad)
+      throws IOException {
+    final List<LeafReaderContext> leaves = indexSearcher.getIndexReader().leaves();
+    final LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+    final LeafReader reader = leaf.reader();
+    final int target = docId - leaf.docBase;
+    final Set<String> stored = isNull(fieldsToLoad) ? null : new HashSet<>(fieldsToLoad);
+    final List<IndexableField> values = new ArrayList<>(2);
+    for (final FieldInfo info : reader.getFieldInfos()) {
+      if (info.getDocValuesType() == DocValuesType.NONE
+          || (nonNull(fieldsToLoad) && !fieldsToLoad.contains(info.name))) {
+        continue;
+      }
+      if (nonNull(stored)) {
+        boolean b = stored.remove(info.name);
+      }
+      if (info.getDocValuesType() == DocValuesType.NUMERIC) {
+        final NumericDocValues numeric = reader.getNumericDocValues(info.name);
+        if (numeric.advanceExact(target)) {
+          values.add(new StoredField(info.name, Long.toString(numeric.longValue())));
+        }
+      } else if (info.getDocValuesType() == DocValuesType.BINARY) {
+        final BinaryDocValues binary = reader.getBinaryDocValues(info.name);
+        if (binary.advanceExact(target)) {
+          values.add(new StoredField(info.name, BytesRef.deepCopyOf(binary.binaryValue())));
+        }
+      }
+    }
+    final Document doc;
+    if (isNull(stored)) {
+      doc = indexSearcher.doc(docId);
+    } else if (stored.isEmpty()) {
+      doc = new Document();
+    } else {
+      doc = indexSearcher.doc(docId, stored);
+    }
+    values.forEach(doc::add);
+    return doc;
+  }
+
+  <T> List<T> search(
+      final IndexSearcher indexSearcher,
+      final String field,
+      final String query,
+      final int cnt,
+      final DocumentConverter<T> converter)
+      throws IOException, ParseException {
+    return this.searchAfter(indexSearcher, field, query, null, cnt, null, converter).items;
+  }
+
+  /**
+   * Top hits after the given hit in score order.
+   *
+   * <p>Only the given stored fields and doc values of the hits are loaded, all when null. Queries
+   * that still have to enumerate the whole term dictionary return the hits found within the time
+   * budget.
+   */
+  <T> SearchCursor.Page<T> searchAfter(
+      final IndexSearcher indexSearcher,
+      final String field,
+      final String query,
+      @Nullable final ScoreDoc after,
+      final int cnt,
+      @Nullable final Set<String> fieldsToLoad,
+      final DocumentConverter<T> converter)
       throws IOException, ParseException {
-    final TopDocs results = indexSearcher.search(getQuery(field, query), cnt);
-    return Arrays.stream(results.scoreDocs)
-        .map(
-            doc -> {
-              try {
-                return indexSearcher.doc(doc.doc);
-              } catch (IOException ex) {
-                throw new UncheckedIOException(ex);
-              }
-            })
-        .filter(r -> nonNull(r))
-        .collect(Collectors.toList());
-  }
-
-  synchronized <T> List<T> search(
-      final String field, final String query, final int cnt, final DocumentConverter<T> converter)
+    final FieldInfos fieldInfos = MultiFields.getMergedFieldInfos(indexSearcher.getIndexReader());
+    CodeQueryParser queryParser = new CodeQueryParser(field, this.queryAnalyzer, fieldInfos, true);
+    TopScoreDocCollector collector = this.collect(indexSearcher, queryParser, query, after, cnt);
+    if (queryParser.isRewritten() && collector.getTotalHits() == 0) {
+      // the words were not found as a whole, look for them inside words
+      queryParser = new CodeQueryParser(field, this.queryAnalyzer, fieldInfos, false);
+      collector = this.collect(indexSearcher, queryParser, query, after, cnt);
+    }
+    final ScoreDoc[] scoreDocs = collector.topDocs().scoreDocs;
+    final List<T> items = new ArrayList<>(scoreDocs.length);
+    for (final ScoreDoc scoreDoc : scoreDocs) {
+      final Document doc = loadDocument(indexSearcher, scoreDoc.doc, fieldsToLoad);
+      converter.convert(doc).ifPresent(items::add);
+    }
+    final ScoreDoc last = scoreDocs.length == 0 ? null : scoreDocs[scoreDocs.length - 1];
+    return new SearchCursor.Page<>(items, scoreDocs.length, last);
+  }
+
+  private TopScoreDocCollector collect(
+      final IndexSearcher indexSearcher,
+      final CodeQueryParser queryParser,
+      final String query,
+      @Nullable final ScoreDoc after,
+      final int cnt)
       throws IOException, ParseException {
-    final TopDocs results = indexSearcher.search(getQuery(field, query), cnt);
-    return Arrays.stream(results.scoreDocs)
-        .map(
-            doc -> {
-              try {
-                return converter.convert(indexSearcher.doc(doc.doc));
-              } catch (IOException ex) {
-                throw new UncheckedIOException(ex);
-              }
-            })
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .collect(Collectors.toList());
-  }
-
-  @SuppressWarnings("CheckReturnValue")
+    final Query q = queryParser.parse(query);
+    final TopScoreDocCollector collector = TopScoreDocCollector.create(cnt, after);
+    if (queryParser.isScan()) {
+      // the deadline covers the term enumeration of the rewrite and the collection
+      final DirectoryReader reader =
+          ExitableDirectoryReader.wrap(
+              (DirectoryReader) indexSearcher.getIndexReader(),
+              new QueryTimeoutImpl(this.searchTimeout));
+      final IndexSearcher limitedSearcher = new IndexSearcher(reader);
+      final Collector limited =
+          new TimeLimitingCollector(
+              collector, TimeLimitingCollector.getGlobalCounter(), this.searchTimeout);
+      try {
+        limitedSearcher.search(q, limited);
+      } catch (ExitableDirectoryReader.ExitingReaderException
+          | TimeLimitingCollector.TimeExceededException e) {
+        log.warn("search timed out query:{} {}ms", query, this.searchTimeout);
+      }
+    } else {
+      indexSearcher.search(q, collector);
+    }
+    return collector;
+  }
+
   synchronized void executeInTransaction(final Runnable runnable) {
-    this.environment.executeInTransaction(
-        txn -> {
+    this.write(
+        () -> {
           try {
-            IndexWriter indexWriter =
-                this.createIndexWriter(this.directory, createIndexConfig(this.analyzer));
+            IndexWriter indexWriter = this.openIndexWriter();
             runnable.run();
+            // flush to the directory in this transaction and reopen the reader
+            this.searcherManager.maybeRefresh();
+            this.generation.incrementAndGet();
+            long now = System.currentTimeMillis();
+            if (now - this.lastCommit >= COMMIT_INTERVAL) {
+              indexWriter.commit();
+              this.lastCommit = now;
+            }
           } catch (IOException ex) {
-            txn.abort();
-            throw new UncheckedIOException(ex);
-          } finally {
-            this.closeIndexWriter();
+            // the writer may hold changes of the aborted transaction
+            this.rollbackIndexWriter();
+            throw ex;
           }
         });
   }
 
-  @SuppressWarnings("CheckReturnValue")
-  synchronized <T> T computeInTransaction(final Supplier<T> fn) {
-    return this.environment.computeInTransaction(
-        txn -> {
+  /**
+   * Runs a chunk of a bulk load in one write transaction and commits once at the end. Nothing of
+   * the chunk is visible to searches until it's done, a failure rolls back the whole chunk.
+   */
+  synchronized void executeBulk(final IndexAction action) {
+    this.write(
+        () -> {
           try {
-            IndexWriter indexWriter =
-                this.createIndexWriter(this.directory, createIndexConfig(this.analyzer));
-            IndexReader indexReader = DocumentSearcher.createIndexReader(this.directory);
-            IndexSearcher indexSearcher = this.createIndexSearcher(indexReader);
-            return fn.get();
+            IndexWriter indexWriter = this.openIndexWriter();
+            action.run();
+            indexWriter.commit();
+            this.lastCommit = System.currentTimeMillis();
+            this.searcherManager.maybeRefresh();
+            this.generation.incrementAndGet();
           } catch (IOException ex) {
-            txn.abort();
-            throw new UncheckedIOException(ex);
-          } finally {
-            this.closeIndexWriter();
+            this.rollbackIndexWriter();
+            throw ex;
           }
         });
   }
 
-  @SuppressWarnings("CheckReturnValue")
-  synchronized <T> T searchInTransaction(final Supplier<T> fn) {
-    return this.environment.computeInReadonlyTransaction(
-        txn -> {
+  <T> T searchInTransaction(final Function<IndexSearcher, T> fn) {
+    try {
+      return this.search(this.acquireManager(), fn);
+    } catch (AlreadyClosedException e) {
+      // closed by a rollback after it was read, the next one is opened by acquireManager
+      log.debug("retry search {}", e.getMessage());
+      return this.search(this.acquireManager(), fn);
+    }
+  }
+
+  /**
+   * Acquires a searcher of the current reader for several reads, like the pages of a cursor whose
+   * search-after hits must refer to one reader. It must be released.
+   */
+  HeldSearcher holdSearcher() {
+    try {
+      return this.hold(this.acquireManager());
+    } catch (AlreadyClosedException e) {
+      log.debug("retry hold {}", e.getMessage());
+      return this.hold(this.acquireManager());
+    }
+  }
+
+  private HeldSearcher hold(final SearcherManager manager) {
+    try {
+      return new HeldSearcher(manager, manager.acquire());
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  // doesn't take the monitor of the writes, only the writer lock when nothing is open yet
+  private SearcherManager acquireManager() {
+    SearcherManager manager = this.searcherManager;
+    if (nonNull(manager)) {
+      return manager;
+    }
+    synchronized (this.writerLock) {
+      if (isNull(this.searcherManager)) {
+        this.write(this::openIndexWriter);
+      }
+      return this.searcherManager;
+    }
+  }
+
+  private <T> T search(final SearcherManager manager, final Function<IndexSearcher, T> fn) {
+    return this.read(
+        () -> {
           try {
-            final IndexReader indexReader = DocumentSearcher.createIndexReader(this.directory);
-            IndexSearcher searcher = this.createIndexSearcher(indexReader);
-            return fn.get();
+            final IndexSearcher indexSearcher = manager.acquire();
+            try {
+              return fn.apply(indexSearcher);
+            } finally {
+              manager.release(indexSearcher);
+            }
           } catch (IOException ex) {
-            txn.abort();
             throw new UncheckedIOException(ex);
           }
         });
@@ -204,10 +476,44 @@ public class DocumentSearcher implements AutoCloseable {
   @Override
   public void close() {
     try {
+      // the last commit
       this.closeIndexWriter();
       this.directory.close();
     } catch (Throwable e) {
       log.catching(e);
     }
   }
+
+  final class HeldSearcher {
+
+    private final SearcherManager manager;
+    private final IndexSearcher indexSearcher;
+    private boolean released;
+
+    private HeldSearcher(final SearcherManager manager, final IndexSearcher indexSearcher) {
+      this.manager = manager;
+      this.indexSearcher = indexSearcher;
+    }
+
+    <T> T search(final Function<IndexSearcher, T> fn) {
+      return read(() -> fn.apply(this.indexSearcher));
+    }
+
+    synchronized void release() {
+      if (this.released) {
+        return;
+      }
+      this.released = true;
+      try {
+        this.manager.release(this.indexSearcher);
+      } catch (IOException e) {
+        log.catching(e);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  interface IndexAction {
+    void run() throws IOException;
+  }
 }
@@ -4,44 +4,85 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
 import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.eventbus.Subscribe;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import jetbrains.exodus.env.ContextualEnvironment;
 import jetbrains.exodus.env.Environment;
 import jetbrains.exodus.env.Environments;
-import meghanada.reflect.MemberDescriptor;
+import meghanada.config.Config;
 import meghanada.store.ProjectDatabase;
-import meghanada.store.Serializer;
 import meghanada.system.Executor;
 import meghanada.telemetry.TelemetryUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexNotFoundException;
-import org.apache.lucene.util.BytesRef;
 
 public class IndexDatabase {
 
   private static final Logger log = LogManager.getLogger(IndexDatabase.class);
   private static final String QUOTE = "\"";
   private static IndexDatabase indexDatabase;
-  public final int maxHits = Integer.MAX_VALUE;
-  private DocumentSearcher searcher;
+  private static final int PAGE_SIZE = 128;
+  private static final int QUERY_CACHE_SIZE = 256;
+  private static final Pattern NAME = Pattern.compile("[\\w$]+");
+  private static final Pattern PREFIX_QUERY = Pattern.compile("[\\w$]+\\*");
+  public final int maxHits;
+  // read by searches without a lock
+  private volatile DocumentSearcher searcher;
+  // guards opening and closing, the monitor is held by writes
+  private final Object openLock = new Object();
+  private final LineIndexer lineIndexer = new LineIndexer();
+  private final Analyzer analyzer = CodeAnalyzer.forIndex();
+  // member results of the index generation
+  private final Cache<String, CachedMembers> queryCache =
+      CacheBuilder.newBuilder().maximumSize(QUERY_CACHE_SIZE).build();
+  // documents per commit of a bulk load
+  private int bulkChunkDocs = 10000;
   private Environment environment = null;
   private final File baseLocation = null;
 
   private IndexDatabase() {
+    this.maxHits = Config.load().getSearchMaxHits();
     Executor.getInstance().getEventBus().register(this);
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  try {
+                    this.close();
+                  } catch (Throwable t) {
+                    log.catching(t);
+                  }
+                }));
   }
 
   public static synchronized IndexDatabase getInstance() {
@@ -52,6 +93,10 @@ public class IndexDatabase {
     return indexDatabase;
   }
 
+  void setBulkChunkDocs(final int docs) {
+    this.bulkChunkDocs = docs;
+  }
+
   public static String doubleQuote(@Nullable final String s) {
     if (isNull(s)) {
       return QUOTE + QUOTE;
@@ -59,6 +104,14 @@ public class IndexDatabase {
     return QUOTE + s + QUOTE;
   }
 
+  /** The prefix query of a name, or empty when it isn't a plain name. */
+  public static String prefix(@Nullable final String s) {
+    if (isNull(s) || !NAME.matcher(s).matches()) {
+      return "";
+    }
+    return s + '*';
+  }
+
   public static String paren(@Nullable final String s) {
     if (isNull(s)) {
       return s;
@@ -66,70 +119,202 @@ public class IndexDatabase {
     return "(" + s + ")";
   }
 
-  private synchronized void open() {
-    final File loc = ProjectDatabase.getInstance().getBaseLocation();
-    if (nonNull(this.baseLocation) && !this.baseLocation.equals(loc)) {
-      // change database
-      if (nonNull(this.searcher)) {
-        this.searcher.close();
-        this.searcher = null;
+  private DocumentSearcher open() {
+    final DocumentSearcher opened = this.searcher;
+    if (nonNull(opened) && isNull(this.baseLocation)) {
+      return opened;
+    }
+    synchronized (this.openLock) {
+      final File loc = ProjectDatabase.getInstance().getBaseLocation();
+      if (nonNull(this.baseLocation) && !this.baseLocation.equals(loc)) {
+        // change database
+        this.closeSearcher();
       }
-      if (nonNull(this.environment)) {
-        this.environment.close();
-        this.environment = null;
+      if (isNull(this.searcher)) {
+        Config config = Config.load();
+        final DocumentSearcher searcher;
+        try {
+          if (config.getIndexBackend().equals("mmap")) {
+            File indexDir = new File(loc, "lucene");
+            log.debug("open index directory {}", indexDir);
+            searcher = new DocumentSearcher(indexDir);
+          } else {
+            File indexDir = new File(loc, "index");
+            Environment env = Environments.newContextualInstance(indexDir);
+            String location = env.getLocation();
+            log.debug("open index database {}", location);
+            searcher = new DocumentSearcher((ContextualEnvironment) env);
+            this.environment = env;
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        searcher.setSearchTimeout(config.getSearchTimeout());
+        searcher.setRamBufferSize(config.getIndexRamBufferSize());
+        // published after it's set up
+        this.searcher = searcher;
       }
+      return this.searcher;
     }
-    if (isNull(this.environment) || isNull(this.searcher)) {
-      File indexDir = new File(loc, "index");
-      Environment env = Environments.newContextualInstance(indexDir);
-      String location = env.getLocation();
-      log.debug("open index database {}", location);
-      try {
-        this.searcher = new DocumentSearcher((ContextualEnvironment) env);
-        this.environment = env;
-      } catch (IOException e) {
-        throw new UncheckedIOException(e);
-      }
+  }
+
+  // waits for a running write
+  private synchronized void close() {
+    synchronized (this.openLock) {
+      this.closeSearcher();
+    }
+  }
+
+  private void closeSearcher() {
+    this.lineIndexer.invalidateAll();
+    this.queryCache.invalidateAll();
+    if (nonNull(this.searcher)) {
+      this.searcher.close();
+      this.searcher = null;
+    }
+    if (nonNull(this.environment)) {
+      this.environment.close();
+      this.environment = null;
     }
   }
 
   synchronized void indexObject(final SearchIndexable s) {
-    this.open();
-    this.searcher.executeInTransaction(
-        () -> {
-          try {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            String id = s.getIndexGroupId();
-            List<Document> docs = s.getDocumentIndices();
-            this.searcher.deleteDocuments(SearchIndexable.GROUP_ID, id);
-            this.searcher.addDocuments(docs);
-            log.debug("indexed :{} elapsed:{}", id, stopwatch.stop());
-          } catch (Throwable e) {
-            log.catching(e);
-          }
-        });
+    this.indexObjects(Collections.singletonList(s));
   }
 
   synchronized void indexObjects(final List<SearchIndexable> list) {
-    this.open();
-    this.searcher.executeInTransaction(
-        () -> {
-          try {
+    final DocumentSearcher searcher = this.open();
+    try {
+      searcher.executeInTransaction(
+          () -> {
             for (final SearchIndexable s : list) {
               if (nonNull(s) && nonNull(s.getIndexGroupId())) {
-                String id = s.getIndexGroupId();
-                List<Document> docs = s.getDocumentIndices();
-                this.searcher.deleteDocuments(SearchIndexable.GROUP_ID, id);
-                this.searcher.addDocuments(docs);
-                log.debug("indexed :{}", id);
+                this.index(searcher, s);
               }
             }
-          } catch (Throwable e) {
-            log.catching(e);
+          });
+    } catch (UncheckedIOException e) {
+      // rolled back, the hashes don't match the index anymore
+      this.lineIndexer.invalidateAll();
+      throw e;
+    }
+  }
+
+  /**
+   * Indexes many groups, committing every {@code bulkChunkDocs} documents. The documents are
+   * created on a pool without holding the monitor, each chunk is written under it and is searchable
+   * after its commit, so other writes and searches run between the chunks. A failure rolls back the
+   * current chunk and stops the load.
+   */
+  void bulkIndex(final List<SearchIndexable> list) {
+    final DocumentSearcher searcher = this.open();
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    long count = 0;
+    int chunks = 0;
+    final ExecutorService pool = Executors.newFixedThreadPool(Config.load().getIndexThreads());
+    try {
+      final CompletionService<GroupDocuments> service = new ExecutorCompletionService<>(pool);
+      int tasks = 0;
+      for (final SearchIndexable s : list) {
+        if (isNull(s) || isNull(s.getIndexGroupId())) {
+          continue;
+        }
+        final String id = s.getIndexGroupId();
+        this.lineIndexer.invalidate(id);
+        service.submit(() -> new GroupDocuments(id, s.getDocumentIndices()));
+        tasks++;
+      }
+      List<GroupDocuments> chunk = new ArrayList<>(16);
+      int docs = 0;
+      for (int i = 0; i < tasks; i++) {
+        final GroupDocuments group = take(service);
+        chunk.add(group);
+        docs += group.docs.size();
+        if (docs >= this.bulkChunkDocs || i == tasks - 1) {
+          this.writeChunk(searcher, chunk);
+          count += docs;
+          chunks++;
+          chunk = new ArrayList<>(16);
+          docs = 0;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      pool.shutdownNow();
+    }
+    final long elapsed = Math.max(stopwatch.stop().elapsed(TimeUnit.MILLISECONDS), 1);
+    log.info(
+        "bulk indexed {} groups {} docs {} commits elapsed:{} ({} docs/sec)",
+        list.size(),
+        count,
+        chunks,
+        stopwatch,
+        count * 1000 / elapsed);
+  }
+
+  // the shared writer takes the documents from many threads, the Xodus backend from one
+  private synchronized void writeChunk(
+      final DocumentSearcher searcher, final List<GroupDocuments> chunk) {
+    searcher.executeBulk(
+        () -> {
+          if (!searcher.isConcurrentWritable()) {
+            for (final GroupDocuments group : chunk) {
+              searcher.updateDocuments(SearchIndexable.GROUP_ID, group.id, group.docs);
+            }
+            return;
+          }
+          try {
+            chunk
+                .parallelStream()
+                .forEach(
+                    group -> {
+                      try {
+                        searcher.updateDocuments(SearchIndexable.GROUP_ID, group.id, group.docs);
+                      } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                      }
+                    });
+          } catch (UncheckedIOException e) {
+            // rolled back by executeBulk
+            throw e.getCause();
           }
         });
   }
 
+  private static GroupDocuments take(final CompletionService<GroupDocuments> service)
+      throws IOException {
+    try {
+      return service.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("bulk index interrupted");
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private void index(final DocumentSearcher searcher, final SearchIndexable s) {
+    final String id = s.getIndexGroupId();
+    try {
+      final Stopwatch stopwatch = Stopwatch.createStarted();
+      final List<Document> docs = s.getDocumentIndices();
+      if (s.isLineIndex()) {
+        this.lineIndexer.index(searcher, id, docs);
+      } else {
+        searcher.updateDocuments(SearchIndexable.GROUP_ID, id, docs);
+      }
+      log.debug("indexed :{} elapsed:{}", id, stopwatch.stop());
+    } catch (Throwable e) {
+      this.lineIndexer.invalidate(id);
+      log.catching(e);
+    }
+  }
+
   @Subscribe
   public void on(final IndexEvent event) {
     try (TelemetryUtils.ParentSpan span =
@@ -139,7 +324,9 @@ public class IndexDatabase {
       if (isNull(this.searcher)) {
         return;
       }
-      if (nonNull(event.indexables)) {
+      if (event.bulk) {
+        this.bulkIndex(event.indexables);
+      } else if (nonNull(event.indexables)) {
         this.indexObjects(event.indexables);
       } else {
         this.indexObject(event.indexable);
@@ -166,106 +353,189 @@ public class IndexDatabase {
     Executor.getInstance().getEventBus().post(event);
   }
 
-  public synchronized Optional<SearchResults> search(final String query) {
-    this.open();
-    return this.searcher.searchInTransaction(
-        () -> {
-          try {
-            final SearchResults results = new SearchResults();
-            {
-              String codeField = IndexableWord.Field.CODE.getName();
-              final List<SearchResult> result =
-                  this.searcher.search(
-                      codeField,
-                      query,
-                      maxHits,
-                      d -> {
-                        final String filePath = d.get(SearchIndexable.GROUP_ID);
-                        final String line = d.get(SearchIndexable.LINE_NUMBER);
-                        final String contents = d.get(codeField);
-                        final String cat = d.get(SearchIndexable.CATEGORY);
-                        return Optional.of(new SearchResult(filePath, line, contents, cat));
-                      });
-
-              result.forEach(
-                  r -> {
-                    final String cat = r.category;
-                    if (cat.equals(IndexableWord.Field.CLASS_NAME.getName())) {
-                      results.classes.add(r);
-                    } else if (cat.equals(IndexableWord.Field.METHOD_NAME.getName())) {
-                      results.methods.add(r);
-                    } else if (cat.equals(IndexableWord.Field.PACKAGE_NAME.getName())) {
-                      results.classes.add(r);
-                    } else if (cat.equals(IndexableWord.Field.USAGE.getName())) {
-                      results.usages.add(r);
-                    } else if (cat.equals(IndexableWord.Field.SYMBOL_NAME.getName())) {
-                      results.symbols.add(r);
-                    } else {
-                      results.codes.add(r);
-                    }
-                  });
-            }
-            return Optional.of(results);
-          } catch (Throwable e) {
-            log.warn(e);
-            return Optional.empty();
-          }
+  /**
+   * Indexes the groups with {@link #bulkIndex(List)}, the consumer is called after the last commit.
+   */
+  public static void requestBulkIndex(final List<SearchIndexable> i, final Consumer<IndexEvent> c) {
+    final IndexEvent event = new IndexEvent(i, c);
+    event.bulk = true;
+    Executor.getInstance().getEventBus().post(event);
+  }
+
+  /** Hits of the code search in score order, up to maxHits. */
+  public SearchCursor<SearchResult> searchCursor(final String query) {
+    final String codeField = IndexableWord.Field.CODE.getName();
+    final Set<String> fields =
+        ImmutableSet.of(
+            SearchIndexable.GROUP_ID,
+            SearchIndexable.LINE_NUMBER,
+            codeField,
+            SearchIndexable.CATEGORY);
+    return this.openCursor(
+        codeField,
+        query,
+        fields,
+        d -> {
+          final String filePath = d.get(SearchIndexable.GROUP_ID);
+          final String line = d.get(SearchIndexable.LINE_NUMBER);
+          final String contents = d.get(codeField);
+          final String cat = d.get(SearchIndexable.CATEGORY);
+          return Optional.of(new SearchResult(filePath, line, contents, cat));
         });
   }
 
-  public synchronized List<MemberDescriptor> searchMembers(
+  /**
+   * Members in score order. The results are cached by query until the index changes, and a prefix
+   * query is narrowed from the cached results of a shorter prefix when they were complete.
+   */
+  public List<IndexedMember> searchMembers(
       final String classQuery,
       final String modifierQuery,
       final String memberTypeQuery,
       final String nameQuery) {
-    this.open();
+    final long generation = this.open().getGeneration();
+    final String query = memberQuery(classQuery, modifierQuery, memberTypeQuery, nameQuery);
+    final CachedMembers cached = this.queryCache.getIfPresent(query);
+    if (nonNull(cached) && cached.generation == generation) {
+      return cached.members;
+    }
+    if (!isNullOrEmpty(nameQuery) && PREFIX_QUERY.matcher(nameQuery).matches()) {
+      final String prefix = nameQuery.substring(0, nameQuery.length() - 1);
+      for (int i = prefix.length() - 1; i > 0; i--) {
+        final String shorter =
+            memberQuery(classQuery, modifierQuery, memberTypeQuery, prefix.substring(0, i) + '*');
+        final CachedMembers c = this.queryCache.getIfPresent(shorter);
+        if (nonNull(c) && c.generation == generation && c.complete) {
+          final List<IndexedMember> members = this.narrow(c.members, prefix);
+          this.queryCache.put(query, new CachedMembers(generation, members, true));
+          return members;
+        }
+      }
+    }
+    try (SearchCursor<IndexedMember> cursor = this.openMembersCursor(query)) {
+      final List<IndexedMember> members =
+          Collections.unmodifiableList(cursor.stream().collect(Collectors.toList()));
+      this.queryCache.put(query, new CachedMembers(generation, members, !cursor.isTruncated()));
+      return members;
+    }
+  }
+
+  // members with a name token starting with the prefix, like a prefix query on completion
+  private List<IndexedMember> narrow(final List<IndexedMember> members, final String prefix) {
+    final String lower = prefix.toLowerCase(Locale.ROOT);
+    final String field = IndexableWord.Field.C_COMPLETION.getName();
+    final List<IndexedMember> result = new ArrayList<>(members.size());
+    for (final IndexedMember m : members) {
+      try (TokenStream ts = this.analyzer.tokenStream(field, m.getName())) {
+        final CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+        ts.reset();
+        while (ts.incrementToken()) {
+          if (term.toString().startsWith(lower)) {
+            result.add(m);
+            break;
+          }
+        }
+        ts.end();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private SearchCursor<IndexedMember> openMembersCursor(final String query) {
+    log.debug("query: {}", query);
+    return this.openCursor(
+        IndexableWord.Field.CODE.getName(),
+        query,
+        ImmutableSet.of(IndexedMember.FIELD),
+        d -> IndexedMember.decode(d.getBinaryValue(IndexedMember.FIELD)));
+  }
+
+  // the same query in one form whatever the spacing
+  private static String memberQuery(
+      final String classQuery,
+      final String modifierQuery,
+      final String memberTypeQuery,
+      final String nameQuery) {
+    final List<String> queryList = new ArrayList<>(4);
+    if (!isNullOrEmpty(classQuery)) {
+      queryList.add("cdc:" + normalize(classQuery));
+    }
+    if (!isNullOrEmpty(modifierQuery)) {
+      queryList.add("modifier:" + normalize(modifierQuery));
+    }
+    if (!isNullOrEmpty(memberTypeQuery)) {
+      queryList.add("memberType:" + normalize(memberTypeQuery));
+    }
+    if (!isNullOrEmpty(nameQuery)) {
+      queryList.add("completion:" + normalize(nameQuery));
+    }
+    return Joiner.on(" AND ").join(queryList);
+  }
+
+  private static String normalize(final String s) {
+    return CharMatcher.whitespace().trimAndCollapseFrom(s, ' ');
+  }
+
+  private <T> SearchCursor<T> openCursor(
+      final String field,
+      final String query,
+      final Set<String> fields,
+      final DocumentConverter<T> converter) {
+    final DocumentSearcher searcher = this.open();
+    final DocumentSearcher.HeldSearcher held;
     try {
-      return this.searcher.searchInTransaction(
-          () -> {
-            try {
-              String codeField = IndexableWord.Field.CODE.getName();
-              List<String> queryList = new ArrayList<>(4);
-              if (!isNullOrEmpty(classQuery)) {
-                queryList.add("cdc:" + classQuery);
-              }
-              if (!isNullOrEmpty(modifierQuery)) {
-                queryList.add("modifier:" + modifierQuery);
-              }
-              if (!isNullOrEmpty(memberTypeQuery)) {
-                queryList.add("memberType:" + memberTypeQuery);
-              }
-              if (!isNullOrEmpty(nameQuery)) {
-                queryList.add("completion:" + nameQuery);
-              }
-              final String query = Joiner.on(" AND ").join(queryList);
-              log.debug("query: {}", query);
-              return this.searcher.search(
-                  codeField,
-                  query,
-                  maxHits,
-                  d -> {
-                    BytesRef value = d.getBinaryValue("binary");
-                    if (isNull(value)) {
-                      return Optional.empty();
-                    }
-                    byte[] b = value.bytes;
-                    if (isNull(b)) {
-                      return Optional.empty();
-                    }
-                    return Optional.ofNullable(Serializer.asObject(b, MemberDescriptor.class));
-                  });
-            } catch (Throwable e) {
-              log.warn(e);
-              return Collections.emptyList();
-            }
-          });
+      held = searcher.holdSearcher();
     } catch (UncheckedIOException e) {
-      IOException cause = e.getCause();
-      if (cause instanceof IndexNotFoundException) {
-        return Collections.emptyList();
+      if (e.getCause() instanceof IndexNotFoundException) {
+        return new SearchCursor<>((after, n) -> SearchCursor.Page.<T>empty(), PAGE_SIZE, 0);
       }
       throw e;
     }
+    // search-after hits refer to the held reader
+    return new SearchCursor<>(
+        (after, n) ->
+            held.search(
+                indexSearcher -> {
+                  try {
+                    return searcher.searchAfter(
+                        indexSearcher, field, query, after, n, fields, converter);
+                  } catch (IndexNotFoundException e) {
+                    return SearchCursor.Page.<T>empty();
+                  } catch (Throwable e) {
+                    log.warn(e);
+                    return SearchCursor.Page.<T>empty();
+                  }
+                }),
+        PAGE_SIZE,
+        this.maxHits,
+        held::release);
+  }
+
+  private static final class CachedMembers {
+
+    final long generation;
+    final List<IndexedMember> members;
+    // not cut by maxHits
+    final boolean complete;
+
+    CachedMembers(final long generation, final List<IndexedMember> members, boolean complete) {
+      this.generation = generation;
+      this.members = members;
+      this.complete = complete;
+    }
+  }
+
+  private static final class GroupDocuments {
+
+    final String id;
+    final List<Document> docs;
+
+    GroupDocuments(final String id, final List<Document> docs) {
+      this.id = id;
+      this.docs = docs;
+    }
   }
 
   public static class IndexEvent {
@@ -273,6 +543,7 @@ public class IndexDatabase {
     Consumer<IndexEvent> onSuccess;
     SearchIndexable indexable = null;
     List<SearchIndexable> indexables = null;
+    boolean bulk;
 
     IndexEvent(final SearchIndexable indexable) {
       this.indexable = indexable;
@@ -282,6 +553,11 @@ public class IndexDatabase {
       this.indexables = indexables;
     }
 
+    IndexEvent(final List<SearchIndexable> indexables, final Consumer<IndexEvent> consumer) {
+      this.indexables = indexables;
+      this.onSuccess = consumer;
+    }
+
     IndexEvent(final SearchIndexable indexable, final Consumer<IndexEvent> consumer) {
       this.indexable = indexable;
       this.onSuccess = consumer;
@@ -0,0 +1,178 @@
+package meghanada.index;
+
+import static java.util.Objects.isNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.MemberDescriptor;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.GrowableByteArrayDataOutput;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Member read from the member index.
+ *
+ * <p>The index keeps the fields a completion shows in one doc values row, so a hit is read without
+ * loading stored fields or deserializing a descriptor. The declarations are rendered with the class
+ * name like static member completions. The full {@link MemberDescriptor} is reflected from the
+ * declaring class when it's really needed.
+ */
+public final class IndexedMember implements CandidateUnit {
+
+  public static final String FIELD = "member";
+
+  private final String declaringClass;
+  private final String name;
+  private final String memberType;
+  private final String modifier;
+  private final String returnType;
+  private final String declaration;
+  private final String displayDeclaration;
+  private final List<String> parameters;
+  private final String extra;
+
+  private IndexedMember(
+      String declaringClass,
+      String name,
+      String memberType,
+      String modifier,
+      String returnType,
+      String declaration,
+      String displayDeclaration,
+      List<String> parameters,
+      String extra) {
+    this.declaringClass = declaringClass;
+    this.name = name;
+    this.memberType = memberType;
+    this.modifier = modifier;
+    this.returnType = returnType;
+    this.declaration = declaration;
+    this.displayDeclaration = displayDeclaration;
+    this.parameters = parameters;
+    this.extra = extra;
+  }
+
+  public static BytesRef encode(MemberDescriptor md) {
+    MemberDescriptor copy = md.clone();
+    copy.showStaticClassName = true;
+    GrowableByteArrayDataOutput out = new GrowableByteArrayDataOutput(128);
+    try {
+      out.writeString(md.getDeclaringClass());
+      out.writeString(md.getName());
+      out.writeString(md.getType());
+      out.writeString(nullToEmpty(md.modifier));
+      out.writeString(nullToEmpty(md.getReturnType()));
+      out.writeString(copy.getDeclaration());
+      out.writeString(copy.getDisplayDeclaration());
+      List<String> parameters = md.getParameters();
+      out.writeVInt(parameters.size());
+      for (String parameter : parameters) {
+        out.writeString(parameter);
+      }
+    } catch (IOException e) {
+      // in memory
+      throw new IllegalStateException(e);
+    }
+    return new BytesRef(out.getBytes(), 0, out.getPosition());
+  }
+
+  static Optional<IndexedMember> decode(@Nullable BytesRef row) throws IOException {
+    if (isNull(row)) {
+      return Optional.empty();
+    }
+    ByteArrayDataInput in = new ByteArrayDataInput(row.bytes, row.offset, row.length);
+    String declaringClass = in.readString();
+    String name = in.readString();
+    String memberType = in.readString();
+    String modifier = in.readString();
+    String returnType = in.readString();
+    String declaration = in.readString();
+    String displayDeclaration = in.readString();
+    int size = in.readVInt();
+    List<String> parameters = size == 0 ? Collections.emptyList() : new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      parameters.add(in.readString());
+    }
+    return Optional.of(
+        new IndexedMember(
+            declaringClass,
+            name,
+            memberType,
+            modifier,
+            returnType,
+            declaration,
+            displayDeclaration,
+            parameters,
+            ""));
+  }
+
+  private static String nullToEmpty(String s) {
+    return isNull(s) ? "" : s;
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public String getType() {
+    return this.memberType;
+  }
+
+  @Override
+  public String getDeclaration() {
+    return this.declaration;
+  }
+
+  @Override
+  public String getDisplayDeclaration() {
+    return this.displayDeclaration;
+  }
+
+  @Override
+  public String getReturnType() {
+    return this.returnType;
+  }
+
+  @Override
+  public String getExtra() {
+    return this.extra;
+  }
+
+  /** A copy with the extra, search results are shared through the query cache. */
+  public IndexedMember withExtra(String extra) {
+    return new IndexedMember(
+        this.declaringClass,
+        this.name,
+        this.memberType,
+        this.modifier,
+        this.returnType,
+        this.declaration,
+        this.displayDeclaration,
+        this.parameters,
+        extra);
+  }
+
+  public String getDeclaringClass() {
+    return this.declaringClass;
+  }
+
+  public String getModifier() {
+    return this.modifier;
+  }
+
+  public List<String> getParameters() {
+    return this.parameters;
+  }
+
+  @Override
+  public String toString() {
+    return this.declaringClass + ' ' + this.declaration;
+  }
+}
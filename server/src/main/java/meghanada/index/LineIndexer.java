@@ -0,0 +1,169 @@
+package meghanada.index;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apache.lucene.document.Field.Store.NO;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexableField;
+
+/**
+ * Updates the line documents of a file by the lines that changed.
+ *
+ * <p>Keeps a hash of the indexed fields of every line. The new lines of a file are compared with
+ * the hashes, the lines in common at the start and at the end are kept, the lines in between are
+ * deleted and added, and the kept lines after them get their new line number by a doc values
+ * update. A file without hashes, after a restart or an eviction, or a failed update is replaced as
+ * a whole.
+ */
+final class LineIndexer {
+
+  static final String LINE_ID = "LINE_ID";
+
+  private static final Logger log = LogManager.getLogger(LineIndexer.class);
+  // lines of all files
+  private static final long MAX_LINES = 1 << 20;
+
+  private final Cache<String, FileLines> files =
+      CacheBuilder.newBuilder()
+          .maximumWeight(MAX_LINES)
+          .weigher((String k, FileLines v) -> v.hashes.length + 1)
+          .build();
+
+  void index(final DocumentSearcher searcher, final String groupId, final List<Document> docs)
+      throws IOException {
+    final long[] hashes = new long[docs.size()];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = hash(docs.get(i));
+    }
+    final FileLines old = this.files.getIfPresent(groupId);
+    // forget the lines until the update went through
+    this.files.invalidate(groupId);
+    FileLines lines;
+    if (isNull(old)) {
+      lines = replace(searcher, groupId, docs, hashes);
+    } else {
+      try {
+        lines = update(searcher, groupId, old, docs, hashes);
+      } catch (IOException | RuntimeException e) {
+        // the deletes before the failure stay in the writer, replace the whole file
+        log.warn("reindex {} failed, replace the file: {}", groupId, e.getMessage());
+        lines = replace(searcher, groupId, docs, hashes);
+      }
+    }
+    this.files.put(groupId, lines);
+  }
+
+  private static FileLines replace(
+      final DocumentSearcher searcher,
+      final String groupId,
+      final List<Document> docs,
+      final long[] hashes)
+      throws IOException {
+    final FileLines lines = new FileLines(hashes, new long[hashes.length], hashes.length);
+    for (int i = 0; i < hashes.length; i++) {
+      final Document doc = docs.get(i);
+      doc.removeFields(LINE_ID);
+      lines.ids[i] = i;
+      doc.add(new StringField(LINE_ID, lineId(groupId, i), NO));
+    }
+    searcher.updateDocuments(SearchIndexable.GROUP_ID, groupId, docs);
+    return lines;
+  }
+
+  private static FileLines update(
+      final DocumentSearcher searcher,
+      final String groupId,
+      final FileLines old,
+      final List<Document> docs,
+      final long[] hashes)
+      throws IOException {
+    final int oldSize = old.hashes.length;
+    final int newSize = hashes.length;
+    int prefix = 0;
+    while (prefix < oldSize && prefix < newSize && old.hashes[prefix] == hashes[prefix]) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < oldSize - prefix
+        && suffix < newSize - prefix
+        && old.hashes[oldSize - 1 - suffix] == hashes[newSize - 1 - suffix]) {
+      suffix++;
+    }
+
+    final long[] ids = new long[newSize];
+    System.arraycopy(old.ids, 0, ids, 0, prefix);
+    System.arraycopy(old.ids, oldSize - suffix, ids, newSize - suffix, suffix);
+    for (int i = prefix; i < oldSize - suffix; i++) {
+      searcher.deleteDocuments(LINE_ID, lineId(groupId, old.ids[i]));
+    }
+    long nextId = old.nextId;
+    final List<Document> added = docs.subList(prefix, newSize - suffix);
+    for (int i = prefix; i < newSize - suffix; i++) {
+      ids[i] = nextId++;
+      docs.get(i).add(new StringField(LINE_ID, lineId(groupId, ids[i]), NO));
+    }
+    searcher.addDocuments(added);
+    if (oldSize != newSize) {
+      for (int i = newSize - suffix; i < newSize; i++) {
+        searcher.updateLineNumber(LINE_ID, lineId(groupId, ids[i]), i + 1);
+      }
+    }
+    log.debug(
+        "reindex {} deleted:{} added:{} moved:{}",
+        groupId,
+        oldSize - suffix - prefix,
+        added.size(),
+        oldSize != newSize ? suffix : 0);
+    return new FileLines(hashes, ids, nextId);
+  }
+
+  private static String lineId(final String groupId, final long id) {
+    return groupId + '#' + id;
+  }
+
+  private static long hash(final Document doc) {
+    final Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (final IndexableField field : doc) {
+      final String name = field.name();
+      final String value = field.stringValue();
+      if (nonNull(value) && !name.equals(SearchIndexable.GROUP_ID)) {
+        hasher.putString(name, StandardCharsets.UTF_8);
+        hasher.putString(value, StandardCharsets.UTF_8);
+      }
+    }
+    return hasher.hash().asLong();
+  }
+
+  void invalidate(final String groupId) {
+    this.files.invalidate(groupId);
+  }
+
+  void invalidateAll() {
+    this.files.invalidateAll();
+  }
+
+  private static final class FileLines {
+
+    final long[] hashes;
+    // line document ids
+    final long[] ids;
+    final long nextId;
+
+    FileLines(long[] hashes, long[] ids, long nextId) {
+      this.hashes = hashes;
+      this.ids = ids;
+      this.nextId = nextId;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package meghanada.index;
+
+import static java.util.Objects.isNull;
+
+import com.google.common.collect.Streams;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.apache.lucene.search.ScoreDoc;
+
+/**
+ * Hits of a query in score order, fetched a page at a time.
+ *
+ * <p>Each page is a bounded top-K search after the last hit of the previous page, and only the
+ * stored fields of the hits of that page are loaded and converted. All pages are read from one
+ * searcher, it's released when the cursor is exhausted or closed.
+ */
+public final class SearchCursor<T> implements Iterator<T>, AutoCloseable {
+
+  private final PageLoader<T> loader;
+  private final int pageSize;
+  private final int maxHits;
+  private final Runnable release;
+  private final Deque<T> buffer = new ArrayDeque<>(16);
+  private ScoreDoc after;
+  private int fetched;
+  private boolean exhausted;
+  private boolean closed;
+
+  SearchCursor(PageLoader<T> loader, int pageSize, int maxHits) {
+    this(loader, pageSize, maxHits, () -> {});
+  }
+
+  SearchCursor(PageLoader<T> loader, int pageSize, int maxHits, Runnable release) {
+    this.loader = loader;
+    this.pageSize = pageSize;
+    this.maxHits = maxHits;
+    this.release = release;
+  }
+
+  /** Next page of hits, empty when there are no more. */
+  public List<T> nextPage() {
+    if (this.buffer.isEmpty()) {
+      return this.fetch();
+    }
+    List<T> rest = new ArrayList<>(this.buffer);
+    this.buffer.clear();
+    return rest;
+  }
+
+  // hits the converter drops don't end the cursor
+  private List<T> fetch() {
+    while (!this.exhausted) {
+      int n = Math.min(this.pageSize, this.maxHits - this.fetched);
+      if (n <= 0) {
+        this.close();
+        break;
+      }
+      Page<T> page;
+      try {
+        page = this.loader.load(this.after, n);
+      } catch (RuntimeException e) {
+        this.close();
+        throw e;
+      }
+      this.fetched += page.hits;
+      this.after = page.last;
+      if (page.hits < n || isNull(page.last)) {
+        this.close();
+      }
+      if (!page.items.isEmpty()) {
+        return page.items;
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (this.buffer.isEmpty()) {
+      this.buffer.addAll(this.fetch());
+    }
+    return !this.buffer.isEmpty();
+  }
+
+  @Override
+  public T next() {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return this.buffer.removeFirst();
+  }
+
+  /** Whether the cursor stopped at maxHits, there may be more hits. */
+  public boolean isTruncated() {
+    return this.fetched >= this.maxHits;
+  }
+
+  /** Lazy stream over all hits, pages are fetched as the stream is consumed. */
+  public Stream<T> stream() {
+    return Streams.stream(this).onClose(this::close);
+  }
+
+  /** Stops fetching and releases the searcher. */
+  @Override
+  public void close() {
+    this.exhausted = true;
+    if (!this.closed) {
+      this.closed = true;
+      this.release.run();
+    }
+  }
+
+  @FunctionalInterface
+  interface PageLoader<T> {
+
+    Page<T> load(@Nullable ScoreDoc after, int n);
+  }
+
+  static final class Page<T> {
+
+    static final Page<?> EMPTY = new Page<>(Collections.emptyList(), 0, null);
+
+    final List<T> items;
+    // number of hits, some may not be converted to items
+    final int hits;
+    @Nullable final ScoreDoc last;
+
+    Page(List<T> items, int hits, @Nullable ScoreDoc last) {
+      this.items = items;
+      this.hits = hits;
+      this.last = last;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Page<T> empty() {
+      return (Page<T>) EMPTY;
+    }
+  }
+}
@@ -8,8 +8,15 @@ public interface SearchIndexable {
   String GROUP_ID = "GROUP_ID";
   String LINE_NUMBER = "LINE_NUMBER";
   String CATEGORY = "category";
+  // edge n-grams of the words of the field without the suffix
+  String NGRAM_SUFFIX = "_ngram";
 
   String getIndexGroupId();
 
   List<Document> getDocumentIndices();
+
+  /** True when the documents are the lines of the group in order, they are then updated by line. */
+  default boolean isLineIndex() {
+    return false;
+  }
 }
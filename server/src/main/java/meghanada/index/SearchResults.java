@@ -10,6 +10,23 @@ public class SearchResults {
   public final List<SearchResult> usages = new ArrayList<>(8);
   public final List<SearchResult> codes = new ArrayList<>(8);
 
+  public void add(SearchResult r) {
+    final String cat = r.category;
+    if (cat.equals(IndexableWord.Field.CLASS_NAME.getName())) {
+      this.classes.add(r);
+    } else if (cat.equals(IndexableWord.Field.METHOD_NAME.getName())) {
+      this.methods.add(r);
+    } else if (cat.equals(IndexableWord.Field.PACKAGE_NAME.getName())) {
+      this.classes.add(r);
+    } else if (cat.equals(IndexableWord.Field.USAGE.getName())) {
+      this.usages.add(r);
+    } else if (cat.equals(IndexableWord.Field.SYMBOL_NAME.getName())) {
+      this.symbols.add(r);
+    } else {
+      this.codes.add(r);
+    }
+  }
+
   public int size() {
     int i = 0;
     i += this.classes.size();
@@ -70,7 +70,8 @@ public class TestRunner {
   private static List<Class<?>> getTestClass(String testName) throws ClassNotFoundException {
     List<Class<?>> classes = new ArrayList<>(8);
     CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
-    for (ClassIndex classIndex : cachedASMReflector.getGlobalClassIndex().values()) {
+    // test classes are never in the jdk snapshot
+    for (ClassIndex classIndex : cachedASMReflector.getLocalClassIndexes()) {
       String fqcn = classIndex.getReturnType();
       String className = classIndex.getName();
 
@@ -48,6 +48,7 @@ import meghanada.analyze.MethodScope;
 import meghanada.analyze.Source;
 import meghanada.analyze.TypeScope;
 import meghanada.analyze.Variable;
+import meghanada.cache.CacheBudget;
 import meghanada.cache.GlobalCache;
 import meghanada.config.Config;
 import meghanada.project.Project;
@@ -72,8 +73,18 @@ public class LocationSearcher {
   private static final Pattern IMPORT_RE = Pattern.compile("import .*\\d;$");
 
   private final List<LocationSearchFunction> functions;
-  private final Map<String, File> copiedSrcFile = new HashMap<>(16);
-  private final Map<String, List<String>> decompileFiles = new HashMap<>(16);
+  private final Map<String, File> copiedSrcFile =
+      CacheBudget.newBuilder(
+              CacheBudget.Share.LOCATION,
+              (String k, File v) -> CacheBudget.weigh(k) + CacheBudget.weigh(v.getPath()))
+          .build()
+          .asMap();
+  private final Map<String, List<String>> decompileFiles =
+      CacheBudget.newBuilder(
+              CacheBudget.Share.LOCATION,
+              (String k, List<String> v) -> CacheBudget.weigh(k) + CacheBudget.weigh(v))
+          .build()
+          .asMap();
   private final Supplier<Project> projectSupplier;
 
   public LocationSearcher(final Supplier<Project> supplier) {
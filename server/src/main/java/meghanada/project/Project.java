@@ -37,6 +37,7 @@ import jetbrains.exodus.entitystore.StoreTransaction;
 import meghanada.analyze.CompileResult;
 import meghanada.analyze.JavaAnalyzer;
 import meghanada.analyze.Source;
+import meghanada.cache.GlobalCache;
 import meghanada.config.Config;
 import meghanada.formatter.JavaFormatter;
 import meghanada.store.ProjectDatabaseHelper;
@@ -125,9 +126,12 @@ public abstract class Project implements Serializable, Storable {
         TelemetryUtils.startScopedSpan("Peoject.clearMemberCache")) {
 
       final Map<File, Source> sourceMap = compileResult.getSources();
+      final List<String> classNames = new ArrayList<>(sourceMap.size());
       for (final Source source : sourceMap.values()) {
-        source.invalidateCache();
+        classNames.addAll(source.getClassNames());
       }
+      // reloaded in the background, completion uses the old members meanwhile
+      GlobalCache.getInstance().refreshMemberDescriptors(classNames);
       return compileResult;
     }
   }
@@ -923,6 +927,12 @@ public abstract class Project implements Serializable, Storable {
     return this.callerMap;
   }
 
+  public void restoreCallerMap(Map<String, Set<String>> map) {
+    if (this.callerMap.isEmpty()) {
+      map.forEach((k, v) -> this.callerMap.put(k, new HashSet<>(v)));
+    }
+  }
+
   public synchronized void writeCaller() throws IOException {
     boolean b = ProjectDatabaseHelper.saveCallerMap(this.projectRootPath, this.callerMap);
   }
@@ -1206,6 +1216,10 @@ public abstract class Project implements Serializable, Storable {
       sb.append(String.format("useSourceCache: %s\n", config.useSourceCache()));
       sb.append(String.format("cacheInProject: %s\n", config.isCacheInProject()));
       sb.append(String.format("cacheRoot: %s\n", config.getCacheRoot()));
+      sb.append(String.format("useSharedJarCache: %s\n", config.useSharedJarCache()));
+      sb.append(String.format("useJDKSnapshot: %s\n", config.useJDKSnapshot()));
+      sb.append(String.format("useWarmState: %s\n", config.useWarmState()));
+      sb.append(String.format("readinessInResponse: %s\n", config.isReadinessInResponse()));
       sb.append(String.format("useExternalBuilder: %s\n", config.useExternalBuilder()));
       sb.append(String.format("clearCacheOnStart: %s\n", config.clearCacheOnStart()));
       sb.append(String.format("isSkipBuildSubProjects: %s\n", config.isSkipBuildSubProjects()));
@@ -1213,6 +1227,14 @@ public abstract class Project implements Serializable, Storable {
       sb.append(String.format("mavenLocalRepository: %s\n", config.getMavenLocalRepository()));
       sb.append(String.format("useFullTextSearch: %s\n", config.useFullTextSearch()));
       sb.append(String.format("enableIdleCache: %s\n", config.enableIdleCache()));
+      sb.append(String.format("cacheHeapRatio: %s\n", config.getCacheHeapRatio()));
+      sb.append(String.format("useMemoryGovernor: %s\n", config.useMemoryGovernor()));
+      sb.append(String.format("indexBackend: %s\n", config.getIndexBackend()));
+      sb.append(String.format("searchMaxHits: %s\n", config.getSearchMaxHits()));
+      sb.append(String.format("searchTimeout: %s\n", config.getSearchTimeout()));
+      sb.append(String.format("useIndexNgram: %s\n", config.useIndexNgram()));
+      sb.append(String.format("indexRamBufferSize: %s\n", config.getIndexRamBufferSize()));
+      sb.append(String.format("indexThreads: %s\n", config.getIndexThreads()));
       sb.append("\n");
     }
 
@@ -7,7 +7,6 @@ import static meghanada.index.IndexableWord.Field.C_DECLARING_CLASS;
 import static meghanada.index.IndexableWord.Field.C_MEMBER_TYPE;
 import static meghanada.index.IndexableWord.Field.C_MODIFIER;
 import static org.apache.lucene.document.Field.Store.NO;
-import static org.apache.lucene.document.Field.Store.YES;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
@@ -18,8 +17,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
+import meghanada.index.IndexedMember;
 import meghanada.utils.ClassNameUtils;
 import meghanada.utils.StringUtils;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.TextField;
 
@@ -223,6 +224,25 @@ public abstract class MemberDescriptor
     return descriptor;
   }
 
+  /**
+   * Copy of this member seen from a parameterized class.
+   *
+   * <p>The copy shares everything but the declaring class and the type parameter map with this
+   * descriptor, which is left unchanged.
+   *
+   * @param declaringClass declaring class of the copy
+   * @param typeArguments type parameter of the class to its type argument
+   */
+  public MemberDescriptor parameterize(String declaringClass, Map<String, String> typeArguments) {
+    MemberDescriptor descriptor = this.clone();
+    descriptor.declaringClass = declaringClass;
+    if (this.hasTypeParameters()) {
+      descriptor.typeParameterMap.clear();
+      typeArguments.forEach(descriptor::putTypeParameter);
+    }
+    return descriptor;
+  }
+
   public MemberType getMemberType() {
     return memberType;
   }
@@ -309,9 +329,9 @@ public abstract class MemberDescriptor
 
   public Document toDocument() {
     Document doc = new Document();
-    // doc.add(new Field(C_BINARY.getName(), Serializer.asByte(this), TextField.TYPE_STORED));
-    doc.add(new TextField(C_DECLARING_CLASS.getName(), declaringClass, YES));
-    doc.add(new TextField(C_COMPLETION.getName(), name, YES));
+    doc.add(new BinaryDocValuesField(IndexedMember.FIELD, IndexedMember.encode(this)));
+    doc.add(new TextField(C_DECLARING_CLASS.getName(), declaringClass, NO));
+    doc.add(new TextField(C_COMPLETION.getName(), name, NO));
     doc.add(new TextField(C_MEMBER_TYPE.getName(), memberType.name(), NO));
     doc.add(new TextField(C_MODIFIER.getName(), modifier.trim(), NO));
     return doc;
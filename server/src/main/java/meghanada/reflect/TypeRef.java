@@ -0,0 +1,442 @@
+package meghanada.reflect;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import meghanada.utils.ClassNameUtils;
+
+/**
+ * Immutable, interned type reference.
+ *
+ * <p>Parses the type strings written by the ASM visitors ({@code java.util.Map<%%K,
+ * java.util.List<%%V>>}, {@code ? extends java.lang.Number}, {@code java.lang.String[]}, {@code
+ * a.Outer<%%T>$Inner}) into class, type variable, array, wildcard and parameterized references.
+ * Equal references are canonicalized through a global table and parsed strings are cached, so
+ * repeated lookups of the same signature neither re-parse nor allocate.
+ */
+public abstract class TypeRef {
+
+  private static final int PARSE_CACHE_SIZE = 16384;
+
+  private static final Interner<TypeRef> interner = Interners.newWeakInterner();
+  // parsed strings, dropped all at once when full
+  private static final Map<String, Optional<TypeRef>> parsed = new ConcurrentHashMap<>(1024);
+
+  private final String name;
+  private final int hash;
+
+  TypeRef(String name) {
+    this.name = name;
+    this.hash = name.hashCode();
+  }
+
+  /** Parses and interns the type string, empty when it isn't a well formed type. */
+  public static Optional<TypeRef> of(String type) {
+    Optional<TypeRef> ref = parsed.get(type);
+    if (nonNull(ref)) {
+      return ref;
+    }
+    ref = Optional.ofNullable(new Parser(type).parse());
+    if (parsed.size() >= PARSE_CACHE_SIZE) {
+      parsed.clear();
+    }
+    parsed.put(type, ref);
+    return ref;
+  }
+
+  /** The canonical instance of the type string, the string itself when it can't be parsed. */
+  public static String intern(String type) {
+    if (isNull(type)) {
+      return null;
+    }
+    return of(type).map(TypeRef::toString).orElse(type);
+  }
+
+  public static TypeRef classType(String name) {
+    return interner.intern(new ClassType(name));
+  }
+
+  public static TypeRef typeVariable(String mark, String name) {
+    return interner.intern(new TypeVariable(mark, name));
+  }
+
+  public static TypeRef arrayOf(TypeRef component) {
+    return interner.intern(new ArrayType(component));
+  }
+
+  public static TypeRef wildcard(String bound, TypeRef type) {
+    return interner.intern(new WildcardType(bound, type));
+  }
+
+  public static TypeRef parameterized(TypeRef owner, String name, List<TypeRef> arguments) {
+    return interner.intern(new ParameterizedType(owner, name, ImmutableList.copyOf(arguments)));
+  }
+
+  /** Type without type arguments, as {@link ClassNameUtils#removeTypeParameter(String)}. */
+  public abstract String getRawName();
+
+  /** Type arguments of the first parameterized type in the reference. */
+  public List<TypeRef> getArguments() {
+    return ImmutableList.of();
+  }
+
+  /** Type arguments as strings, as {@link ClassNameUtils#parseTypeParameter(String)}. */
+  public List<String> getArgumentNames() {
+    return ImmutableList.of();
+  }
+
+  /**
+   * Replaces type variables.
+   *
+   * @param replacements marked variable ({@code %%T}) to type
+   */
+  public abstract TypeRef substitute(Map<String, TypeRef> replacements);
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || o.getClass() != this.getClass()) {
+      return false;
+    }
+    return this.name.equals(((TypeRef) o).name);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+
+  @Override
+  public String toString() {
+    return this.name;
+  }
+
+  public static final class ClassType extends TypeRef {
+
+    private ClassType(String name) {
+      super(name);
+    }
+
+    @Override
+    public String getRawName() {
+      return this.toString();
+    }
+
+    @Override
+    public TypeRef substitute(Map<String, TypeRef> replacements) {
+      return this;
+    }
+  }
+
+  public static final class TypeVariable extends TypeRef {
+
+    private final String mark;
+    private final String variable;
+
+    private TypeVariable(String mark, String variable) {
+      super(mark + variable);
+      this.mark = mark;
+      this.variable = variable;
+    }
+
+    public String getMark() {
+      return mark;
+    }
+
+    public String getVariable() {
+      return variable;
+    }
+
+    @Override
+    public String getRawName() {
+      return this.toString();
+    }
+
+    @Override
+    public TypeRef substitute(Map<String, TypeRef> replacements) {
+      TypeRef real = replacements.get(this.toString());
+      return nonNull(real) ? real : this;
+    }
+  }
+
+  public static final class ArrayType extends TypeRef {
+
+    private final TypeRef component;
+
+    private ArrayType(TypeRef component) {
+      super(component.toString() + ClassNameUtils.ARRAY);
+      this.component = component;
+    }
+
+    public TypeRef getComponent() {
+      return component;
+    }
+
+    @Override
+    public String getRawName() {
+      return this.component.getRawName() + ClassNameUtils.ARRAY;
+    }
+
+    @Override
+    public List<TypeRef> getArguments() {
+      return this.component.getArguments();
+    }
+
+    @Override
+    public List<String> getArgumentNames() {
+      return this.component.getArgumentNames();
+    }
+
+    @Override
+    public TypeRef substitute(Map<String, TypeRef> replacements) {
+      TypeRef component = this.component.substitute(replacements);
+      return component == this.component ? this : arrayOf(component);
+    }
+  }
+
+  public static final class WildcardType extends TypeRef {
+
+    public static final String EXTENDS = "extends";
+    public static final String SUPER = "super";
+
+    // null when unbounded
+    private final String bound;
+    private final TypeRef type;
+
+    private WildcardType(String bound, TypeRef type) {
+      super(isNull(bound) ? "?" : "? " + bound + ' ' + type);
+      this.bound = bound;
+      this.type = type;
+    }
+
+    public Optional<String> getBound() {
+      return Optional.ofNullable(bound);
+    }
+
+    public Optional<TypeRef> getType() {
+      return Optional.ofNullable(type);
+    }
+
+    @Override
+    public String getRawName() {
+      return isNull(this.type) ? this.toString() : "? " + this.bound + ' ' + this.type.getRawName();
+    }
+
+    @Override
+    public List<TypeRef> getArguments() {
+      return isNull(this.type) ? ImmutableList.of() : this.type.getArguments();
+    }
+
+    @Override
+    public List<String> getArgumentNames() {
+      return isNull(this.type) ? ImmutableList.of() : this.type.getArgumentNames();
+    }
+
+    @Override
+    public TypeRef substitute(Map<String, TypeRef> replacements) {
+      if (isNull(this.type)) {
+        return this;
+      }
+      TypeRef type = this.type.substitute(replacements);
+      return type == this.type ? this : wildcard(this.bound, type);
+    }
+  }
+
+  public static final class ParameterizedType extends TypeRef {
+
+    // enclosing type of an inner class, nullable
+    private final TypeRef owner;
+    private final String simpleName;
+    private final ImmutableList<TypeRef> arguments;
+    private final ImmutableList<String> argumentNames;
+
+    private ParameterizedType(TypeRef owner, String simpleName, ImmutableList<TypeRef> arguments) {
+      super(render(owner, simpleName, arguments));
+      this.owner = owner;
+      this.simpleName = simpleName;
+      this.arguments = arguments;
+      List<String> names = new ArrayList<>(arguments.size());
+      for (TypeRef argument : arguments) {
+        names.add(argument.toString());
+      }
+      this.argumentNames = ImmutableList.copyOf(names);
+    }
+
+    private static String render(TypeRef owner, String simpleName, List<TypeRef> arguments) {
+      StringBuilder sb = new StringBuilder(64);
+      if (nonNull(owner)) {
+        sb.append(owner).append(ClassNameUtils.INNER_MARK);
+      }
+      sb.append(simpleName);
+      if (!arguments.isEmpty()) {
+        sb.append('<');
+        for (int i = 0; i < arguments.size(); i++) {
+          if (i > 0) {
+            sb.append(", ");
+          }
+          sb.append(arguments.get(i));
+        }
+        sb.append('>');
+      }
+      return sb.toString();
+    }
+
+    public Optional<TypeRef> getOwner() {
+      return Optional.ofNullable(owner);
+    }
+
+    @Override
+    public String getRawName() {
+      if (isNull(this.owner)) {
+        return this.simpleName;
+      }
+      return this.owner.getRawName() + ClassNameUtils.INNER_MARK + this.simpleName;
+    }
+
+    @Override
+    public List<TypeRef> getArguments() {
+      if (nonNull(this.owner) && !this.owner.getArguments().isEmpty()) {
+        return this.owner.getArguments();
+      }
+      return this.arguments;
+    }
+
+    @Override
+    public List<String> getArgumentNames() {
+      if (nonNull(this.owner) && !this.owner.getArgumentNames().isEmpty()) {
+        return this.owner.getArgumentNames();
+      }
+      return this.argumentNames;
+    }
+
+    @Override
+    public TypeRef substitute(Map<String, TypeRef> replacements) {
+      TypeRef owner = isNull(this.owner) ? null : this.owner.substitute(replacements);
+      List<TypeRef> arguments = new ArrayList<>(this.arguments.size());
+      boolean changed = owner != this.owner;
+      for (TypeRef argument : this.arguments) {
+        TypeRef replaced = argument.substitute(replacements);
+        changed |= replaced != argument;
+        arguments.add(replaced);
+      }
+      return changed ? parameterized(owner, this.simpleName, arguments) : this;
+    }
+  }
+
+  private static final class Parser {
+
+    private final String source;
+    private int pos;
+
+    private Parser(String source) {
+      this.source = source;
+    }
+
+    TypeRef parse() {
+      TypeRef type = this.type();
+      if (isNull(type) || this.pos != this.source.length()) {
+        return null;
+      }
+      return type;
+    }
+
+    private boolean accept(String token) {
+      if (this.source.startsWith(token, this.pos)) {
+        this.pos += token.length();
+        return true;
+      }
+      return false;
+    }
+
+    private void skipSpaces() {
+      while (this.pos < this.source.length() && this.source.charAt(this.pos) == ' ') {
+        this.pos++;
+      }
+    }
+
+    private String name() {
+      int start = this.pos;
+      while (this.pos < this.source.length()) {
+        char c = this.source.charAt(this.pos);
+        if (c != '.' && c != '$' && !Character.isJavaIdentifierPart(c)) {
+          break;
+        }
+        this.pos++;
+      }
+      return start == this.pos ? null : this.source.substring(start, this.pos);
+    }
+
+    private TypeRef type() {
+      if (this.accept("?")) {
+        if (this.accept(" extends ")) {
+          TypeRef bound = this.type();
+          return isNull(bound) ? null : wildcard(WildcardType.EXTENDS, bound);
+        }
+        if (this.accept(" super ")) {
+          TypeRef bound = this.type();
+          return isNull(bound) ? null : wildcard(WildcardType.SUPER, bound);
+        }
+        return wildcard(null, null);
+      }
+
+      TypeRef type;
+      if (this.accept(ClassNameUtils.CLASS_TYPE_VARIABLE_MARK)) {
+        type = this.typeVariable(ClassNameUtils.CLASS_TYPE_VARIABLE_MARK);
+      } else if (this.accept(ClassNameUtils.FORMAL_TYPE_VARIABLE_MARK)) {
+        type = this.typeVariable(ClassNameUtils.FORMAL_TYPE_VARIABLE_MARK);
+      } else {
+        type = this.declaredType(null);
+      }
+      if (isNull(type)) {
+        return null;
+      }
+      while (this.accept(ClassNameUtils.ARRAY)) {
+        type = arrayOf(type);
+      }
+      return type;
+    }
+
+    private TypeRef typeVariable(String mark) {
+      String variable = this.name();
+      return isNull(variable) ? null : TypeRef.typeVariable(mark, variable);
+    }
+
+    private TypeRef declaredType(TypeRef owner) {
+      String name = this.name();
+      if (isNull(name)) {
+        return null;
+      }
+      if (!this.accept("<")) {
+        return isNull(owner) ? classType(name) : parameterized(owner, name, ImmutableList.of());
+      }
+      List<TypeRef> arguments = new ArrayList<>(4);
+      do {
+        this.skipSpaces();
+        TypeRef argument = this.type();
+        if (isNull(argument)) {
+          return null;
+        }
+        arguments.add(argument);
+        this.skipSpaces();
+      } while (this.accept(","));
+      if (!this.accept(">")) {
+        return null;
+      }
+      TypeRef type = parameterized(owner, name, arguments);
+      if (this.accept(ClassNameUtils.INNER_MARK)) {
+        return this.declaredType(type);
+      }
+      return type;
+    }
+  }
+}
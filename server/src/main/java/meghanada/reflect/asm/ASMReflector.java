@@ -6,6 +6,7 @@ import static meghanada.utils.ClassNameUtils.replaceDescriptorsType;
 import static meghanada.utils.FunctionUtils.wrapIO;
 import static meghanada.utils.FunctionUtils.wrapIOConsumer;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -20,7 +21,6 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,12 +32,14 @@ import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import meghanada.cache.CacheBudget;
 import meghanada.config.Config;
 import meghanada.module.ModuleHelper;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
 import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.TypeRef;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.utils.ClassNameUtils;
 import meghanada.utils.StringUtils;
@@ -63,9 +65,13 @@ public class ASMReflector {
         "org.jboss.forge.roaster._shade.org.eclipse.core.internal"
       };
   private static final Logger log = LogManager.getLogger(ASMReflector.class);
-  private static final String preloadClassPackage = "java.lang.";
   private static final Map<String, List<MemberDescriptor>> innerCache =
-      Collections.synchronizedMap(new LRUHashMap<>(1024));
+      CacheBudget.newBuilder(
+              CacheBudget.Share.INNER_MEMBER,
+              (String k, List<MemberDescriptor> v) ->
+                  CacheBudget.weigh(k) + CacheBudget.weighMembers(v))
+          .build()
+          .asMap();
   private static ASMReflector asmReflector;
   private final Set<String> allowClass = new HashSet<>(16);
 
@@ -150,8 +156,12 @@ public class ASMReflector {
   private static void readClassIndex(
       Map<ClassIndex, File> indexes, InputStream in, File file, boolean allowSuper)
       throws IOException {
+    readClassIndex(indexes, new ClassReader(in), file, allowSuper);
+  }
+
+  private static void readClassIndex(
+      Map<ClassIndex, File> indexes, ClassReader classReader, File file, boolean allowSuper) {
 
-    ClassReader classReader = new ClassReader(in);
     String className = ClassNameUtils.replaceSlash(classReader.getClassName());
 
     boolean projectOutput = file.isDirectory();
@@ -170,18 +180,12 @@ public class ASMReflector {
       isSuper = (Opcodes.ACC_SUPER & access) == Opcodes.ACC_SUPER;
     }
     if (projectOutput || (isPublic || isProtected || isSuper)) {
-      boolean onlyClassName = !className.startsWith(preloadClassPackage);
-      ClassAnalyzeVisitor classAnalyzeVisitor =
-          new ClassAnalyzeVisitor(className, onlyClassName, false);
-      classReader.accept(classAnalyzeVisitor, 0);
-      ClassIndex classIndex = classAnalyzeVisitor.getClassIndex();
+      // header only, members are reflected on demand
+      ClassIndex classIndex = ClassHeaderReader.read(classReader, className);
       if (!classIndex.isAnonymous) {
         classIndex.setInterface(isInterface);
         classIndex.setAnnotation(isAnnotation);
         indexes.put(classIndex, file);
-        if (!onlyClassName) {
-          innerCache.putIfAbsent(className, classAnalyzeVisitor.getMembers());
-        }
       }
     }
   }
@@ -194,12 +198,13 @@ public class ASMReflector {
     return classAnalyzeVisitor;
   }
 
-  private static List<String> replaceSuperClassTypeParameters(String name, ClassIndex classIndex) {
+  static List<String> replaceSuperClassTypeParameters(String name, ClassIndex classIndex) {
 
     List<String> strings = ClassNameUtils.parseTypeParameter(name);
     Iterator<String> iterator = strings.iterator();
     Iterator<String> tpIterator = classIndex.getTypeParameters().iterator();
     Map<String, String> replace = new HashMap<>(4);
+    Map<String, TypeRef> replaceRef = new HashMap<>(4);
     while (iterator.hasNext()) {
       String real = iterator.next();
       if (tpIterator.hasNext()) {
@@ -209,16 +214,25 @@ public class ASMReflector {
 
           if (!tp.equals(removed)) {
             replace.put(ClassNameUtils.CLASS_TYPE_VARIABLE_MARK + tp, real);
+            TypeRef.of(real)
+                .ifPresent(
+                    ref -> replaceRef.put(ClassNameUtils.CLASS_TYPE_VARIABLE_MARK + tp, ref));
           }
         }
       }
     }
-    List<String> supers = new ArrayList<>(classIndex.getSupers());
-    if (!replace.isEmpty()) {
-      supers =
-          classIndex.getSupers().stream()
-              .map(s -> ClassNameUtils.replaceFromMap(s, replace))
-              .collect(Collectors.toList());
+    if (replace.isEmpty()) {
+      return new ArrayList<>(classIndex.getSupers());
+    }
+    boolean structured = replaceRef.size() == replace.size();
+    List<String> supers = new ArrayList<>(classIndex.getSupers().size());
+    for (String s : classIndex.getSupers()) {
+      Optional<TypeRef> ref = structured ? TypeRef.of(s) : Optional.empty();
+      if (ref.isPresent()) {
+        supers.add(ref.get().substitute(replaceRef).toString());
+      } else {
+        supers.add(ClassNameUtils.replaceFromMap(s, replace));
+      }
     }
     return supers;
   }
@@ -243,6 +257,15 @@ public class ASMReflector {
     return file.isFile() && file.getName().endsWith(".class");
   }
 
+  private static Optional<ChannelJarFile> openChannelJar(File file) {
+    try {
+      return Optional.of(ChannelJarFile.open(file));
+    } catch (IOException e) {
+      log.debug("fallback to JarFile {} {}", file, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
   private void addAllowClass(String clazz) {
     this.allowClass.add(clazz);
   }
@@ -305,6 +328,17 @@ public class ASMReflector {
                           }
                         }));
       } else if (isJar(file)) {
+        Optional<ChannelJarFile> channelJar = openChannelJar(file);
+        if (channelJar.isPresent()) {
+          try (ChannelJarFile jarFile = channelJar.get()) {
+            jarFile.forEachClass(
+                className -> !this.ignorePackage(className),
+                (className, bytes, length) ->
+                    ASMReflector.readClassIndex(
+                        indexes, new ClassReader(bytes, 0, length), file, false));
+          }
+          return indexes;
+        }
         try (JarFile jarFile = new JarFile(file);
             Stream<JarEntry> jarStream = jarFile.stream().parallel();
             Stream<JarEntry> stream =
@@ -486,16 +520,18 @@ public class ASMReflector {
                                         () -> {
                                           try (InputStream in = cd.getInputStream()) {
                                             ClassReader classReader = new ClassReader(in);
-                                            return getMemberFromJar(
-                                                file, classReader, nameWithoutTP, nameWithTP);
+                                            List<MemberDescriptor> loaded =
+                                                getMemberFromJar(
+                                                    file, classReader, nameWithoutTP, nameWithTP);
+                                            if (isSuper) {
+                                              replaceDescriptorsType(nameWithTP, loaded);
+                                            }
+                                            return loaded;
                                           } catch (IOException e) {
                                             throw new UncheckedIOException(e);
                                           }
                                         });
 
-                                if (isSuper) {
-                                  replaceDescriptorsType(nameWithTP, members);
-                                }
                                 results.addAll(members);
                                 classIterator.remove();
                                 break;
@@ -537,15 +573,17 @@ public class ASMReflector {
                           () -> {
                             try (InputStream in = jarFile.getInputStream(jarEntry)) {
                               ClassReader classReader = new ClassReader(in);
-                              return this.getMemberFromJar(
-                                  file, classReader, nameWithoutTP, nameWithTP);
+                              List<MemberDescriptor> loaded =
+                                  this.getMemberFromJar(
+                                      file, classReader, nameWithoutTP, nameWithTP);
+                              if (isSuper) {
+                                replaceDescriptorsType(nameWithTP, loaded);
+                              }
+                              return loaded;
                             } catch (IOException e) {
                               throw new UncheckedIOException(e);
                             }
                           });
-                  if (isSuper) {
-                    replaceDescriptorsType(nameWithTP, members);
-                  }
                   results.addAll(members);
                   classIterator.remove();
                   break;
@@ -764,6 +802,9 @@ public class ASMReflector {
 
       scope.addAnnotation(TelemetryUtils.annotationBuilder().put("fqcn", fqcn).build("args"));
 
+      if (index instanceof ClassIndexMap) {
+        return ((ClassIndexMap) index).getSupertypeTable().reflectInfo(fqcn);
+      }
       InheritanceInfo info = new InheritanceInfo(fqcn);
       InheritanceInfo reflectInfo = this.searchReflectInfo(index, fqcn, info);
       reflectInfo.inherit = reflectInfo.inherit.stream().distinct().collect(Collectors.toList());
@@ -779,42 +820,19 @@ public class ASMReflector {
 
       scope.addAnnotation(TelemetryUtils.annotationBuilder().put("name", name).build("args"));
 
-      for (Map.Entry<String, ClassIndex> entry : index.entrySet()) {
-        ClassIndex classIndex = entry.getValue();
-        File file = new File(classIndex.getFilePath());
-
-        String searchName = ClassNameUtils.removeTypeParameter(name);
-        String target = classIndex.toString();
-        if (target.equals(searchName)) {
-          this.addInheritance(index, name, info, classIndex, file);
-          break;
-        }
-        //
+      // direct lookup, the index may be backed by the jdk snapshot
+      String searchName = ClassNameUtils.removeTypeParameter(name);
+      ClassIndex classIndex = index.get(searchName);
+      if (isNull(classIndex)) {
         Optional<String> opt = ClassNameUtils.toInnerClassName(name);
         if (opt.isPresent()) {
-          String inner = opt.get();
-
-          if (target.equals(inner)) {
-
-            if (!info.classFileMap.containsKey(file)) {
-              info.classFileMap.put(file, new ArrayList<>(8));
-            }
-
-            info.inherit.add(name);
-            info.classFileMap.get(file).add(name);
-            List<String> supers = ASMReflector.replaceSuperClassTypeParameters(name, classIndex);
-
-            Collections.reverse(supers);
-
-            supers.forEach(
-                superClass -> {
-                  InheritanceInfo ignored = this.searchReflectInfo(index, superClass, info);
-                });
-
-            break;
-          }
+          classIndex = index.get(opt.get());
         }
       }
+      if (nonNull(classIndex)) {
+        File file = new File(classIndex.getFilePath());
+        this.addInheritance(index, name, info, classIndex, file);
+      }
       return info;
     }
   }
@@ -863,6 +881,18 @@ public class ASMReflector {
                         }
                       }));
     } else if (isJar(file)) {
+      Optional<ChannelJarFile> channelJar = openChannelJar(file);
+      if (channelJar.isPresent()) {
+        try (ChannelJarFile jarFile = channelJar.get()) {
+          jarFile.forEachClass(
+              className -> !this.ignorePackage(className) && !className.endsWith("module-info"),
+              (className, bytes, length) -> {
+                count.incrementAndGet();
+                scanner.scan(file, className, new ByteArrayInputStream(bytes, 0, length));
+              });
+        }
+        return count.get();
+      }
       try (JarFile jarFile = new JarFile(file);
           Stream<JarEntry> jarStream = jarFile.stream();
           Stream<JarEntry> stream =
@@ -950,10 +980,6 @@ public class ASMReflector {
         String nameWithTP = it.next();
         List<MemberDescriptor> members = innerCache.get(nameWithTP);
         if (nonNull(members)) {
-          boolean isSuper = !mainClass.equals(nameWithTP);
-          if (isSuper) {
-            replaceDescriptorsType(nameWithTP, members);
-          }
           results.addAll(members);
           it.remove();
         }
@@ -962,6 +988,10 @@ public class ASMReflector {
     }
   }
 
+  public static void clearInnerCache() {
+    innerCache.clear();
+  }
+
   private static List<MemberDescriptor> cacheMember(
       String key, Supplier<List<MemberDescriptor>> supplier) {
 
@@ -970,13 +1000,14 @@ public class ASMReflector {
 
       scope.addAnnotation(TelemetryUtils.annotationBuilder().put("key", key).build("args"));
 
+      // shared, the type parameters of a super class are replaced before caching
       List<MemberDescriptor> list = innerCache.get(key);
       if (nonNull(list)) {
-        return list.stream().map(MemberDescriptor::clone).collect(Collectors.toList());
+        return list;
       }
       List<MemberDescriptor> newVal = supplier.get();
-      innerCache.putIfAbsent(key, newVal);
-      return newVal;
+      List<MemberDescriptor> old = innerCache.putIfAbsent(key, newVal);
+      return nonNull(old) ? old : newVal;
     }
   }
 
@@ -984,20 +1015,4 @@ public class ASMReflector {
   public interface Scanner {
     void scan(File file, String name, InputStream in) throws IOException;
   }
-
-  private static class LRUHashMap<K, V> extends LinkedHashMap<K, V> {
-
-    private static final long serialVersionUID = -4698744302635028207L;
-    private final int capacity;
-
-    LRUHashMap(int capacity) {
-      super(512, 0.75f, true);
-      this.capacity = capacity;
-    }
-
-    @Override
-    public boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-      return size() > capacity;
-    }
-  }
 }
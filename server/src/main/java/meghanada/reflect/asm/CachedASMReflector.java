@@ -1,9 +1,12 @@
 package meghanada.reflect.asm;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static meghanada.utils.FunctionUtils.wrapIOConsumer;
 import static org.apache.lucene.document.Field.Store.YES;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.io.File;
@@ -14,6 +17,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -23,17 +27,21 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import jetbrains.exodus.entitystore.EntityId;
 import meghanada.cache.GlobalCache;
+import meghanada.config.Config;
 import meghanada.index.IndexDatabase;
 import meghanada.index.SearchIndexable;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
+import meghanada.store.JarFingerprints;
 import meghanada.store.ProjectDatabaseHelper;
+import meghanada.store.SharedJarCache;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.utils.ClassName;
 import meghanada.utils.ClassNameUtils;
@@ -47,12 +55,18 @@ import org.objectweb.asm.ClassReader;
 public class CachedASMReflector {
 
   private static final int CACHE_SIZE = 1024 * 16;
+  private static final int HOT_PARAMETERIZATION_SIZE = 64;
   private static final Logger log = LogManager.getLogger(CachedASMReflector.class);
 
   private static final Pattern PACKAGE_RE = Pattern.compile("\\.\\*");
   private static CachedASMReflector cachedASMReflector;
 
-  private final Map<String, ClassIndex> globalClassIndex = new ConcurrentHashMap<>(CACHE_SIZE);
+  private final ClassIndexMap globalClassIndex = new ClassIndexMap(CACHE_SIZE);
+  // recently used parameterizations, e.g. java.util.List<java.lang.String>
+  private final Cache<String, ParameterizedMembers> parameterized =
+      CacheBuilder.newBuilder().maximumSize(HOT_PARAMETERIZATION_SIZE).build();
+  private final Set<File> snapshotFiles = ConcurrentHashMap.newKeySet();
+  private final Set<File> restoredJars = ConcurrentHashMap.newKeySet();
 
   private final Set<File> jars = new HashSet<>(64);
   private final Set<File> directories = new HashSet<>(8);
@@ -93,34 +107,20 @@ public class CachedASMReflector {
     }
   }
 
-  private static List<MemberDescriptor> replaceTypeParameters(
-      String className, String classWithTP, List<MemberDescriptor> members) {
+  private static Map<String, String> typeArguments(String className, String classWithTP) {
 
     int idx = classWithTP.indexOf('<');
-    if (idx >= 0) {
-      List<String> types = ClassNameUtils.parseTypeParameter(classWithTP);
-      List<String> realTypes = ClassNameUtils.parseTypeParameter(className);
-
-      for (MemberDescriptor md : members) {
-        if (md.hasTypeParameters()) {
-          md.clearTypeParameterMap();
-          int realSize = realTypes.size();
-          for (int i = 0; i < types.size(); i++) {
-            String t = types.get(i);
-            if (realSize > i) {
-              String real = realTypes.get(i);
-              md.putTypeParameter(t, real);
-            }
-          }
-        }
-
-        String declaringClass = ClassNameUtils.removeTypeParameter(md.getDeclaringClass());
-        if (className.startsWith(declaringClass)) {
-          md.setDeclaringClass(className);
-        }
-      }
+    if (idx < 0) {
+      return Collections.emptyMap();
     }
-    return members;
+    List<String> types = ClassNameUtils.parseTypeParameter(classWithTP);
+    List<String> realTypes = ClassNameUtils.parseTypeParameter(className);
+    Map<String, String> result = new LinkedHashMap<>(4);
+    int realSize = realTypes.size();
+    for (int i = 0; i < types.size() && i < realSize; i++) {
+      result.put(types.get(i), realTypes.get(i));
+    }
+    return result;
   }
 
   public static ClassIndex cloneClassIndex(ClassIndex c) {
@@ -158,23 +158,20 @@ public class CachedASMReflector {
   public void createClassIndexes() {
     try (TelemetryUtils.ScopedSpan scope =
         TelemetryUtils.startScopedSpan("CachedASMReflector.createClassIndexes")) {
+      this.loadJDKSnapshot();
       this.jars
           .parallelStream()
           .forEach(
               wrapIOConsumer(
                   root -> {
                     String name = root.getName();
-                    if (name.endsWith(".jar")
-                        && !name.endsWith("SNAPSHOT.jar")
-                        && ProjectDatabaseHelper.getLoadJar(root.getPath())) {
-                      List<ClassIndex> indexes =
-                          ProjectDatabaseHelper.getClassIndexes(root.getPath());
-
-                      for (ClassIndex index : indexes) {
-                        index.loaded = true;
-                        String fqcn = index.getRawDeclaration();
-                        this.globalClassIndex.put(fqcn, index);
-                      }
+                    if (this.isInSnapshot(root) || this.restoredJars.contains(root)) {
+                      return;
+                    }
+                    if (SharedJarCache.isEnabled() && SharedJarCache.isCacheable(root)) {
+                      this.loadSharedClassIndexes(root);
+                    } else if (name.endsWith(".jar")) {
+                      this.loadJarClassIndexes(root);
                     } else {
                       ASMReflector reflector = ASMReflector.getInstance();
                       reflector
@@ -182,23 +179,113 @@ public class CachedASMReflector {
                           .entrySet()
                           .parallelStream()
                           .forEach(entry -> addClassIndex(entry.getKey(), entry.getValue()));
-                      if (name.endsWith(".jar") && !name.endsWith("SNAPSHOT.jar")) {
-                        ProjectDatabaseHelper.saveLoadJar(root.getPath());
-                      }
                     }
                   }));
 
       this.updateClassIndexFromDirectory();
       this.saveAllClassIndexes();
+      JarFingerprints.getInstance().save();
       TelemetryUtils.recordClassIndexes(globalClassIndex.size());
     }
   }
 
+  private void loadJDKSnapshot() {
+    if (!Config.load().useJDKSnapshot() || nonNull(this.globalClassIndex.getSnapshot())) {
+      return;
+    }
+    List<File> systemFiles =
+        Stream.concat(this.jars.stream(), this.directories.stream())
+            .filter(JDKClassSnapshot::isSystemFile)
+            .collect(Collectors.toList());
+    if (systemFiles.isEmpty()) {
+      return;
+    }
+    try {
+      JDKClassSnapshot snapshot = JDKClassSnapshot.load(systemFiles);
+      this.snapshotFiles.clear();
+      this.snapshotFiles.addAll(systemFiles);
+      this.globalClassIndex.setSnapshot(snapshot);
+      log.info("load jdk class index snapshot {} classes:{}", snapshot.getFile(), snapshot.size());
+    } catch (IOException e) {
+      log.warn("failed load jdk snapshot {}", e.getMessage());
+    }
+  }
+
+  private boolean isInSnapshot(File file) {
+    return nonNull(this.globalClassIndex.getSnapshot()) && this.snapshotFiles.contains(file);
+  }
+
+  private void loadJarClassIndexes(File jar) throws IOException {
+    String path = jar.getPath();
+    // class indexes store the canonical path
+    String filePath = jar.getCanonicalPath();
+    String hash = JarFingerprints.getInstance().get(jar).getHash();
+    Optional<String> stored = ProjectDatabaseHelper.getLoadJarHash(path);
+    if (stored.isPresent() && stored.get().equals(hash)) {
+      for (ClassIndex index : ProjectDatabaseHelper.getClassIndexes(filePath)) {
+        index.loaded = true;
+        this.globalClassIndex.put(index.getRawDeclaration(), index);
+      }
+      return;
+    }
+
+    ASMReflector reflector = ASMReflector.getInstance();
+    Map<ClassIndex, File> classes = reflector.getClasses(jar);
+    classes.entrySet().parallelStream().forEach(e -> addClassIndex(e.getKey(), e.getValue()));
+    if (stored.isPresent()) {
+      // replaced at the same path, drop the removed classes and rewrite the rest
+      List<ClassIndex> indexes = new ArrayList<>(classes.keySet());
+      Set<String> declarations =
+          indexes.stream().map(ClassIndex::getRawDeclaration).collect(Collectors.toSet());
+      int deleted = ProjectDatabaseHelper.deleteStaleClassIndexes(filePath, declarations);
+      for (ClassIndex index : indexes) {
+        index.loaded = true;
+      }
+      ProjectDatabaseHelper.saveClassIndexes(indexes, true);
+      log.info("reindexed changed jar {} classes:{} removed:{}", jar, indexes.size(), deleted);
+    }
+    ProjectDatabaseHelper.saveLoadJar(path, hash);
+  }
+
+  private void loadSharedClassIndexes(File jar) throws IOException {
+    SharedJarCache sharedJarCache = SharedJarCache.getInstance();
+    Optional<List<ClassIndex>> cached = sharedJarCache.loadClassIndexes(jar);
+    List<ClassIndex> indexes;
+    if (cached.isPresent()) {
+      indexes = cached.get();
+    } else {
+      ASMReflector reflector = ASMReflector.getInstance();
+      indexes = new ArrayList<>(reflector.getClasses(jar).keySet());
+      for (ClassIndex index : indexes) {
+        ASMReflector.setFilePath(index, jar);
+      }
+      sharedJarCache.saveClassIndexes(jar, indexes);
+    }
+    for (ClassIndex index : indexes) {
+      // owned by the shared cache, don't copy into the project database
+      index.loaded = true;
+      ASMReflector.setFilePath(index, jar);
+      this.globalClassIndex.put(index.getRawDeclaration(), index);
+    }
+  }
+
+  public Collection<ClassIndex> getLocalClassIndexes() {
+    return this.globalClassIndex.localValues();
+  }
+
+  public void restoreClassIndexes(Collection<File> jars, Collection<ClassIndex> indexes) {
+    for (ClassIndex index : indexes) {
+      this.globalClassIndex.putIfAbsent(index.getRawDeclaration(), index);
+    }
+    // these jars are not read again by createClassIndexes
+    this.restoredJars.addAll(jars);
+  }
+
   private void saveAllClassIndexes() {
     List<ClassIndex> jarIndexes = new ArrayList<>(1024);
     List<ClassIndex> otherIndexes = new ArrayList<>(1024);
     globalClassIndex
-        .values()
+        .localValues()
         .forEach(
             index -> {
               if (!index.getFilePath().endsWith(".jar")) {
@@ -216,7 +303,7 @@ public class CachedASMReflector {
 
   private void updateClassIndexes() {
     List<ClassIndex> otherIndexes =
-        globalClassIndex.values().stream()
+        globalClassIndex.localValues().stream()
             .filter(classIndex -> !classIndex.getFilePath().endsWith(".jar"))
             .collect(Collectors.toList());
 
@@ -247,7 +334,11 @@ public class CachedASMReflector {
         .forEach(
             wrapIOConsumer(
                 jar -> {
-                  if (this.jars.contains(jar)) {
+                  if (this.jars.contains(jar) || this.isInSnapshot(jar)) {
+                    return;
+                  }
+                  if (SharedJarCache.isEnabled() && SharedJarCache.isCacheable(jar)) {
+                    this.loadSharedClassIndexes(jar);
                     return;
                   }
                   ASMReflector reflector = ASMReflector.getInstance();
@@ -259,6 +350,7 @@ public class CachedASMReflector {
                 }));
     this.jars.addAll(addJars);
     this.saveAllClassIndexes();
+    JarFingerprints.getInstance().save();
   }
 
   public void updateClassIndexFromDirectory() {
@@ -267,6 +359,9 @@ public class CachedASMReflector {
       stream.forEach(
           wrapIOConsumer(
               file -> {
+                if (this.isInSnapshot(file)) {
+                  return;
+                }
                 // TODO is loaded ?
                 ASMReflector reflector = ASMReflector.getInstance();
                 reflector
@@ -304,42 +399,31 @@ public class CachedASMReflector {
     }
 
     Map<String, String> result = new HashMap<>(64);
-
-    for (ClassIndex ci : this.globalClassIndex.values()) {
-      if (ci.getPackage().equals(packageName)) {
-        result.putIfAbsent(ci.getName(), ci.getRawDeclaration());
-      }
-    }
-
+    this.globalClassIndex
+        .packageClasses(packageName)
+        .forEach(ci -> result.putIfAbsent(ci.getName(), ci.getRawDeclaration()));
     return result;
   }
 
   public List<ClassIndex> searchInnerClasses(String parent) {
     return this.globalClassIndex
-        .values()
-        .parallelStream()
-        .filter(classIndex -> classIndex.getReturnType().startsWith(parent + '$'))
+        .innerClasses(parent)
         .map(CachedASMReflector::cloneClassIndex)
         .collect(Collectors.toList());
   }
 
   public List<ClassIndex> searchInnerClasses(Set<String> parents) {
     List<ClassIndex> result = new ArrayList<>(16);
-    for (ClassIndex ci : this.globalClassIndex.values()) {
-      String returnType = ci.getReturnType();
-      for (String parent : parents) {
-        if (returnType.startsWith(parent + '$')) {
-          result.add(cloneClassIndex(ci));
-        }
-      }
+    for (String parent : parents) {
+      this.globalClassIndex.innerClasses(parent).forEach(ci -> result.add(cloneClassIndex(ci)));
     }
     return result;
   }
 
   public List<ClassIndex> searchClasses(final String keyword, final boolean includeAnnotation) {
+    // exact match only, every candidate shares the innermost simple name
     return this.globalClassIndex
-        .values()
-        .parallelStream()
+        .simpleNameClasses(ClassIndexMap.simpleNameKey(keyword))
         .filter(
             c -> {
               if (!includeAnnotation && c.isAnnotation()) {
@@ -351,121 +435,93 @@ public class CachedASMReflector {
         .collect(Collectors.toList());
   }
 
-  public Stream<ClassIndex> allClassStream() {
-    return this.globalClassIndex.values().parallelStream();
+  /** Declarations of all classes, without loading the JDK classes. */
+  public Stream<String> classDeclarationStream() {
+    return this.globalClassIndex.declarations();
+  }
+
+  /**
+   * Classes whose name is returned by the query, without scanning every class.
+   *
+   * @param query selects candidate names from the name index
+   */
+  public Stream<ClassIndex> classNameStream(Function<ClassNameIndex, Stream<String>> query) {
+    return this.globalClassIndex.nameClasses(query.apply(this.globalClassIndex.getNameIndex()));
   }
 
+  /**
+   * Members of the class.
+   *
+   * <p>The descriptors are shared with the member cache and must not be modified, members of a
+   * parameterized class are specialized copies.
+   */
   public List<MemberDescriptor> reflect(String className) {
+    return this.members(className).toList();
+  }
+
+  private ParameterizedMembers members(String className) {
     ClassName cn = new ClassName(className);
     // check type parameter
     String classWithoutTP = cn.getName();
-    GlobalCache globalCache = GlobalCache.getInstance();
+    List<MemberDescriptor> list;
     try {
-      List<MemberDescriptor> members = new ArrayList<>(16);
-      List<MemberDescriptor> list = globalCache.getMemberDescriptors(classWithoutTP);
-      if (!list.isEmpty()) {
-        // TelemetryUtils.recordAutocompleteStat(classWithoutTP);
-      }
-      for (MemberDescriptor md : list) {
-        members.add(md.clone());
-      }
-      if (cn.hasTypeParameter()) {
-        return this.replaceMembers(classWithoutTP, className, members);
-      }
-      return members;
+      list = GlobalCache.getInstance().getMemberDescriptors(classWithoutTP);
     } catch (ExecutionException e) {
       throw new UncheckedExecutionException(e);
     }
-  }
-
-  private List<MemberDescriptor> replaceMembers(
-      String classWithoutTP, String className, List<MemberDescriptor> members) {
-
+    if (!cn.hasTypeParameter()) {
+      return ParameterizedMembers.of(list);
+    }
+    ParameterizedMembers members = this.parameterized.getIfPresent(className);
+    if (nonNull(members) && members.isBase(list)) {
+      return members;
+    }
     ClassIndex classIdx = this.globalClassIndex.get(classWithoutTP);
-    if (classIdx != null) {
-      return replaceTypeParameters(className, classIdx.getDisplayDeclaration(), members);
+    if (isNull(classIdx)) {
+      return ParameterizedMembers.of(list);
     }
+    members =
+        new ParameterizedMembers(
+            list, className, typeArguments(className, classIdx.getDisplayDeclaration()));
+    this.parameterized.put(className, members);
     return members;
   }
 
-  private Stream<MemberDescriptor> reflectStream(String className) {
-    return this.reflect(className).stream();
-  }
-
   public Stream<MemberDescriptor> reflectMethodStream(String className, String name) {
-    return this.reflect(className).stream()
-        .filter(m -> m.getName().equals(name) && m.matchType(CandidateUnit.MemberType.METHOD));
+    return this.reflectMethods(className, name).stream();
   }
 
   public Collection<MemberDescriptor> reflectMethods(String className, String name) {
-    List<MemberDescriptor> result = new ArrayList<>(16);
-    for (MemberDescriptor m : this.reflect(className)) {
-      if (m.getName().equals(name) && m.matchType(CandidateUnit.MemberType.METHOD)) {
-        result.add(m);
-      }
-    }
-    return result;
+    return this.members(className)
+        .filter(m -> m.getName().equals(name) && m.matchType(CandidateUnit.MemberType.METHOD));
   }
 
   public Stream<MemberDescriptor> reflectConstructorStream(String className) {
-    return this.reflect(className).stream()
-        .filter(m -> m.matchType(CandidateUnit.MemberType.CONSTRUCTOR));
+    return this.reflectConstructors(className).stream();
   }
 
   public Collection<MemberDescriptor> reflectConstructors(String className) {
-    List<MemberDescriptor> result = new ArrayList<>(16);
-    for (MemberDescriptor m : this.reflect(className)) {
-      if (m.matchType(CandidateUnit.MemberType.CONSTRUCTOR)) {
-        result.add(m);
-      }
-    }
-    return result;
+    return this.members(className).filter(m -> m.matchType(CandidateUnit.MemberType.CONSTRUCTOR));
   }
 
   public Stream<String> getSuperClassStream(String className) {
     return this.getSuperClass(className).stream();
   }
 
-  private Collection<String> getSuperClassInternal(String className) {
+  public Collection<String> getSuperClass(String className) {
     try (TelemetryUtils.ScopedSpan ss =
-        TelemetryUtils.startScopedSpan("CachedASMReflector.getSuperClassInternal")) {
+        TelemetryUtils.startScopedSpan("CachedASMReflector.getSuperClass")) {
 
       ss.addAnnotation(
           TelemetryUtils.annotationBuilder().put("className", className).build("args"));
 
-      Set<String> result = new LinkedHashSet<>(4);
-      String fqcn = ClassNameUtils.removeTypeParameter(className);
-      this.containsClassIndex(fqcn)
-          .ifPresent(
-              ci -> {
-                List<String> supers = ci.getSupers();
-                if (supers.isEmpty()) {
-                  return;
-                }
-
-                if (supers.size() == 1 && supers.get(0).equals(ClassNameUtils.OBJECT_CLASS)) {
-                  return;
-                }
-
-                for (String superClazz : supers) {
-                  if (!superClazz.equals(ClassNameUtils.OBJECT_CLASS)) {
-                    String clazz = ClassNameUtils.removeTypeMark(superClazz);
-                    result.add(clazz);
-                    result.addAll(getSuperClassInternal(superClazz));
-                  }
-                }
-              });
-
+      Set<String> result =
+          new LinkedHashSet<>(this.globalClassIndex.getSupertypeTable().superClasses(className));
+      result.add(ClassNameUtils.OBJECT_CLASS);
       return result;
     }
   }
 
-  public Collection<String> getSuperClass(String className) {
-    Collection<String> result = getSuperClassInternal(className);
-    result.add(ClassNameUtils.OBJECT_CLASS);
-    return result;
-  }
-
   public Optional<ClassIndex> containsClassIndex(String className) {
     return Optional.ofNullable(this.globalClassIndex.get(className));
   }
@@ -486,48 +542,39 @@ public class CachedASMReflector {
   }
 
   public void scanAllStaticMembers() {
-    IndexDatabase database = IndexDatabase.getInstance();
-    try (Stream<File> stream = this.directories.stream().parallel()) {
-      stream.forEach(
-          file -> {
-            ConcurrentLinkedDeque<MemberDescriptor> deque = new ConcurrentLinkedDeque<>();
-            try {
-              scanMembers(file, deque);
-              MemberIndex mi = new MemberIndex(file.getCanonicalPath(), deque);
-              IndexDatabase.requestIndex(mi, event -> {});
-            } catch (IOException e) {
-              throw new UncheckedIOException(e);
-            }
-          });
+    // the members are scanned on the bulk pool as the groups are indexed, only the groups in
+    // flight are kept in memory
+    final List<SearchIndexable> indexes = new ArrayList<>(this.directories.size() + 64);
+    // jars to store after the commit
+    final List<String> jars = new ArrayList<>(64);
+    try {
+      for (File file : this.directories) {
+        indexes.add(new MemberIndex(file.getCanonicalPath(), file));
+      }
+      for (File file : this.jars) {
+        final String path = file.getCanonicalPath();
+        if (ProjectDatabaseHelper.isIndexedFile(path)) {
+          continue;
+        }
+        indexes.add(new MemberIndex(path, file));
+        if (file.getName().endsWith(".jar")) {
+          jars.add(path);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
 
-    this.jars
-        .parallelStream()
-        .forEach(
-            file -> {
-              try {
-                final String path = file.getCanonicalPath();
-                boolean b = ProjectDatabaseHelper.isIndexedFile(path);
-                if (b) {
-                  return;
-                }
-                ConcurrentLinkedDeque<MemberDescriptor> deque = new ConcurrentLinkedDeque<>();
-                scanMembers(file, deque);
-                final MemberIndex mi = new MemberIndex(file.getCanonicalPath(), deque);
-                IndexDatabase.requestIndex(
-                    mi,
-                    event -> {
-                      // store
-                      String fileName = file.getName();
-                      if (fileName.endsWith(".jar")
-                          && !ProjectDatabaseHelper.saveIndexedFile(path)) {
-                        log.warn("failed save index. {}", path);
-                      }
-                    });
-              } catch (IOException e) {
-                throw new UncheckedIOException(e);
-              }
-            });
+    IndexDatabase.requestBulkIndex(
+        indexes,
+        event -> {
+          // store
+          for (String path : jars) {
+            if (!ProjectDatabaseHelper.saveIndexedFile(path)) {
+              log.warn("failed save index. {}", path);
+            }
+          }
+        });
   }
 
   private static void scanMembers(
@@ -573,11 +620,11 @@ public class CachedASMReflector {
 
   private static class MemberIndex implements SearchIndexable {
     private final String path;
-    private final Collection<MemberDescriptor> members;
+    private final File file;
 
-    MemberIndex(String path, Collection<MemberDescriptor> members) {
+    MemberIndex(String path, File file) {
       this.path = path;
-      this.members = members;
+      this.file = file;
     }
 
     @Override
@@ -587,15 +634,20 @@ public class CachedASMReflector {
 
     @Override
     public List<Document> getDocumentIndices() {
-      return this.members
-          .parallelStream()
-          .map(
-              desc -> {
-                Document doc = desc.toDocument();
-                doc.add(new StringField(SearchIndexable.GROUP_ID, this.path, YES));
-                return doc;
-              })
-          .collect(Collectors.toList());
+      // called on the pool of the bulk index
+      ConcurrentLinkedDeque<MemberDescriptor> deque = new ConcurrentLinkedDeque<>();
+      try {
+        scanMembers(this.file, deque);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      List<Document> docs = new ArrayList<>(deque.size());
+      for (MemberDescriptor desc : deque) {
+        Document doc = desc.toDocument();
+        doc.add(new StringField(SearchIndexable.GROUP_ID, this.path, YES));
+        docs.add(doc);
+      }
+      return docs;
     }
   }
 }
@@ -0,0 +1,266 @@
+package meghanada.reflect.asm;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import meghanada.utils.ClassNameUtils;
+
+/**
+ * Jar reader for class scanning.
+ *
+ * <p>Only the central directory is kept on the heap and parsed directly. Entries that are not
+ * classes are skipped on the raw name bytes before anything is allocated, and classes are read with
+ * positional reads of the file channel and inflated into thread local buffers that are reused
+ * across entries and jars. The channel is closed by {@link #close()}. Zip64 archives are not
+ * supported, {@link #open(File)} throws and the caller falls back to {@link java.util.jar.JarFile}.
+ */
+final class ChannelJarFile implements Closeable {
+
+  private static final int EOCD_SIGNATURE = 0x06054b50;
+  private static final int CEN_SIGNATURE = 0x02014b50;
+  private static final int LOC_SIGNATURE = 0x04034b50;
+  private static final int EOCD_SIZE = 22;
+  private static final int CEN_SIZE = 46;
+  private static final int LOC_SIZE = 30;
+  private static final int MAX_COMMENT = 0xffff;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+  private static final int ENCRYPTED = 1;
+  private static final byte[] CLASS_SUFFIX = ".class".getBytes(StandardCharsets.US_ASCII);
+
+  private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+  private final File file;
+  private final RandomAccessFile raf;
+  private final FileChannel channel;
+  // the central directory
+  private final ByteBuffer cen;
+  // central directory offsets of the class entries
+  private final int[] entries;
+  private final int size;
+
+  private ChannelJarFile(File file, RandomAccessFile raf) throws IOException {
+    this.file = file;
+    this.raf = raf;
+    this.channel = raf.getChannel();
+    long length = this.channel.size();
+
+    int tailLength = (int) Math.min(length, EOCD_SIZE + MAX_COMMENT);
+    ByteBuffer tail = read(this.channel, length - tailLength, tailLength);
+    int eocd = findEndOfCentralDirectory(tail);
+    int total = tail.getShort(eocd + 10) & 0xffff;
+    long cenSize = tail.getInt(eocd + 12) & 0xffffffffL;
+    long offset = tail.getInt(eocd + 16) & 0xffffffffL;
+    if (total == 0xffff || offset == 0xffffffffL || cenSize == 0xffffffffL) {
+      throw new IOException("zip64 is not supported " + file);
+    }
+    if (offset + cenSize > length) {
+      throw new IOException("invalid central directory " + file);
+    }
+    ByteBuffer cen = read(this.channel, offset, (int) cenSize);
+    int[] entries = new int[total];
+    int size = 0;
+    int pos = 0;
+    for (int i = 0; i < total; i++) {
+      if (pos + CEN_SIZE > cen.limit() || cen.getInt(pos) != CEN_SIGNATURE) {
+        throw new IOException("invalid central directory " + file);
+      }
+      int nameLength = cen.getShort(pos + 28) & 0xffff;
+      int extraLength = cen.getShort(pos + 30) & 0xffff;
+      int commentLength = cen.getShort(pos + 32) & 0xffff;
+      if (endsWith(cen, pos + CEN_SIZE, nameLength, CLASS_SUFFIX)) {
+        entries[size++] = pos;
+      }
+      pos += CEN_SIZE + nameLength + extraLength + commentLength;
+    }
+    this.cen = cen;
+    this.entries = entries;
+    this.size = size;
+  }
+
+  static ChannelJarFile open(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      return new ChannelJarFile(file, raf);
+    } catch (IOException | RuntimeException e) {
+      raf.close();
+      throw e;
+    }
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(channel, buffer, position);
+    buffer.flip();
+    return buffer;
+  }
+
+  // positional reads don't move the channel position, safe from any thread
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, position);
+      if (n < 0) {
+        throw new EOFException();
+      }
+      position += n;
+    }
+  }
+
+  private static int findEndOfCentralDirectory(ByteBuffer buffer) throws IOException {
+    int limit = Math.max(0, buffer.limit() - EOCD_SIZE - MAX_COMMENT);
+    for (int pos = buffer.limit() - EOCD_SIZE; pos >= limit; pos--) {
+      if (buffer.getInt(pos) == EOCD_SIGNATURE) {
+        return pos;
+      }
+    }
+    throw new IOException("end of central directory not found");
+  }
+
+  private static boolean endsWith(ByteBuffer buffer, int pos, int length, byte[] suffix) {
+    if (length < suffix.length) {
+      return false;
+    }
+    int start = pos + length - suffix.length;
+    for (int i = 0; i < suffix.length; i++) {
+      if (buffer.get(start + i) != suffix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  /** Number of class entries. */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Reads the class entries in parallel.
+   *
+   * <p>The bytes passed to the consumer are only valid during the call.
+   *
+   * @param filter class names (dot separated, without .class) to read
+   */
+  void forEachClass(Predicate<String> filter, ClassConsumer consumer) {
+    IntStream.range(0, this.size)
+        .parallel()
+        .forEach(
+            i -> {
+              try {
+                this.readClass(this.entries[i], filter, consumer);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
+  private void readClass(int cen, Predicate<String> filter, ClassConsumer consumer)
+      throws IOException {
+    int flags = this.cen.getShort(cen + 8) & 0xffff;
+    int method = this.cen.getShort(cen + 10) & 0xffff;
+    int compressedSize = this.cen.getInt(cen + 20);
+    int size = this.cen.getInt(cen + 24);
+    int nameLength = this.cen.getShort(cen + 28) & 0xffff;
+    long loc = this.cen.getInt(cen + 42) & 0xffffffffL;
+    if ((flags & ENCRYPTED) != 0 || (method != STORED && method != DEFLATED)) {
+      return;
+    }
+
+    // the central directory is a heap buffer
+    String entryName =
+        new String(
+            this.cen.array(),
+            this.cen.arrayOffset() + cen + CEN_SIZE,
+            nameLength - CLASS_SUFFIX.length,
+            StandardCharsets.UTF_8);
+    String className = ClassNameUtils.replaceSlash(entryName);
+    if (!filter.test(className)) {
+      return;
+    }
+
+    Buffers buffers = ChannelJarFile.buffers.get();
+    ByteBuffer header = buffers.header;
+    header.clear();
+    readFully(this.channel, header, loc);
+    if (header.getInt(0) != LOC_SIGNATURE) {
+      throw new IOException("invalid local header " + entryName + " in " + this.file);
+    }
+    long data = loc + LOC_SIZE + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+    byte[] out = buffers.output(size);
+    if (method == STORED) {
+      readFully(this.channel, ByteBuffer.wrap(out, 0, size), data);
+    } else {
+      // nowrap inflater wants an extra dummy byte
+      byte[] in = buffers.input(compressedSize + 1);
+      readFully(this.channel, ByteBuffer.wrap(in, 0, compressedSize), data);
+      in[compressedSize] = 0;
+      Inflater inflater = buffers.inflater;
+      inflater.reset();
+      inflater.setInput(in, 0, compressedSize + 1);
+      try {
+        int n = 0;
+        while (n < size && !inflater.finished()) {
+          int r = inflater.inflate(out, n, size - n);
+          if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          n += r;
+        }
+        if (n != size) {
+          throw new IOException("truncated entry " + entryName + " in " + this.file);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException(e);
+      }
+    }
+    consumer.accept(className, out, size);
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.raf.close();
+  }
+
+  @FunctionalInterface
+  interface ClassConsumer {
+    void accept(String className, byte[] bytes, int length) throws IOException;
+  }
+
+  private static class Buffers {
+    private final Inflater inflater = new Inflater(true);
+    private final ByteBuffer header = ByteBuffer.allocate(LOC_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private byte[] in = new byte[8192];
+    private byte[] out = new byte[16384];
+
+    byte[] input(int size) {
+      if (this.in.length < size) {
+        this.in = new byte[Math.max(size, this.in.length * 2)];
+      }
+      return this.in;
+    }
+
+    byte[] output(int size) {
+      if (this.out.length < size) {
+        this.out = new byte[Math.max(size, this.out.length * 2)];
+      }
+      return this.out;
+    }
+  }
+}
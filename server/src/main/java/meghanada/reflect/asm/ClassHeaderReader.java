@@ -0,0 +1,125 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Reads a class index from the class header and the class attributes only.
+ *
+ * <p>Fields and methods are skipped by their attribute lengths without creating visitors, the
+ * members are reflected later on demand by {@link meghanada.cache.MemberCacheLoader}. The header is
+ * fed to a class only {@link ClassAnalyzeVisitor}, so the index is the same as with a full parse.
+ */
+final class ClassHeaderReader {
+
+  private static final String SIGNATURE = "Signature";
+  private static final String INNER_CLASSES = "InnerClasses";
+  private static final String VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+  private ClassHeaderReader() {}
+
+  static ClassIndex read(ClassReader reader, String className) {
+    char[] buf = new char[reader.getMaxStringLength()];
+    int access = reader.getAccess();
+    String name = reader.getClassName();
+
+    // access, this, super, interfaces
+    int offset = reader.header + 6;
+    offset += 2 + reader.readUnsignedShort(offset) * 2;
+    // fields and methods
+    offset = skipMembers(reader, offset);
+    offset = skipMembers(reader, offset);
+
+    String signature = null;
+    int innerClasses = 0;
+    int annotations = 0;
+    int count = reader.readUnsignedShort(offset);
+    offset += 2;
+    for (int i = 0; i < count; i++) {
+      String attribute = reader.readUTF8(offset, buf);
+      int length = reader.readInt(offset + 2);
+      int value = offset + 6;
+      if (SIGNATURE.equals(attribute)) {
+        signature = reader.readUTF8(value, buf);
+      } else if (INNER_CLASSES.equals(attribute)) {
+        innerClasses = value;
+      } else if (VISIBLE_ANNOTATIONS.equals(attribute)) {
+        annotations = value;
+      }
+      offset = value + length;
+    }
+
+    ClassAnalyzeVisitor visitor = new ClassAnalyzeVisitor(className, true, false);
+    visitor.visit(
+        reader.readInt(4), access, name, signature, reader.getSuperName(), reader.getInterfaces());
+    if (innerClasses != 0) {
+      int n = reader.readUnsignedShort(innerClasses);
+      int entry = innerClasses + 2;
+      for (int i = 0; i < n; i++) {
+        visitor.visitInnerClass(
+            reader.readClass(entry, buf),
+            reader.readClass(entry + 2, buf),
+            reader.readUTF8(entry + 4, buf),
+            reader.readUnsignedShort(entry + 6));
+        entry += 8;
+      }
+    }
+    if (annotations != 0) {
+      int n = reader.readUnsignedShort(annotations);
+      int annotation = annotations + 2;
+      for (int i = 0; i < n; i++) {
+        visitor.visitAnnotation(reader.readUTF8(annotation, buf), true);
+        annotation = skipAnnotation(reader, annotation);
+      }
+    }
+    return visitor.getClassIndex();
+  }
+
+  private static int skipMembers(ClassReader reader, int offset) {
+    int count = reader.readUnsignedShort(offset);
+    offset += 2;
+    for (int i = 0; i < count; i++) {
+      // access, name, descriptor
+      offset += 6;
+      int attributes = reader.readUnsignedShort(offset);
+      offset += 2;
+      for (int j = 0; j < attributes; j++) {
+        offset += 6 + reader.readInt(offset + 2);
+      }
+    }
+    return offset;
+  }
+
+  private static int skipAnnotation(ClassReader reader, int offset) {
+    // type, element value pairs
+    int pairs = reader.readUnsignedShort(offset + 2);
+    offset += 4;
+    for (int i = 0; i < pairs; i++) {
+      offset = skipElementValue(reader, offset + 2);
+    }
+    return offset;
+  }
+
+  private static int skipElementValue(ClassReader reader, int offset) {
+    int tag = reader.readByte(offset);
+    offset++;
+    switch (tag) {
+      case 'e':
+        return offset + 4;
+      case '@':
+        return skipAnnotation(reader, offset);
+      case '[':
+        {
+          int values = reader.readUnsignedShort(offset);
+          offset += 2;
+          for (int i = 0; i < values; i++) {
+            offset = skipElementValue(reader, offset);
+          }
+          return offset;
+        }
+      default:
+        // constants and class
+        return offset + 2;
+    }
+  }
+}
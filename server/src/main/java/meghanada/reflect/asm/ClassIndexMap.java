@@ -0,0 +1,331 @@
+package meghanada.reflect.asm;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import meghanada.reflect.ClassIndex;
+import meghanada.utils.ClassNameUtils;
+
+/**
+ * Class index map that layers project and library classes over the read-only JDK snapshot.
+ *
+ * <p>Writes always go to the local map. JDK classes are read from the mapped snapshot and only
+ * recently used entries are kept on the heap.
+ *
+ * <p>Local entries are also indexed by package, innermost simple name and top level class, the
+ * snapshot carries the same indexes in its file, so package, name and inner class lookups don't
+ * scan the whole map. Names of both layers are kept in a {@link ClassNameIndex} for completion.
+ * Resolved supertype closures are kept in a {@link SupertypeTable} and dropped when a class on
+ * their path changes.
+ */
+class ClassIndexMap extends AbstractMap<String, ClassIndex> {
+
+  private static final int HOT_CACHE_SIZE = 2048;
+
+  private final Map<String, ClassIndex> local;
+  private final Map<String, Set<String>> byPackage = new ConcurrentHashMap<>(256);
+  private final Map<String, Set<String>> bySimpleName;
+  private final Map<String, Set<String>> byTopLevel = new ConcurrentHashMap<>(256);
+  private final ClassNameIndex nameIndex = new ClassNameIndex();
+  private final SupertypeTable supertypes = new SupertypeTable(this);
+  private final Cache<String, ClassIndex> hot =
+      CacheBuilder.newBuilder().maximumSize(HOT_CACHE_SIZE).build();
+  private volatile JDKClassSnapshot snapshot;
+  // local entries that shadow a snapshot entry
+  private final AtomicInteger shadowed = new AtomicInteger();
+
+  ClassIndexMap(int initialCapacity) {
+    this.local = new ConcurrentHashMap<>(initialCapacity);
+    this.bySimpleName = new ConcurrentHashMap<>(initialCapacity);
+  }
+
+  static String packageKey(String declaration) {
+    return ClassNameUtils.getPackage(declaration);
+  }
+
+  static String simpleNameKey(String name) {
+    int idx = Math.max(name.lastIndexOf('.'), name.lastIndexOf('$'));
+    return name.substring(idx + 1);
+  }
+
+  static String topLevelKey(String declaration) {
+    int idx = declaration.indexOf('$');
+    if (idx < 0) {
+      return declaration;
+    }
+    return declaration.substring(0, idx);
+  }
+
+  private static void addKey(Map<String, Set<String>> index, String key, String declaration) {
+    index.compute(
+        key,
+        (k, set) -> {
+          if (isNull(set)) {
+            set = ConcurrentHashMap.newKeySet();
+          }
+          set.add(declaration);
+          return set;
+        });
+  }
+
+  private static void removeKey(Map<String, Set<String>> index, String key, String declaration) {
+    index.computeIfPresent(
+        key,
+        (k, set) -> {
+          set.remove(declaration);
+          return set.isEmpty() ? null : set;
+        });
+  }
+
+  JDKClassSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  void setSnapshot(JDKClassSnapshot snapshot) {
+    this.snapshot = snapshot;
+    this.shadowed.set(
+        isNull(snapshot)
+            ? 0
+            : (int) this.local.keySet().stream().filter(snapshot::contains).count());
+    this.hot.invalidateAll();
+    this.supertypes.clear();
+    this.nameIndex.clear();
+    this.local.values().forEach(ci -> this.nameIndex.add(ci.getName(), ci.getRawDeclaration()));
+    if (nonNull(snapshot)) {
+      snapshot.forEachName(this.nameIndex::add);
+    }
+  }
+
+  ClassNameIndex getNameIndex() {
+    return nameIndex;
+  }
+
+  SupertypeTable getSupertypeTable() {
+    return supertypes;
+  }
+
+  Collection<ClassIndex> localValues() {
+    return this.local.values();
+  }
+
+  @Override
+  public ClassIndex get(Object key) {
+    ClassIndex index = this.local.get(key);
+    if (nonNull(index) || !(key instanceof String)) {
+      return index;
+    }
+    return this.getFromSnapshot((String) key);
+  }
+
+  private ClassIndex getFromSnapshot(String key) {
+    JDKClassSnapshot snapshot = this.snapshot;
+    if (isNull(snapshot)) {
+      return null;
+    }
+    ClassIndex index = this.hot.getIfPresent(key);
+    if (isNull(index)) {
+      index = snapshot.get(key);
+      if (nonNull(index)) {
+        this.hot.put(key, index);
+      }
+    }
+    return index;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (this.local.containsKey(key)) {
+      return true;
+    }
+    JDKClassSnapshot snapshot = this.snapshot;
+    return nonNull(snapshot) && key instanceof String && snapshot.contains((String) key);
+  }
+
+  @Override
+  public ClassIndex put(String key, ClassIndex value) {
+    // shadows the snapshot entry, if any
+    ClassIndex old = this.local.put(key, value);
+    this.supertypes.invalidate(key);
+    if (nonNull(old) && !old.getName().equals(value.getName())) {
+      this.removeName(key, old.getName());
+    }
+    this.nameIndex.add(value.getName(), key);
+    if (isNull(old)) {
+      if (this.inSnapshot(key)) {
+        this.shadowed.incrementAndGet();
+      }
+      addKey(this.byPackage, packageKey(key), key);
+      addKey(this.bySimpleName, simpleNameKey(key), key);
+      if (key.contains(ClassNameUtils.INNER_MARK)) {
+        addKey(this.byTopLevel, topLevelKey(key), key);
+      }
+    }
+    return old;
+  }
+
+  @Override
+  public ClassIndex remove(Object key) {
+    // snapshot entries are read only
+    ClassIndex old = this.local.remove(key);
+    if (nonNull(old)) {
+      String declaration = (String) key;
+      if (this.inSnapshot(declaration)) {
+        this.shadowed.decrementAndGet();
+      }
+      this.supertypes.invalidate(declaration);
+      removeKey(this.byPackage, packageKey(declaration), declaration);
+      removeKey(this.bySimpleName, simpleNameKey(declaration), declaration);
+      removeKey(this.byTopLevel, topLevelKey(declaration), declaration);
+      this.removeName(declaration, old.getName());
+    }
+    return old;
+  }
+
+  private void removeName(String declaration, String name) {
+    if (!this.inSnapshot(declaration)) {
+      this.nameIndex.remove(name, declaration);
+    }
+  }
+
+  private boolean inSnapshot(String declaration) {
+    JDKClassSnapshot snapshot = this.snapshot;
+    return nonNull(snapshot) && snapshot.contains(declaration);
+  }
+
+  @Override
+  public void clear() {
+    this.local.clear();
+    this.byPackage.clear();
+    this.bySimpleName.clear();
+    this.byTopLevel.clear();
+    this.setSnapshot(null);
+  }
+
+  private Stream<ClassIndex> lookup(
+      Map<String, Set<String>> index, String key, Stream<ClassIndex> fromSnapshot) {
+    Set<String> declarations = index.get(key);
+    Stream<ClassIndex> local =
+        isNull(declarations)
+            ? Stream.empty()
+            : declarations.stream().map(this.local::get).filter(Objects::nonNull);
+    if (isNull(fromSnapshot)) {
+      return local;
+    }
+    return Stream.concat(
+        local, fromSnapshot.filter(ci -> !this.local.containsKey(ci.getRawDeclaration())));
+  }
+
+  /** Classes whose name is one of the names, in the order of the names. */
+  Stream<ClassIndex> nameClasses(Stream<String> names) {
+    return names
+        .flatMap(name -> this.nameIndex.declarations(name).stream())
+        .map(this::get)
+        .filter(Objects::nonNull);
+  }
+
+  /** Classes in the package, inner classes included. */
+  Stream<ClassIndex> packageClasses(String pkg) {
+    JDKClassSnapshot snapshot = this.snapshot;
+    return this.lookup(this.byPackage, pkg, isNull(snapshot) ? null : snapshot.packageClasses(pkg));
+  }
+
+  /** Classes whose innermost simple name equals the name. */
+  Stream<ClassIndex> simpleNameClasses(String name) {
+    JDKClassSnapshot snapshot = this.snapshot;
+    return this.lookup(
+        this.bySimpleName, name, isNull(snapshot) ? null : snapshot.simpleNameClasses(name));
+  }
+
+  /** Classes nested (at any depth) in the parent class. */
+  Stream<ClassIndex> innerClasses(String parent) {
+    String prefix = parent + ClassNameUtils.INNER_MARK;
+    JDKClassSnapshot snapshot = this.snapshot;
+    return this.lookup(
+            this.byTopLevel,
+            topLevelKey(parent),
+            isNull(snapshot) ? null : snapshot.startsWith(prefix))
+        .filter(ci -> ci.getRawDeclaration().startsWith(prefix));
+  }
+
+  @Override
+  public int size() {
+    JDKClassSnapshot snapshot = this.snapshot;
+    if (isNull(snapshot)) {
+      return this.local.size();
+    }
+    return this.local.size() + snapshot.size() - this.shadowed.get();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    JDKClassSnapshot snapshot = this.snapshot;
+    return this.local.isEmpty() && (isNull(snapshot) || snapshot.size() == 0);
+  }
+
+  /** Declarations of all classes, snapshot records are not materialized. */
+  Stream<String> declarations() {
+    return this.nameIndex.names().flatMap(name -> this.nameIndex.declarations(name).stream());
+  }
+
+  Stream<ClassIndex> valueStream() {
+    JDKClassSnapshot snapshot = this.snapshot;
+    if (isNull(snapshot)) {
+      return this.local.values().stream();
+    }
+    return Stream.concat(
+        this.local.values().stream(),
+        snapshot.stream().filter(index -> !this.local.containsKey(index.getRawDeclaration())));
+  }
+
+  @Override
+  public Collection<ClassIndex> values() {
+    return new AbstractCollection<ClassIndex>() {
+      @Override
+      public Iterator<ClassIndex> iterator() {
+        return valueStream().iterator();
+      }
+
+      @Override
+      public Spliterator<ClassIndex> spliterator() {
+        return valueStream().spliterator();
+      }
+
+      @Override
+      public int size() {
+        return ClassIndexMap.this.size();
+      }
+    };
+  }
+
+  @Override
+  public Set<Entry<String, ClassIndex>> entrySet() {
+    return new AbstractSet<Entry<String, ClassIndex>>() {
+      @Override
+      public Iterator<Entry<String, ClassIndex>> iterator() {
+        return valueStream()
+            .<Entry<String, ClassIndex>>map(
+                index -> new SimpleImmutableEntry<>(index.getRawDeclaration(), index))
+            .iterator();
+      }
+
+      @Override
+      public int size() {
+        return ClassIndexMap.this.size();
+      }
+    };
+  }
+}
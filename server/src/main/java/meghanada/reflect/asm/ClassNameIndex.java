@@ -0,0 +1,230 @@
+package meghanada.reflect.asm;
+
+import static java.util.Objects.isNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Name index for class completion.
+ *
+ * <p>Distinct class names (see {@link meghanada.reflect.ClassIndex#getName()}) are kept sorted for
+ * prefix lookups, grouped by their camel humps (the upper case letters) and split into trigram
+ * postings for substring lookups. Completion matchers pick the lookup that covers their semantics
+ * and only verify the candidates, instead of every class.
+ */
+public class ClassNameIndex {
+
+  private static final int GRAM = 3;
+
+  // name -> declarations
+  private final NavigableMap<String, Set<String>> names = new ConcurrentSkipListMap<>();
+  // upper case letters -> names
+  private final NavigableMap<String, Set<String>> humps = new ConcurrentSkipListMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // guarded by lock, ids are never reused so postings stay sorted
+  private final Map<String, Integer> ids = new HashMap<>(1024);
+  private final List<String> idNames = new ArrayList<>(1024);
+  private final Map<String, Postings> postings = new HashMap<>(4096);
+
+  void add(String name, String declaration) {
+    Set<String> declarations =
+        this.names.computeIfAbsent(name, k -> ConcurrentHashMap.newKeySet(2));
+    declarations.add(declaration);
+    this.humps
+        .computeIfAbsent(upperCaseLetters(name), k -> ConcurrentHashMap.newKeySet(2))
+        .add(name);
+    this.lock.writeLock().lock();
+    try {
+      if (this.ids.containsKey(name)) {
+        return;
+      }
+      int id = this.idNames.size();
+      this.ids.put(name, id);
+      this.idNames.add(name);
+      for (int i = 0; i + GRAM <= name.length(); i++) {
+        this.postings.computeIfAbsent(name.substring(i, i + GRAM), k -> new Postings()).add(id);
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  void remove(String name, String declaration) {
+    // the postings keep the id, a removed name is skipped on lookup
+    Set<String> declarations =
+        this.names.computeIfPresent(
+            name,
+            (k, set) -> {
+              set.remove(declaration);
+              return set.isEmpty() ? null : set;
+            });
+    if (isNull(declarations)) {
+      this.humps.computeIfPresent(
+          upperCaseLetters(name),
+          (k, set) -> {
+            set.remove(name);
+            return set.isEmpty() ? null : set;
+          });
+    }
+  }
+
+  /** The ASCII upper case letters, the same humps as the camel case pattern. */
+  public static String upperCaseLetters(String name) {
+    StringBuilder sb = new StringBuilder(8);
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  void clear() {
+    this.lock.writeLock().lock();
+    try {
+      this.names.clear();
+      this.humps.clear();
+      this.ids.clear();
+      this.idNames.clear();
+      this.postings.clear();
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  Set<String> declarations(String name) {
+    Set<String> declarations = this.names.get(name);
+    if (isNull(declarations)) {
+      return Collections.emptySet();
+    }
+    return declarations;
+  }
+
+  public int size() {
+    return this.names.size();
+  }
+
+  /** All names, the fallback for matchers that can't be narrowed. */
+  public Stream<String> names() {
+    return this.names.keySet().stream();
+  }
+
+  /** Names that start with the prefix, in lexical order. */
+  public Stream<String> prefixed(String prefix) {
+    if (prefix.isEmpty()) {
+      return this.names();
+    }
+    return this.names.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet().stream();
+  }
+
+  /** Names whose upper case letters start with the letters. */
+  public Stream<String> humps(String letters) {
+    return this.humps.subMap(letters, true, letters + Character.MAX_VALUE, false).values().stream()
+        .flatMap(Set::stream);
+  }
+
+  /** Names that contain the keyword (case sensitive), names starting with it come first. */
+  public Stream<String> containing(String keyword) {
+    if (keyword.isEmpty()) {
+      return this.names();
+    }
+    Stream<String> candidates;
+    if (keyword.length() < GRAM) {
+      // short keywords match most names anyway
+      candidates = this.names();
+    } else {
+      candidates = this.gramCandidates(keyword).stream();
+    }
+    Stream<String> rest =
+        candidates.filter(name -> !name.startsWith(keyword) && name.contains(keyword));
+    return Stream.concat(this.prefixed(keyword), rest);
+  }
+
+  private List<String> gramCandidates(String keyword) {
+    this.lock.readLock().lock();
+    try {
+      List<Postings> lists = new ArrayList<>(keyword.length());
+      for (int i = 0; i + GRAM <= keyword.length(); i++) {
+        Postings p = this.postings.get(keyword.substring(i, i + GRAM));
+        if (isNull(p)) {
+          return Collections.emptyList();
+        }
+        lists.add(p);
+      }
+      // rarest gram first keeps the intersection small
+      lists.sort(Comparator.comparingInt(p -> p.size));
+      int[] result = null;
+      int size = 0;
+      for (Postings p : lists) {
+        if (isNull(result)) {
+          result = Arrays.copyOf(p.ids, p.size);
+          size = p.size;
+        } else {
+          size = intersect(result, size, p.ids, p.size);
+        }
+        if (size == 0) {
+          return Collections.emptyList();
+        }
+      }
+      List<String> names = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        String name = this.idNames.get(result[i]);
+        if (this.names.containsKey(name)) {
+          names.add(name);
+        }
+      }
+      return names;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  // intersects the sorted ids in place, returns the new size
+  private static int intersect(int[] a, int aSize, int[] b, int bSize) {
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < aSize && j < bSize) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        a[n++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return n;
+  }
+
+  private static class Postings {
+    private int[] ids = new int[4];
+    private int size;
+
+    void add(int id) {
+      // a gram repeated in the same name
+      if (this.size > 0 && this.ids[this.size - 1] == id) {
+        return;
+      }
+      if (this.size == this.ids.length) {
+        this.ids = Arrays.copyOf(this.ids, this.size * 2);
+      }
+      this.ids[this.size++] = id;
+    }
+  }
+}
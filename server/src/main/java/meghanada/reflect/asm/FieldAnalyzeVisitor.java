@@ -4,6 +4,7 @@ import com.google.common.base.MoreObjects;
 import java.util.ArrayList;
 import java.util.Map;
 import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.TypeRef;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.EntryMessage;
@@ -61,7 +62,7 @@ class FieldAnalyzeVisitor extends FieldVisitor {
   public void visitEnd() {
     final EntryMessage m = log.traceEntry("fieldSignature={}", fieldSignature);
     final String modifier = ASMReflector.toModifier(access, false);
-    final String fqcn = fieldSignatureVisitor.getResult();
+    final String fqcn = TypeRef.intern(fieldSignatureVisitor.getResult());
     final FieldDescriptor fd =
         new FieldDescriptor(this.classAnalyzeVisitor.className, this.name, modifier, fqcn);
     fd.setTypeParameters(fieldSignatureVisitor.getTypeParameters());
@@ -0,0 +1,553 @@
+package meghanada.reflect.asm;
+
+import static java.util.Objects.nonNull;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import meghanada.config.Config;
+import meghanada.module.ModuleHelper;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.ClassIndex;
+import meghanada.telemetry.TelemetryUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A read-only, memory-mapped class index of the JDK.
+ *
+ * <p>The file is generated once per JDK and has a flat, offset-addressed layout:
+ *
+ * <pre>
+ * header   : magic, version, class count, class table offset,
+ *            package count, package table offset, name count, name table offset
+ * classes  : fixed size records sorted by declaration (UTF-8 byte order)
+ *            declaration, name, file path, type parameters, supers, flags
+ * packages : (package, record list) sorted by package
+ * names    : (simple name, record list) sorted by simple name
+ * lists    : count followed by string offsets (type parameters and supers)
+ *            or record numbers (packages and names)
+ * strings  : byte length followed by UTF-8 bytes, deduplicated
+ * </pre>
+ *
+ * <p>All offsets are absolute. A {@link ClassIndex} is only materialized when a record is read.
+ */
+class JDKClassSnapshot {
+
+  static final int FORMAT_VERSION = 2;
+
+  private static final Logger log = LogManager.getLogger(JDKClassSnapshot.class);
+  private static final int MAGIC = 0x4d474a49;
+  private static final int HEADER_SIZE = 8 * 4;
+  private static final int TABLE_ENTRY_SIZE = 2 * 4;
+  private static final int RECORD_SIZE = 6 * 4;
+  private static final int NONE = -1;
+  private static final int FLAG_INTERFACE = 1;
+  private static final int FLAG_ANNOTATION = 1 << 1;
+  private static final int FLAG_FUNCTIONAL = 1 << 2;
+  private static final int MEMBER_TYPE_SHIFT = 8;
+  private static final String DIR_NAME = "jdk";
+  private static final CandidateUnit.MemberType[] MEMBER_TYPES = CandidateUnit.MemberType.values();
+
+  private final File file;
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int classTable;
+  private final int packageCount;
+  private final int packageTable;
+  private final int nameCount;
+  private final int nameTable;
+
+  private JDKClassSnapshot(File file, ByteBuffer buffer) throws IOException {
+    this.file = file;
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_SIZE
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != FORMAT_VERSION) {
+      throw new IOException("invalid jdk snapshot " + file);
+    }
+    this.size = buffer.getInt(8);
+    this.classTable = buffer.getInt(12);
+    this.packageCount = buffer.getInt(16);
+    this.packageTable = buffer.getInt(20);
+    this.nameCount = buffer.getInt(24);
+    this.nameTable = buffer.getInt(28);
+  }
+
+  static boolean isSystemFile(File file) {
+    if (ModuleHelper.isJrtFsFile(file)) {
+      return true;
+    }
+    try {
+      String root = getJDKRoot().getCanonicalPath() + File.separator;
+      return file.getCanonicalPath().startsWith(root);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static File getJDKRoot() {
+    Config config = Config.load();
+    File javaHome = new File(config.getJavaHomeDir());
+    if (config.isJava8() && nonNull(javaHome.getParentFile())) {
+      // java.home points to the bundled jre
+      return javaHome.getParentFile();
+    }
+    return javaHome;
+  }
+
+  static JDKClassSnapshot load(Collection<File> systemFiles) throws IOException {
+    File file = getSnapshotFile(systemFiles);
+    if (!file.exists()) {
+      Config.timeItF("create jdk class index snapshot elapsed:{}", () -> create(file, systemFiles));
+    }
+    try {
+      return open(file);
+    } catch (IOException e) {
+      log.warn("broken jdk snapshot, re-create {}", file);
+      if (!file.delete()) {
+        log.warn("{} delete fail", file);
+      }
+      create(file, systemFiles);
+      return open(file);
+    }
+  }
+
+  static JDKClassSnapshot open(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new JDKClassSnapshot(file, buffer);
+    }
+  }
+
+  private static File getSnapshotFile(Collection<File> systemFiles) throws IOException {
+    Config config = Config.load();
+    Hasher hasher =
+        Hashing.sha256()
+            .newHasher()
+            .putInt(FORMAT_VERSION)
+            .putString(config.getJavaHomeDir(), StandardCharsets.UTF_8)
+            .putString(config.getJavaVersion(), StandardCharsets.UTF_8)
+            .putString(System.getProperty("java.runtime.version", ""), StandardCharsets.UTF_8);
+    List<String> paths = new ArrayList<>(systemFiles.size());
+    for (File f : systemFiles) {
+      paths.add(f.getPath() + ':' + f.length() + ':' + f.lastModified());
+    }
+    Collections.sort(paths);
+    for (String p : paths) {
+      hasher.putString(p, StandardCharsets.UTF_8);
+    }
+    File dir = new File(config.getCacheRoot(), DIR_NAME);
+    return new File(dir, hasher.hash().toString().substring(0, 32) + ".idx");
+  }
+
+  static void create(File file, Collection<File> systemFiles) throws IOException {
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("JDKClassSnapshot.create")) {
+
+      ASMReflector reflector = ASMReflector.getInstance();
+      Map<String, ClassIndex> classes = new HashMap<>(1024 * 32);
+      for (File f : systemFiles) {
+        reflector
+            .getClasses(f)
+            .forEach(
+                (index, src) -> {
+                  ASMReflector.setFilePath(index, src);
+                  classes.putIfAbsent(index.getRawDeclaration(), index);
+                });
+      }
+      write(file, classes.values());
+    }
+  }
+
+  static void write(File file, Collection<ClassIndex> indexes) throws IOException {
+    List<Entry> entries = new ArrayList<>(indexes.size());
+    for (ClassIndex index : indexes) {
+      entries.add(new Entry(index));
+    }
+    entries.sort((a, b) -> compareBytes(a.key, b.key));
+
+    Map<String, List<Integer>> packages = new HashMap<>(1024);
+    Map<String, List<Integer>> names = new HashMap<>(entries.size());
+    for (int i = 0; i < entries.size(); i++) {
+      String declaration = entries.get(i).index.getRawDeclaration();
+      packages
+          .computeIfAbsent(ClassIndexMap.packageKey(declaration), k -> new ArrayList<>(8))
+          .add(i);
+      names
+          .computeIfAbsent(ClassIndexMap.simpleNameKey(declaration), k -> new ArrayList<>(1))
+          .add(i);
+    }
+    List<String> packageKeys = sortedKeys(packages);
+    List<String> nameKeys = sortedKeys(names);
+
+    // layout: header, class table, package table, name table, lists, strings
+    Map<String, Integer> strings = new LinkedHashMap<>(entries.size() * 2);
+    int classTable = HEADER_SIZE;
+    int packageTable = classTable + entries.size() * RECORD_SIZE;
+    int nameTable = packageTable + packageKeys.size() * TABLE_ENTRY_SIZE;
+    int listArea = nameTable + nameKeys.size() * TABLE_ENTRY_SIZE;
+    int listSize = 0;
+    for (Entry e : entries) {
+      if (!e.index.getTypeParameters().isEmpty()) {
+        listSize += 4 + e.index.getTypeParameters().size() * 4;
+      }
+      listSize += 4 + e.index.getSupers().size() * 4;
+    }
+    for (List<Integer> records : packages.values()) {
+      listSize += 4 + records.size() * 4;
+    }
+    for (List<Integer> records : names.values()) {
+      listSize += 4 + records.size() * 4;
+    }
+    int stringArea = listArea + listSize;
+
+    StringPool pool = new StringPool(strings, stringArea);
+    for (Entry e : entries) {
+      pool.add(e.index.getRawDeclaration());
+      pool.add(e.index.getName());
+      pool.add(e.index.getFilePath());
+      e.index.getTypeParameters().forEach(pool::add);
+      e.index.getSupers().forEach(pool::add);
+    }
+    packageKeys.forEach(pool::add);
+    nameKeys.forEach(pool::add);
+
+    ByteBuffer out = ByteBuffer.allocate(pool.end);
+    out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(entries.size()).putInt(classTable);
+    out.putInt(packageKeys.size()).putInt(packageTable).putInt(nameKeys.size()).putInt(nameTable);
+
+    int listPos = listArea;
+    for (Entry e : entries) {
+      ClassIndex index = e.index;
+      out.putInt(pool.offset(index.getRawDeclaration()));
+      out.putInt(pool.offset(index.getName()));
+      out.putInt(pool.offset(index.getFilePath()));
+      List<String> typeParameters = index.getTypeParameters();
+      if (typeParameters.isEmpty()) {
+        out.putInt(NONE);
+      } else {
+        out.putInt(listPos);
+        listPos = writeList(out, listPos, typeParameters, pool);
+      }
+      out.putInt(listPos);
+      listPos = writeList(out, listPos, index.getSupers(), pool);
+
+      int flags = index.getMemberType().ordinal() << MEMBER_TYPE_SHIFT;
+      if (index.isInterface()) {
+        flags |= FLAG_INTERFACE;
+      }
+      if (index.isAnnotation()) {
+        flags |= FLAG_ANNOTATION;
+      }
+      if (index.isFunctional()) {
+        flags |= FLAG_FUNCTIONAL;
+      }
+      out.putInt(flags);
+    }
+
+    for (String key : packageKeys) {
+      out.putInt(pool.offset(key));
+      out.putInt(listPos);
+      listPos = writeRecordList(out, listPos, packages.get(key));
+    }
+    for (String key : nameKeys) {
+      out.putInt(pool.offset(key));
+      out.putInt(listPos);
+      listPos = writeRecordList(out, listPos, names.get(key));
+    }
+
+    for (Map.Entry<String, Integer> s : strings.entrySet()) {
+      byte[] bytes = s.getKey().getBytes(StandardCharsets.UTF_8);
+      out.position(s.getValue());
+      out.putInt(bytes.length);
+      out.put(bytes);
+    }
+
+    File dir = file.getParentFile();
+    if (!dir.exists() && !dir.mkdirs()) {
+      log.warn("{} mkdirs fail", dir);
+    }
+    File temp = File.createTempFile(file.getName(), ".tmp", dir);
+    try {
+      try (FileOutputStream fos = new FileOutputStream(temp);
+          FileChannel channel = fos.getChannel()) {
+        out.clear();
+        while (out.hasRemaining()) {
+          int ignore = channel.write(out);
+        }
+        channel.force(true);
+      }
+      try {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      log.info("created jdk class index snapshot {} classes:{}", file, entries.size());
+    } finally {
+      if (temp.exists() && !temp.delete()) {
+        log.warn("{} delete fail", temp);
+      }
+    }
+  }
+
+  private static int writeList(ByteBuffer out, int pos, List<String> values, StringPool pool) {
+    out.putInt(pos, values.size());
+    int p = pos + 4;
+    for (String v : values) {
+      out.putInt(p, pool.offset(v));
+      p += 4;
+    }
+    return p;
+  }
+
+  private static int writeRecordList(ByteBuffer out, int pos, List<Integer> records) {
+    out.putInt(pos, records.size());
+    int p = pos + 4;
+    for (int record : records) {
+      out.putInt(p, record);
+      p += 4;
+    }
+    return p;
+  }
+
+  private static List<String> sortedKeys(Map<String, List<Integer>> table) {
+    List<String> keys = new ArrayList<>(table.keySet());
+    keys.sort(
+        (a, b) ->
+            compareBytes(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8)));
+    return keys;
+  }
+
+  private static int compareBytes(byte[] a, byte[] b) {
+    int len = Math.min(a.length, b.length);
+    for (int i = 0; i < len; i++) {
+      int c = (a[i] & 0xff) - (b[i] & 0xff);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return a.length - b.length;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean contains(String fqcn) {
+    return this.find(fqcn.getBytes(StandardCharsets.UTF_8)) >= 0;
+  }
+
+  ClassIndex get(String fqcn) {
+    int i = this.find(fqcn.getBytes(StandardCharsets.UTF_8));
+    if (i < 0) {
+      return null;
+    }
+    return this.materialize(i);
+  }
+
+  Stream<ClassIndex> stream() {
+    return IntStream.range(0, this.size).mapToObj(this::materialize);
+  }
+
+  /** Calls the consumer with the name and the declaration of each class. */
+  void forEachName(BiConsumer<String, String> consumer) {
+    for (int i = 0; i < this.size; i++) {
+      consumer.accept(
+          this.readString(this.recordString(i, 1)), this.readString(this.recordString(i, 0)));
+    }
+  }
+
+  /** Classes whose declaration starts with the prefix. The records are contiguous. */
+  Stream<ClassIndex> startsWith(String prefix) {
+    byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+    int from = this.lowerBound(key);
+    int to = from;
+    while (to < this.size && this.hasPrefix(this.recordString(to, 0), key)) {
+      to++;
+    }
+    return IntStream.range(from, to).mapToObj(this::materialize);
+  }
+
+  /** Classes in the package, inner classes included. */
+  Stream<ClassIndex> packageClasses(String pkg) {
+    return this.lookup(this.packageTable, this.packageCount, pkg);
+  }
+
+  /** Classes whose innermost simple name is the name. */
+  Stream<ClassIndex> simpleNameClasses(String name) {
+    return this.lookup(this.nameTable, this.nameCount, name);
+  }
+
+  private Stream<ClassIndex> lookup(int table, int count, String key) {
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    int lo = 0;
+    int hi = count - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int entry = table + mid * TABLE_ENTRY_SIZE;
+      int c = this.compareTo(this.buffer.getInt(entry), bytes);
+      if (c < 0) {
+        lo = mid + 1;
+      } else if (c > 0) {
+        hi = mid - 1;
+      } else {
+        int list = this.buffer.getInt(entry + 4);
+        int size = this.buffer.getInt(list);
+        return IntStream.range(0, size)
+            .map(i -> this.buffer.getInt(list + 4 + i * 4))
+            .mapToObj(this::materialize);
+      }
+    }
+    return Stream.empty();
+  }
+
+  private int find(byte[] key) {
+    int i = this.lowerBound(key);
+    if (i < this.size && this.compareTo(this.recordString(i, 0), key) == 0) {
+      return i;
+    }
+    return -1;
+  }
+
+  private int lowerBound(byte[] key) {
+    int lo = 0;
+    int hi = this.size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (this.compareTo(this.recordString(mid, 0), key) < 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private int recordString(int record, int field) {
+    return this.buffer.getInt(this.classTable + record * RECORD_SIZE + field * 4);
+  }
+
+  private int compareTo(int stringOffset, byte[] key) {
+    int len = this.buffer.getInt(stringOffset);
+    int base = stringOffset + 4;
+    int n = Math.min(len, key.length);
+    for (int i = 0; i < n; i++) {
+      int c = (this.buffer.get(base + i) & 0xff) - (key[i] & 0xff);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return len - key.length;
+  }
+
+  private boolean hasPrefix(int stringOffset, byte[] prefix) {
+    int len = this.buffer.getInt(stringOffset);
+    if (len < prefix.length) {
+      return false;
+    }
+    int base = stringOffset + 4;
+    for (int i = 0; i < prefix.length; i++) {
+      if (this.buffer.get(base + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String readString(int offset) {
+    int len = this.buffer.getInt(offset);
+    byte[] bytes = new byte[len];
+    ByteBuffer dup = this.buffer.duplicate();
+    dup.position(offset + 4);
+    dup.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private List<String> readList(int offset) {
+    if (offset == NONE) {
+      return new ArrayList<>(0);
+    }
+    int count = this.buffer.getInt(offset);
+    List<String> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(this.readString(this.buffer.getInt(offset + 4 + i * 4)));
+    }
+    return result;
+  }
+
+  private ClassIndex materialize(int record) {
+    String declaration = this.readString(this.recordString(record, 0));
+    ClassIndex index =
+        new ClassIndex(
+            declaration,
+            this.readList(this.recordString(record, 3)),
+            this.readList(this.recordString(record, 4)));
+    index.setName(this.readString(this.recordString(record, 1)));
+    index.setFilePath(this.readString(this.recordString(record, 2)));
+    int flags = this.recordString(record, 5);
+    index.setInterface((flags & FLAG_INTERFACE) != 0);
+    index.setAnnotation((flags & FLAG_ANNOTATION) != 0);
+    index.setFunctional((flags & FLAG_FUNCTIONAL) != 0);
+    index.setMemberType(MEMBER_TYPES[flags >>> MEMBER_TYPE_SHIFT]);
+    // read only, never stored in the project database
+    index.loaded = true;
+    return index;
+  }
+
+  private static class Entry {
+    private final ClassIndex index;
+    private final byte[] key;
+
+    Entry(ClassIndex index) {
+      this.index = index;
+      this.key = index.getRawDeclaration().getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  private static class StringPool {
+    private final Map<String, Integer> strings;
+    private int end;
+
+    StringPool(Map<String, Integer> strings, int start) {
+      this.strings = strings;
+      this.end = start;
+    }
+
+    void add(String s) {
+      if (!this.strings.containsKey(s)) {
+        this.strings.put(s, this.end);
+        this.end += 4 + s.getBytes(StandardCharsets.UTF_8).length;
+      }
+    }
+
+    int offset(String s) {
+      return this.strings.get(s);
+    }
+  }
+}
@@ -10,6 +10,7 @@ import java.util.stream.Collectors;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.MethodDescriptor;
 import meghanada.reflect.MethodParameter;
+import meghanada.reflect.TypeRef;
 import meghanada.reflect.names.MethodParameterNames;
 import meghanada.reflect.names.ParameterName;
 import meghanada.store.Serializer;
@@ -357,14 +358,18 @@ class MethodAnalyzeVisitor extends MethodVisitor {
     }
 
     final String returnFQCN =
-        memberType == CandidateUnit.MemberType.CONSTRUCTOR ? methodName : this.returnType.getFQCN();
+        memberType == CandidateUnit.MemberType.CONSTRUCTOR
+            ? methodName
+            : TypeRef.intern(this.returnType.getFQCN());
 
     final List<MethodParameter> methodParameters =
         this.parameterTypes.stream()
             .map(
                 typeInfo ->
                     new MethodParameter(
-                        typeInfo.getFQCN(), typeInfo.paramName, typeInfo.variableArguments))
+                        TypeRef.intern(typeInfo.getFQCN()),
+                        typeInfo.paramName,
+                        typeInfo.variableArguments))
             .collect(Collectors.toList());
 
     final MethodDescriptor md =
@@ -0,0 +1,87 @@
+package meghanada.reflect.asm;
+
+import static java.util.Objects.isNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.utils.ClassNameUtils;
+
+/**
+ * Members of a parameterized class.
+ *
+ * <p>The cached member descriptors are shared and never modified. A member is specialized for the
+ * type arguments of the class only when it is first requested, and the specialized copy is kept for
+ * later lookups of the same parameterization.
+ */
+final class ParameterizedMembers {
+
+  private final List<MemberDescriptor> base;
+  private final String className;
+  // type parameter to type argument, empty when nothing is replaced
+  private final Map<String, String> typeArguments;
+  private final AtomicReferenceArray<MemberDescriptor> views;
+
+  ParameterizedMembers(
+      List<MemberDescriptor> base, String className, Map<String, String> typeArguments) {
+    this.base = base;
+    this.className = className;
+    this.typeArguments = typeArguments;
+    this.views = new AtomicReferenceArray<>(base.size());
+  }
+
+  static ParameterizedMembers of(List<MemberDescriptor> base) {
+    return new ParameterizedMembers(base, "", Collections.emptyMap());
+  }
+
+  boolean isBase(List<MemberDescriptor> base) {
+    return this.base == base;
+  }
+
+  int size() {
+    return this.base.size();
+  }
+
+  MemberDescriptor get(int i) {
+    MemberDescriptor md = this.base.get(i);
+    if (this.typeArguments.isEmpty()) {
+      return md;
+    }
+    MemberDescriptor view = this.views.get(i);
+    if (isNull(view)) {
+      String declaringClass = ClassNameUtils.removeTypeParameter(md.getDeclaringClass());
+      if (this.className.startsWith(declaringClass)) {
+        declaringClass = this.className;
+      } else {
+        declaringClass = md.getDeclaringClass();
+      }
+      MemberDescriptor specialized = md.parameterize(declaringClass, this.typeArguments);
+      // keep the copy of a thread that was first
+      view = this.views.compareAndSet(i, null, specialized) ? specialized : this.views.get(i);
+    }
+    return view;
+  }
+
+  List<MemberDescriptor> toList() {
+    List<MemberDescriptor> result = new ArrayList<>(this.base.size() + 2);
+    for (int i = 0; i < this.base.size(); i++) {
+      result.add(this.get(i));
+    }
+    return result;
+  }
+
+  /** Members whose unspecialized descriptor matches, name and member type don't change. */
+  List<MemberDescriptor> filter(Predicate<MemberDescriptor> predicate) {
+    List<MemberDescriptor> result = new ArrayList<>(8);
+    for (int i = 0; i < this.base.size(); i++) {
+      if (predicate.test(this.base.get(i))) {
+        result.add(this.get(i));
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,180 @@
+package meghanada.reflect.asm;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import meghanada.reflect.ClassIndex;
+import meghanada.utils.ClassNameUtils;
+
+/**
+ * Supertype closures of the indexed classes.
+ *
+ * <p>The ancestors of a class are resolved once, with the type arguments of each super type
+ * substituted, and kept until one of the classes they were resolved through is put into or removed
+ * from the index. A closure is composed from the closures of the direct supers, so a hierarchy
+ * shared by many classes is walked only once.
+ */
+final class SupertypeTable {
+
+  private final Map<String, ClassIndex> index;
+  // reflect order with substituted type arguments, keyed by the name as given
+  private final Map<String, Closure> inherits = new ConcurrentHashMap<>(256);
+  // super classes and interfaces, keyed by the raw name
+  private final Map<String, Closure> supers = new ConcurrentHashMap<>(256);
+  // class -> closure keys resolved through it
+  private final Map<String, Set<String>> dependents = new ConcurrentHashMap<>(256);
+  private final AtomicLong generation = new AtomicLong();
+
+  SupertypeTable(Map<String, ClassIndex> index) {
+    this.index = index;
+  }
+
+  /** Classes to reflect for the class, in the same order as a walk of the supers. */
+  InheritanceInfo reflectInfo(String fqcn) {
+    Closure closure = this.inherit(fqcn, new HashSet<>(8));
+    InheritanceInfo info = new InheritanceInfo(fqcn);
+    for (int i = 0; i < closure.names.size(); i++) {
+      String name = closure.names.get(i);
+      info.classFileMap.computeIfAbsent(closure.files.get(i), f -> new ArrayList<>(8)).add(name);
+    }
+    info.inherit = closure.names.stream().distinct().collect(Collectors.toList());
+    return info;
+  }
+
+  /** Super classes and interfaces of the class, without java.lang.Object. */
+  List<String> superClasses(String className) {
+    String fqcn = ClassNameUtils.removeTypeParameter(className);
+    return this.superClosure(fqcn, new HashSet<>(8)).names;
+  }
+
+  void invalidate(String declaration) {
+    this.generation.incrementAndGet();
+    Set<String> keys = this.dependents.remove(declaration);
+    if (nonNull(keys)) {
+      for (String key : keys) {
+        this.inherits.remove(key);
+        this.supers.remove(key);
+      }
+    }
+  }
+
+  void clear() {
+    this.generation.incrementAndGet();
+    this.inherits.clear();
+    this.supers.clear();
+    this.dependents.clear();
+  }
+
+  int size() {
+    return this.inherits.size() + this.supers.size();
+  }
+
+  private Closure inherit(String name, Set<String> visiting) {
+    Closure closure = this.inherits.get(name);
+    if (nonNull(closure)) {
+      return closure;
+    }
+    if (!visiting.add(name)) {
+      // cyclic hierarchy
+      return Closure.EMPTY;
+    }
+    long gen = this.generation.get();
+    Set<String> classes = new HashSet<>(8);
+    String searchName = ClassNameUtils.removeTypeParameter(name);
+    classes.add(searchName);
+    ClassIndex classIndex = this.index.get(searchName);
+    if (isNull(classIndex)) {
+      Optional<String> opt = ClassNameUtils.toInnerClassName(name);
+      if (opt.isPresent()) {
+        classes.add(opt.get());
+        classIndex = this.index.get(opt.get());
+      }
+    }
+    List<String> names = new ArrayList<>(8);
+    List<File> files = new ArrayList<>(8);
+    if (nonNull(classIndex)) {
+      names.add(name);
+      files.add(new File(classIndex.getFilePath()));
+      List<String> supers = ASMReflector.replaceSuperClassTypeParameters(name, classIndex);
+      Collections.reverse(supers);
+      for (String superClass : supers) {
+        Closure c = this.inherit(superClass, visiting);
+        names.addAll(c.names);
+        files.addAll(c.files);
+        classes.addAll(c.classes);
+      }
+    }
+    visiting.remove(name);
+    closure = new Closure(names, files, classes);
+    this.publish(this.inherits, name, closure, gen);
+    return closure;
+  }
+
+  private Closure superClosure(String fqcn, Set<String> visiting) {
+    Closure closure = this.supers.get(fqcn);
+    if (nonNull(closure)) {
+      return closure;
+    }
+    if (!visiting.add(fqcn)) {
+      return Closure.EMPTY;
+    }
+    long gen = this.generation.get();
+    Set<String> classes = new HashSet<>(8);
+    classes.add(fqcn);
+    Set<String> result = new LinkedHashSet<>(4);
+    ClassIndex classIndex = this.index.get(fqcn);
+    if (nonNull(classIndex)) {
+      for (String superClazz : classIndex.getSupers()) {
+        if (!superClazz.equals(ClassNameUtils.OBJECT_CLASS)) {
+          result.add(ClassNameUtils.removeTypeMark(superClazz));
+          Closure c = this.superClosure(ClassNameUtils.removeTypeParameter(superClazz), visiting);
+          result.addAll(c.names);
+          classes.addAll(c.classes);
+        }
+      }
+    }
+    visiting.remove(fqcn);
+    closure = new Closure(new ArrayList<>(result), Collections.emptyList(), classes);
+    this.publish(this.supers, fqcn, closure, gen);
+    return closure;
+  }
+
+  private void publish(Map<String, Closure> closures, String key, Closure closure, long gen) {
+    for (String clazz : closure.classes) {
+      this.dependents.computeIfAbsent(clazz, k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+    closures.put(key, closure);
+    if (this.generation.get() != gen) {
+      // the index changed while resolving
+      boolean b = closures.remove(key, closure);
+    }
+  }
+
+  private static final class Closure {
+
+    private static final Closure EMPTY =
+        new Closure(Collections.emptyList(), Collections.emptyList(), Collections.emptySet());
+
+    private final List<String> names;
+    private final List<File> files;
+    private final Set<String> classes;
+
+    private Closure(List<String> names, List<File> files, Set<String> classes) {
+      this.names = Collections.unmodifiableList(names);
+      this.files = Collections.unmodifiableList(files);
+      this.classes = classes;
+    }
+  }
+}
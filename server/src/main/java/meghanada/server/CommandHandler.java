@@ -23,6 +23,7 @@ import meghanada.index.SearchResults;
 import meghanada.location.Location;
 import meghanada.reference.Reference;
 import meghanada.reflect.CandidateUnit;
+import meghanada.session.Readiness;
 import meghanada.session.Session;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.typeinfo.TypeInfo;
@@ -354,6 +355,24 @@ public class CommandHandler {
     }
   }
 
+  public void status(long id) {
+    long startTime = System.nanoTime();
+    String name = "Meghanada/status";
+    try (TelemetryUtils.ParentSpan span = TelemetryUtils.startExplicitParentSpan(name);
+        TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+      scope.addAnnotation(TelemetryUtils.annotationBuilder().build("args"));
+      String out = outputFormatter.status(id, Readiness.getInstance().getStatus());
+      writer.write(out);
+      writer.newLine();
+      span.setStatusOK();
+    } catch (Throwable t) {
+      TelemetryUtils.setStatusINTERNAL(t.getMessage());
+      writeError(id, t);
+    } finally {
+      TelemetryUtils.recordCommandLatency(name, TelemetryUtils.sinceInMilliseconds(startTime));
+    }
+  }
+
   public void listSymbols(long id, boolean global) {
     long startTime = System.nanoTime();
     String name = "Meghanada/listSymbols";
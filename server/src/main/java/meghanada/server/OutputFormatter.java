@@ -10,6 +10,7 @@ import meghanada.index.SearchResults;
 import meghanada.location.Location;
 import meghanada.reference.Reference;
 import meghanada.reflect.CandidateUnit;
+import meghanada.session.Readiness;
 import meghanada.typeinfo.TypeInfo;
 
 public interface OutputFormatter {
@@ -63,4 +64,6 @@ public interface OutputFormatter {
   String completionResolve(long id, boolean b);
 
   String importAtPoint(long id, Map<String, List<String>> result);
+
+  String status(long id, Readiness.Status status);
 }
@@ -300,6 +300,14 @@ public class EmacsServer implements Server {
                   handler.ping(id);
                   return true;
                 })
+            .when(headTail(eq("status"), any()))
+            .get(
+                args -> {
+                  // status : Readiness phase, progress and eta
+                  // usage: status
+                  handler.status(id);
+                  return true;
+                })
             .when(headTail(eq("kp"), any()))
             .get(
                 args -> {
@@ -24,6 +24,7 @@ import meghanada.location.Location;
 import meghanada.reference.Reference;
 import meghanada.reflect.CandidateUnit;
 import meghanada.server.OutputFormatter;
+import meghanada.session.Readiness;
 import meghanada.typeinfo.TypeInfo;
 import meghanada.utils.ClassNameUtils;
 import org.apache.logging.log4j.LogManager;
@@ -49,9 +50,17 @@ public class SExprOutputFormatter implements OutputFormatter {
 
   private static String success(@Nullable String s) {
     if (isNull(s)) {
-      return LPAREN + SUCCESS + RPAREN;
+      return LPAREN + SUCCESS + readiness() + RPAREN;
     }
-    return LPAREN + SUCCESS + LIST_SEP + s + RPAREN;
+    return LPAREN + SUCCESS + LIST_SEP + s + readiness() + RPAREN;
+  }
+
+  private static String readiness() {
+    if (!Readiness.isReportedInResponse()) {
+      return "";
+    }
+    // trailing plist, clients that don't know it only read the first element
+    return LIST_SEP + ":readiness " + Readiness.getInstance().getPhase().getName();
   }
 
   private static String error(@Nullable String s) {
@@ -487,4 +496,19 @@ public class SExprOutputFormatter implements OutputFormatter {
     sb.append(RPAREN);
     return success(sb.toString());
   }
+
+  @Override
+  public String status(long id, Readiness.Status status) {
+    final String result =
+        LPAREN
+            + String.join(
+                LIST_SEP,
+                status.phase.getName(),
+                Long.toString(status.done),
+                Long.toString(status.total),
+                Long.toString(status.elapsed),
+                Long.toString(status.eta))
+            + RPAREN;
+    return success(result);
+  }
 }
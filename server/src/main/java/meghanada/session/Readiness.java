@@ -0,0 +1,156 @@
+package meghanada.session;
+
+import static java.util.Objects.nonNull;
+
+import com.google.common.base.MoreObjects;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import meghanada.config.Config;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Staged readiness of the session.
+ *
+ * <p>Commands never wait for a phase to finish; they answer from whatever has been loaded so far.
+ * The current phase is reported by the {@code status} command and, when enabled, in every response.
+ */
+public class Readiness {
+
+  private static final Logger log = LogManager.getLogger(Readiness.class);
+  private static Readiness readiness;
+
+  private final AtomicLong done = new AtomicLong();
+  // durations of the last completed run, used for the eta of phases without progress.
+  // persisted with the warm state, a fresh process has them once the state is restored
+  private final Map<Phase, Long> lastDurations = new EnumMap<>(Phase.class);
+  private volatile Phase phase = Phase.STARTING;
+  private volatile long total;
+  private volatile long phaseStarted = System.nanoTime();
+
+  Readiness() {}
+
+  public static synchronized Readiness getInstance() {
+    if (readiness == null) {
+      readiness = new Readiness();
+    }
+    return readiness;
+  }
+
+  public static boolean isReportedInResponse() {
+    return Config.load().isReadinessInResponse();
+  }
+
+  public synchronized void start(Phase phase, long total) {
+    long now = System.nanoTime();
+    if (this.phase != Phase.STARTING && this.phase != Phase.READY) {
+      this.lastDurations.put(this.phase, now - this.phaseStarted);
+    }
+    this.phase = phase;
+    this.total = total;
+    this.done.set(0);
+    this.phaseStarted = now;
+    log.info("readiness phase:{} total:{}", phase.getName(), total);
+  }
+
+  public synchronized Map<String, Long> getLastDurations() {
+    Map<String, Long> durations = new HashMap<>(this.lastDurations.size());
+    this.lastDurations.forEach((phase, nanos) -> durations.put(phase.name(), nanos));
+    return durations;
+  }
+
+  public synchronized void restoreLastDurations(Map<String, Long> durations) {
+    for (Phase phase : Phase.values()) {
+      Long nanos = durations.get(phase.name());
+      if (nonNull(nanos)) {
+        // a phase of this process is newer than the saved one
+        this.lastDurations.putIfAbsent(phase, nanos);
+      }
+    }
+  }
+
+  public void progress(long n) {
+    this.done.addAndGet(n);
+  }
+
+  public void ready() {
+    this.start(Phase.READY, 0);
+  }
+
+  public Phase getPhase() {
+    return phase;
+  }
+
+  public Status getStatus() {
+    Phase phase = this.phase;
+    long done = this.done.get();
+    long total = this.total;
+    long elapsed = System.nanoTime() - this.phaseStarted;
+    long eta = -1;
+    if (phase == Phase.READY) {
+      eta = 0;
+    } else if (total > 0 && done > 0) {
+      eta = elapsed * (total - done) / done;
+    } else {
+      Long last;
+      synchronized (this) {
+        last = this.lastDurations.get(phase);
+      }
+      if (last != null) {
+        eta = Math.max(0, last - elapsed);
+      }
+    }
+    return new Status(
+        phase,
+        done,
+        total,
+        TimeUnit.NANOSECONDS.toMillis(elapsed),
+        eta < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(eta));
+  }
+
+  public enum Phase {
+    STARTING,
+    // classpath indexes (warm state, jdk snapshot, jars)
+    CLASSPATH,
+    // persisted source caches
+    SOURCES,
+    // background compile
+    COMPILE,
+    READY;
+
+    public String getName() {
+      return this.name().toLowerCase();
+    }
+  }
+
+  public static class Status {
+    public final Phase phase;
+    public final long done;
+    public final long total;
+    public final long elapsed;
+    // milliseconds, -1 if unknown
+    public final long eta;
+
+    public Status(Phase phase, long done, long total, long elapsed, long eta) {
+      this.phase = phase;
+      this.done = done;
+      this.total = total;
+      this.elapsed = elapsed;
+      this.eta = eta;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("phase", phase)
+          .add("done", done)
+          .add("total", total)
+          .add("elapsed", elapsed)
+          .add("eta", eta)
+          .toString();
+    }
+  }
+}
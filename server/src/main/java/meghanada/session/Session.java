@@ -39,6 +39,8 @@ import meghanada.analyze.Source;
 import meghanada.analyze.subscribe.IndexSubscriber;
 import meghanada.analyze.subscribe.SourceCacheSubscriber;
 import meghanada.cache.GlobalCache;
+import meghanada.cache.MemoryGovernor;
+import meghanada.cache.WarmState;
 import meghanada.completion.JavaCompletion;
 import meghanada.completion.JavaImportCompletion;
 import meghanada.completion.JavaVariableCompletion;
@@ -47,6 +49,8 @@ import meghanada.config.Config;
 import meghanada.docs.declaration.Declaration;
 import meghanada.docs.declaration.DeclarationSearcher;
 import meghanada.index.IndexDatabase;
+import meghanada.index.SearchCursor;
+import meghanada.index.SearchResult;
 import meghanada.index.SearchResults;
 import meghanada.location.Location;
 import meghanada.location.LocationSearcher;
@@ -389,6 +393,9 @@ public class Session {
       Executor.getInstance().getEventBus().register(new IndexSubscriber(this::getCurrentProject));
     }
     GlobalCache.getInstance().setProjectSupplier(this::getCurrentProject);
+    if (Config.load().useMemoryGovernor()) {
+      MemoryGovernor.start();
+    }
   }
 
   public void start() throws IOException {
@@ -424,6 +431,7 @@ public class Session {
 
   public void shutdown(int timeout) {
     log.debug("session shutdown ...");
+    WarmState.save(this.getCurrentProject());
     this.sessionEventBus.shutdown(timeout);
     log.debug("session shutdown done");
   }
@@ -761,17 +769,15 @@ public class Session {
   public synchronized Collection<String> listSymbols(final boolean global)
       throws ExecutionException, IOException {
 
-    return CachedASMReflector.getInstance()
-        .getGlobalClassIndex()
-        .values()
+    final CachedASMReflector reflector = CachedASMReflector.getInstance();
+    if (global) {
+      return reflector.classDeclarationStream().sorted().collect(Collectors.toList());
+    }
+    // jdk classes are library classes
+    return reflector
+        .getLocalClassIndexes()
         .parallelStream()
-        .filter(
-            c -> {
-              if (global) {
-                return true;
-              }
-              return !c.getFilePath().endsWith(".jar");
-            })
+        .filter(c -> !c.getFilePath().endsWith(".jar"))
         .map(c -> c.getRawDeclaration())
         .sorted()
         .collect(Collectors.toList());
@@ -955,7 +961,13 @@ public class Session {
   }
 
   public static Optional<SearchResults> searchEverywhere(final String q) {
-    return IndexDatabase.getInstance().search(q);
+    final SearchResults results = new SearchResults();
+    try (SearchCursor<SearchResult> cursor = IndexDatabase.getInstance().searchCursor(q)) {
+      for (List<SearchResult> page = cursor.nextPage(); !page.isEmpty(); page = cursor.nextPage()) {
+        page.forEach(results::add);
+      }
+    }
+    return Optional.of(results);
   }
 
   public String showProject() {
@@ -5,17 +5,24 @@ import static meghanada.config.Config.timeItF;
 import com.google.common.base.Stopwatch;
 import com.google.common.eventbus.Subscribe;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import meghanada.analyze.CompileResult;
 import meghanada.cache.GlobalCache;
+import meghanada.cache.WarmState;
 import meghanada.config.Config;
 import meghanada.project.Project;
 import meghanada.project.ProjectDependency;
 import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.session.Readiness;
 import meghanada.session.Session;
 import meghanada.session.SessionEventBus;
 import meghanada.store.ProjectDatabaseHelper;
 import meghanada.telemetry.TelemetryUtils;
+import meghanada.utils.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -43,6 +50,8 @@ public class CacheEventSubscriber extends AbstractSubscriber {
     final Session session = super.sessionEventBus.getSession();
     final Project project = session.getCurrentProject();
     final CachedASMReflector reflector = CachedASMReflector.getInstance();
+    final Readiness readiness = Readiness.getInstance();
+    readiness.start(Readiness.Phase.CLASSPATH, 1);
     reflector.addClasspath(project.getOutput());
     reflector.addClasspath(project.getTestOutput());
     project.getDependencies().stream()
@@ -57,28 +66,38 @@ public class CacheEventSubscriber extends AbstractSubscriber {
 
     final Collection<File> dependentJars = session.getDependentJars();
     final int size = dependentJars.size();
+    reflector.addClasspath(dependentJars);
+    WarmState.setCapturable(false);
+    if (WarmState.restore(project)) {
+      log.info("Ready (warm state) elapsed:{}", stopwatch);
+    }
     timeItF(
         "create class index ... read " + size + " jars. elapsed:{}",
         () -> {
-          reflector.addClasspath(dependentJars);
           reflector.createClassIndexes();
         });
+    readiness.progress(1);
 
     if (cleanUnusedSource(project)) {
       project.resetCallerMap();
     }
 
+    timeItF("load source caches elapsed:{}", () -> loadSourceCaches(project, readiness));
+    readiness.start(Readiness.Phase.COMPILE, 2);
+
     log.info("start analyze sources ...");
     timeItF(
         "analyzed and compiled. elapsed:{}",
         () -> {
           try {
             final CompileResult compileResult = project.compileJava();
+            readiness.progress(1);
             if (compileResult.isSuccess()) {
               if (compileResult.hasDiagnostics()) {
                 log.warn("compile message: {}", compileResult.getDiagnosticsSummary());
               }
               final CompileResult testCompileResult = project.compileTestJava();
+              readiness.progress(1);
               if (testCompileResult.isSuccess()) {
                 if (testCompileResult.hasDiagnostics()) {
                   log.warn("compile(test) message: {}", testCompileResult.getDiagnosticsSummary());
@@ -99,7 +118,9 @@ public class CacheEventSubscriber extends AbstractSubscriber {
         reflector.getGlobalClassIndex().size(),
         stopwatch.stop());
     Config.showMemory();
+    readiness.ready();
     log.info("Ready");
+    WarmState.setCapturable(true);
     reflector.scanAllStaticMembers();
 
     // String db = System.getProperty("new-project-database");
@@ -110,6 +131,35 @@ public class CacheEventSubscriber extends AbstractSubscriber {
     this.sessionEventBus.requestIdleMonitor();
   }
 
+  private static void loadSourceCaches(Project project, Readiness readiness) throws IOException {
+    final Config config = Config.load();
+    final List<File> files = new ArrayList<>(64);
+    if (config.useSourceCache()) {
+      for (File root : project.getSources()) {
+        files.addAll(FileUtils.collectFiles(root, FileUtils.JAVA_EXT));
+      }
+      for (File root : project.getTestSources()) {
+        files.addAll(FileUtils.collectFiles(root, FileUtils.JAVA_EXT));
+      }
+    }
+    final int limit = Math.min(files.size(), config.getSourceCacheSize());
+    readiness.start(Readiness.Phase.SOURCES, limit);
+    if (limit == 0) {
+      return;
+    }
+    final GlobalCache globalCache = GlobalCache.getInstance();
+    final Map<String, String> checksumMap =
+        ProjectDatabaseHelper.getChecksumMap(project.getProjectRootPath());
+    int loaded = 0;
+    for (File file : files.subList(0, limit)) {
+      if (globalCache.preloadSource(file.getCanonicalFile(), checksumMap)) {
+        loaded++;
+      }
+      readiness.progress(1);
+    }
+    log.info("loaded source caches {}/{}", loaded, limit);
+  }
+
   private static boolean cleanUnusedSource(Project project) {
     return ProjectDatabaseHelper.deleteUnunsedSource(project);
   }
@@ -8,6 +8,7 @@ import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import meghanada.cache.GlobalCache;
+import meghanada.cache.WarmState;
 import meghanada.session.Session;
 import meghanada.session.SessionEventBus;
 import meghanada.system.Executor;
@@ -78,6 +79,7 @@ public class IdleMonitorSubscriber extends AbstractSubscriber {
 
   @Subscribe
   public synchronized void on(SessionEventBus.IdleEvent event) {
+    WarmState.saveIfStale(super.sessionEventBus.getSession().getCurrentProject());
     Iterator<String> it = this.queue.iterator();
     int cnt = 20;
     while (cnt-- > 0) {
@@ -0,0 +1,212 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import meghanada.telemetry.TelemetryUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Commits async store requests in groups.
+ *
+ * <p>Requests go through a bounded queue, producers block while it is full. A single thread drains
+ * it into groups, a group is closed when it has groupSize entities or latency has elapsed since its
+ * first request. Each group is written in one transaction and made durable with one sync.
+ */
+class GroupCommitter {
+
+  private static final Logger log = LogManager.getLogger(GroupCommitter.class);
+
+  private final Sink sink;
+  private final BlockingQueue<ProjectDatabase.StoreRequest> queue;
+  private final int groupSize;
+  private final long latencyNanos;
+  private final ExecutorService executorService;
+  private volatile boolean terminated;
+
+  GroupCommitter(Sink sink, int capacity, int groupSize, long latencyMillis) {
+    this.sink = sink;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.groupSize = groupSize;
+    this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+    this.executorService = Executors.newSingleThreadExecutor();
+    this.executorService.execute(this::run);
+  }
+
+  ExecutorService getExecutorService() {
+    return this.executorService;
+  }
+
+  /** Blocks while the queue is full. */
+  void put(ProjectDatabase.StoreRequest req) throws InterruptedException {
+    this.queue.put(req);
+  }
+
+  /** Commits the pending requests and stops the committer. */
+  void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+    if (this.terminated) {
+      return;
+    }
+    this.terminated = true;
+    ProjectDatabase.StoreRequest req = new ProjectDatabase.StoreRequest();
+    req.setShutdown(true);
+    this.queue.put(req);
+    this.executorService.shutdown();
+    this.executorService.awaitTermination(timeout, unit);
+  }
+
+  private void run() {
+    boolean running = true;
+    while (running) {
+      try {
+        ProjectDatabase.StoreRequest req = this.queue.poll(10, TimeUnit.SECONDS);
+        if (isNull(req)) {
+          running = !this.terminated;
+          continue;
+        }
+        try (TelemetryUtils.ParentSpan span =
+                TelemetryUtils.startExplicitParentSpan("ProjectDatabase/groupCommit");
+            TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+
+          GroupCommit group = new GroupCommit();
+          running = this.collect(req, group);
+          if (!group.isEmpty()) {
+            this.commit(group);
+          }
+          span.setStatusOK();
+        }
+      } catch (InterruptedException e) {
+        log.catching(e);
+        Thread.currentThread().interrupt();
+        running = false;
+      } catch (Exception e) {
+        log.catching(e);
+      }
+    }
+  }
+
+  // false when the shutdown request was taken
+  private boolean collect(ProjectDatabase.StoreRequest first, GroupCommit group)
+      throws InterruptedException {
+    if (first.isShutdown()) {
+      return false;
+    }
+    group.add(first);
+    long deadline = System.nanoTime() + this.latencyNanos;
+    while (group.size() < this.groupSize) {
+      long remain = deadline - System.nanoTime();
+      if (remain <= 0) {
+        break;
+      }
+      ProjectDatabase.StoreRequest req = this.queue.poll(remain, TimeUnit.NANOSECONDS);
+      if (isNull(req)) {
+        break;
+      }
+      if (req.isShutdown()) {
+        return false;
+      }
+      group.add(req);
+    }
+    return true;
+  }
+
+  private void commit(GroupCommit group) {
+
+    try (TelemetryUtils.ScopedSpan ss =
+        TelemetryUtils.startScopedSpan("ProjectDatabase.commitGroup")) {
+
+      long start = System.nanoTime();
+      Collection<PendingWrite> writes = group.writes();
+      int success = this.sink.write(writes);
+      this.sink.sync();
+
+      double elapsed = TelemetryUtils.sinceInMilliseconds(start);
+      TelemetryUtils.recordStoreGroupCommit(success, elapsed);
+      ss.addAnnotation(
+          TelemetryUtils.annotationBuilder()
+              .put("requests", group.requests)
+              .put("entities", writes.size())
+              .put("success", success)
+              .put("elapsed", elapsed)
+              .build("args"));
+      log.debug(
+          "group commit requests:{} entities:{} success:{} elapsed:{}ms",
+          group.requests,
+          writes.size(),
+          success,
+          String.format("%.2f", elapsed));
+    }
+  }
+
+  /** The store a group is committed to. */
+  interface Sink {
+
+    /** Writes the group in one transaction, returns the number of stored entities. */
+    int write(Collection<PendingWrite> writes);
+
+    /** Makes the written group durable. */
+    void sync();
+  }
+
+  static class PendingWrite {
+
+    final Storable storable;
+    final boolean allowUpdate;
+
+    PendingWrite(Storable storable, boolean allowUpdate) {
+      this.storable = storable;
+      this.allowUpdate = allowUpdate;
+    }
+  }
+
+  /** A set of writes committed in one transaction. Later updates of the same entity win. */
+  static class GroupCommit {
+
+    private final Map<String, PendingWrite> writes = new LinkedHashMap<>(64);
+    private int requests;
+
+    void add(ProjectDatabase.StoreRequest req) {
+      this.requests++;
+      Storable storable = req.getStorable();
+      if (nonNull(storable)) {
+        this.put(storable, req.isAllowUpdate());
+      }
+      Collection<? extends Storable> storables = req.getStorables();
+      if (nonNull(storables)) {
+        for (Storable s : storables) {
+          this.put(s, req.isAllowUpdate());
+        }
+      }
+    }
+
+    private void put(Storable s, boolean allowUpdate) {
+      String key = s.getEntityType() + ':' + s.getStoreId();
+      if (allowUpdate) {
+        this.writes.put(key, new PendingWrite(s, true));
+      } else {
+        this.writes.putIfAbsent(key, new PendingWrite(s, false));
+      }
+    }
+
+    int size() {
+      return this.writes.size();
+    }
+
+    boolean isEmpty() {
+      return this.writes.isEmpty();
+    }
+
+    Collection<PendingWrite> writes() {
+      return this.writes.values();
+    }
+  }
+}
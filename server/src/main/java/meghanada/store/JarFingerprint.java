@@ -0,0 +1,63 @@
+package meghanada.store;
+
+import com.google.common.base.MoreObjects;
+import java.io.Serializable;
+import java.util.Objects;
+
+/** Size, mtime and content hash of a jar. */
+public class JarFingerprint implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long size;
+  private final long lastModified;
+  private final String hash;
+
+  JarFingerprint(long size, long lastModified, String hash) {
+    this.size = size;
+    this.lastModified = lastModified;
+    this.hash = hash;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  public String getHash() {
+    return hash;
+  }
+
+  boolean isSameStat(long size, long lastModified) {
+    return this.size == size && this.lastModified == lastModified;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof JarFingerprint)) {
+      return false;
+    }
+    JarFingerprint that = (JarFingerprint) o;
+    return size == that.size && lastModified == that.lastModified && hash.equals(that.hash);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(size, lastModified, hash);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("size", size)
+        .add("lastModified", lastModified)
+        .add("hash", hash)
+        .toString();
+  }
+}
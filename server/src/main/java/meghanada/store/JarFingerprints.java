@@ -0,0 +1,122 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import meghanada.config.Config;
+import meghanada.telemetry.TelemetryUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * User-level store of jar fingerprints.
+ *
+ * <p>The content hash of a jar is only recomputed when its size or mtime differs from the stored
+ * fingerprint, so unchanged jars (release or SNAPSHOT) are not read again on every start, and a jar
+ * replaced at the same path gets a new hash.
+ */
+public class JarFingerprints {
+
+  private static final Logger log = LogManager.getLogger(JarFingerprints.class);
+  private static final String FILE_NAME = "jar-fingerprints.dat";
+
+  private static JarFingerprints jarFingerprints;
+
+  private final File file;
+  private final Map<String, JarFingerprint> fingerprints = new ConcurrentHashMap<>(64);
+  private volatile boolean loaded;
+  private volatile boolean dirty;
+
+  JarFingerprints(File file) {
+    this.file = file;
+  }
+
+  public static synchronized JarFingerprints getInstance() {
+    if (isNull(jarFingerprints)) {
+      Config config = Config.load();
+      jarFingerprints = new JarFingerprints(new File(config.getCacheRoot(), FILE_NAME));
+    }
+    return jarFingerprints;
+  }
+
+  private synchronized void load() {
+    if (this.loaded) {
+      return;
+    }
+    this.loaded = true;
+    if (!this.file.exists()) {
+      return;
+    }
+    try {
+      @SuppressWarnings("unchecked")
+      Map<String, JarFingerprint> stored = Serializer.readObjectFromFile(this.file, HashMap.class);
+      if (nonNull(stored)) {
+        stored.forEach(this.fingerprints::putIfAbsent);
+      }
+    } catch (Exception e) {
+      log.warn("failed load jar fingerprints {}", e.getMessage());
+    }
+  }
+
+  public JarFingerprint get(File jar) throws IOException {
+    this.load();
+    String path = jar.getCanonicalPath();
+    long size = jar.length();
+    long lastModified = jar.lastModified();
+    JarFingerprint fingerprint = this.fingerprints.get(path);
+    if (nonNull(fingerprint) && fingerprint.isSameStat(size, lastModified)) {
+      return fingerprint;
+    }
+    String hash;
+    try (TelemetryUtils.ScopedSpan scope = TelemetryUtils.startScopedSpan("JarFingerprints.hash")) {
+      scope.addAnnotation(
+          TelemetryUtils.annotationBuilder().put("jar", jar.getPath()).build("args"));
+      hash = com.google.common.io.Files.asByteSource(jar).hash(Hashing.sha256()).toString();
+    }
+    fingerprint = new JarFingerprint(size, lastModified, hash);
+    this.fingerprints.put(path, fingerprint);
+    this.dirty = true;
+    return fingerprint;
+  }
+
+  public synchronized void save() {
+    if (!this.dirty) {
+      return;
+    }
+    File dir = this.file.getParentFile();
+    if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+      log.warn("{} mkdirs fail", dir);
+      return;
+    }
+    File temp = null;
+    try {
+      this.dirty = false;
+      temp = File.createTempFile(this.file.getName(), ".tmp", dir);
+      try (FileOutputStream out = new FileOutputStream(temp)) {
+        Serializer.writeObject(out, new HashMap<>(this.fingerprints));
+      }
+      try {
+        Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      this.dirty = true;
+      log.warn("failed save jar fingerprints {}", e.getMessage());
+    } finally {
+      if (nonNull(temp) && temp.exists() && !temp.delete()) {
+        log.warn("{} delete fail", temp);
+      }
+    }
+  }
+}
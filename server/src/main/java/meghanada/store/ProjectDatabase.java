@@ -13,20 +13,12 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -55,22 +47,20 @@ public class ProjectDatabase {
   private static final String STORE_NAME = "meghanadaStore";
   private static final Logger log = LogManager.getLogger(ProjectDatabase.class);
 
-  private static final int MERGE_SIZE = 16;
-  private static final int BURST_LIMIT = 16;
+  // group commit: close a group when it reaches GROUP_SIZE entities or GROUP_LATENCY_MS
+  // has elapsed since its first request. producers block when the queue is full.
+  private static final int QUEUE_CAPACITY = 1024;
+  private static final int GROUP_SIZE = 512;
+  private static final long GROUP_LATENCY_MS = 50;
 
   private static ProjectDatabase projectDatabase;
   private static final AtomicLong seq = new AtomicLong(1);
-  private static final int MAX_WORKER = 4;
-  private static final long WORKER_DURATION = 2;
 
-  private final BlockingQueue<StoreRequest> blockingQueue = new LinkedBlockingDeque<>();
-  private ExecutorService executorService = null;
+  private GroupCommitter committer = null;
   private Environment environment = null;
   private PersistentEntityStore entityStore = null;
   private String projectRoot;
-  private boolean isTerminated;
-  private final AtomicInteger extraWorkers = new AtomicInteger(0);
-  private Instant lastAddWorker = Instant.now();
+  private volatile boolean isTerminated;
   private File baseLocation;
 
   private ProjectDatabase() {
@@ -195,7 +185,7 @@ public class ProjectDatabase {
     try (TelemetryUtils.ScopedSpan ss =
         TelemetryUtils.startScopedSpan("ProjectDatabase.setSerializeBlobData")) {
 
-      if (isNull(projectDatabase) || projectDatabase.isTerminated) {
+      if (isNull(projectDatabase) || isNull(projectDatabase.entityStore)) {
         return;
       }
       requireNonNull(entity, "require entity");
@@ -220,85 +210,35 @@ public class ProjectDatabase {
 
   private void initWorker() {
 
-    if (isNull(this.executorService) || this.executorService.isTerminated()) {
-
-      this.executorService = Executors.newCachedThreadPool();
-      this.isTerminated = false;
-
-      this.executorService.execute(
-          () -> {
-            Instant start = Instant.now();
-            while (!this.isTerminated) {
-              try {
-                StoreRequest req = blockingQueue.poll(10, TimeUnit.SECONDS);
-                try (TelemetryUtils.ParentSpan span =
-                        TelemetryUtils.startExplicitParentSpan("ProjectDatabase/wokrker");
-                    TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
-
-                  if (nonNull(req) && !req.isShutdown()) {
-                    mergeAndStore(req);
-                  }
-                  if (blockingQueue.isEmpty()) {
-                    try (TelemetryUtils.ScopedSpan ss =
-                        TelemetryUtils.startScopedSpan("ProjectDatabase.flushAndSync")) {
-
-                      Instant now = Instant.now();
-                      Duration duration = Duration.between(start, now);
-                      long delta = duration.getSeconds();
-                      if (delta > 10) {
-                        EnvironmentImpl environment =
-                            (EnvironmentImpl) this.entityStore.getEnvironment();
-                        environment.flushAndSync();
-                        start = now;
-                      }
-                    }
-                  }
-                  span.setStatusOK();
+    if (isNull(this.committer) || this.committer.getExecutorService().isTerminated()) {
+
+      this.committer =
+          new GroupCommitter(
+              new GroupCommitter.Sink() {
+                @Override
+                public int write(Collection<GroupCommitter.PendingWrite> writes) {
+                  return entityStore.computeInTransaction(
+                      txn -> {
+                        int i = 0;
+                        for (GroupCommitter.PendingWrite w : writes) {
+                          if (putObject(w.storable, w.allowUpdate, txn) != -1) {
+                            i++;
+                          }
+                        }
+                        return i;
+                      });
                 }
-              } catch (Exception e) {
-                log.catching(e);
-              }
-            }
-          });
-    }
-  }
-
-  private void mergeAndStore(StoreRequest req) {
-
-    try (TelemetryUtils.ScopedSpan ss =
-        TelemetryUtils.startScopedSpan("ProjectDatabase.mergeAndStore")) {
-
-      if (req.isMergable()) {
-        Set<Storable> buf = new HashSet<>(5);
-        buf.add(req.getStorable());
 
-        for (int i = 0; i < MERGE_SIZE - 1; i++) {
-          StoreRequest nextReq = this.blockingQueue.poll();
-          if (isNull(nextReq) || nextReq.isShutdown()) {
-            break;
-          }
-
-          if (nextReq.isMergable()) {
-            buf.add(nextReq.getStorable());
-          } else {
-            this.mergeAndStore(nextReq);
-          }
-        }
-
-        if (!buf.isEmpty()) {
-          int i = storeObjects(buf, true);
-        }
-      } else {
-
-        Storable storable = req.getStorable();
-        if (nonNull(storable)) {
-          long i = storeObject(storable, req.isAllowUpdate());
-        }
-        Collection<? extends Storable> storables = req.getStorables();
-        if (nonNull(storables)) {
-          int i = storeObjects(storables, req.isAllowUpdate());
-        }
-      }
+                @Override
+                public void sync() {
+                  EnvironmentImpl environment = (EnvironmentImpl) entityStore.getEnvironment();
+                  environment.flushAndSync();
+                }
+              },
+              QUEUE_CAPACITY,
+              GROUP_SIZE,
+              GROUP_LATENCY_MS);
+      this.isTerminated = false;
     }
   }
 
@@ -437,54 +377,19 @@ public class ProjectDatabase {
       throw new IllegalArgumentException("require obj or objects");
     }
 
+    if (this.isTerminated) {
+      log.warn("store request after shutdown {}", req);
+      return;
+    }
+
     try {
-      this.blockingQueue.put(req);
-      this.runWorker();
+      // blocks while the queue is full
+      this.committer.put(req);
     } catch (InterruptedException e) {
       log.catching(e);
     }
   }
 
-  private boolean addableWorker() {
-    Instant now = Instant.now();
-    Duration duration = Duration.between(this.lastAddWorker, now);
-    long delta = duration.getSeconds();
-    return this.blockingQueue.size() > BURST_LIMIT
-        && extraWorkers.get() <= MAX_WORKER
-        && delta > WORKER_DURATION;
-  }
-
-  private void runWorker() {
-    if (this.addableWorker()) {
-      lastAddWorker = Instant.now();
-      this.executorService.execute(
-          () -> {
-            extraWorkers.incrementAndGet();
-            boolean start = true;
-            while (!this.isTerminated && start) {
-              try {
-                StoreRequest req = blockingQueue.poll(3, TimeUnit.SECONDS);
-
-                try (TelemetryUtils.ParentSpan span =
-                        TelemetryUtils.startExplicitParentSpan("ProjectDatabase/runWokrker");
-                    TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
-
-                  if (nonNull(req) && !req.isShutdown()) {
-                    mergeAndStore(req);
-                  } else {
-                    start = false;
-                  }
-                  span.setStatusOK();
-                }
-              } catch (Exception e) {
-                log.catching(e);
-              }
-            }
-            extraWorkers.decrementAndGet();
-          });
-    }
-  }
-
   public int storeObjects(Collection<? extends Storable> storables, boolean allowUpdate) {
 
     return this.entityStore.computeInTransaction(
@@ -639,17 +544,8 @@ public class ProjectDatabase {
 
     this.isTerminated = true;
 
-    StoreRequest req = new StoreRequest();
-    req.setShutdown(true);
     try {
-      this.blockingQueue.put(req);
-    } catch (InterruptedException e) {
-      log.catching(e);
-    }
-
-    this.executorService.shutdown();
-    try {
-      this.executorService.awaitTermination(30, TimeUnit.SECONDS);
+      this.committer.shutdown(30, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       log.catching(e);
     }
@@ -657,7 +553,7 @@ public class ProjectDatabase {
   }
 
   public ExecutorService getExecutorService() {
-    return executorService;
+    return this.committer.getExecutorService();
   }
 
   public File getBaseLocation() {
@@ -708,10 +604,6 @@ public class ProjectDatabase {
       this.storables = storables;
     }
 
-    public boolean isMergable() {
-      return nonNull(storable) && allowUpdate;
-    }
-
     @Override
     public String toString() {
       return MoreObjects.toStringHelper(this)
@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import javax.annotation.Nonnull;
 import jetbrains.exodus.entitystore.Entity;
@@ -37,6 +38,7 @@ public class ProjectDatabaseHelper {
 
   private static final String PROP_DECLARATION = "declaration";
   private static final String PROP_FILE_PATH = "filePath";
+  private static final String PROP_HASH = "hash";
   private static final String BLOB_PROP_MEMBERS = "members";
   private static final String BLOB_PROP_CHECKSUM = "checksum";
   private static final String BLOB_PROP_CALLER = "caller";
@@ -51,28 +53,68 @@ public class ProjectDatabaseHelper {
     }
   }
 
-  public static boolean getLoadJar(String filePath) {
+  /**
+   * Content hash of the jar when its class indexes were stored.
+   *
+   * @return empty if the jar was never stored, an empty string if it was stored without a hash
+   */
+  public static Optional<String> getLoadJarHash(String filePath) {
     ProjectDatabase database = ProjectDatabase.getInstance();
     return database.computeInReadonly(
         txn -> {
-          EntityIterable it = txn.find(ClassIndex.FILE_ENTITY_TYPE, "filePath", filePath);
-          return nonNull(it.getFirst());
+          Entity entity = txn.find(ClassIndex.FILE_ENTITY_TYPE, "filePath", filePath).getFirst();
+          if (isNull(entity)) {
+            return Optional.empty();
+          }
+          Comparable<?> hash = entity.getProperty(PROP_HASH);
+          return Optional.of(isNull(hash) ? "" : hash.toString());
         });
   }
 
-  public static void saveLoadJar(String filePath) {
+  public static void saveLoadJar(String filePath, String hash) {
     ProjectDatabase database = ProjectDatabase.getInstance();
     boolean b =
         database.execute(
             txn -> {
-              EntityIterable it = txn.find(ClassIndex.FILE_ENTITY_TYPE, "filePath", filePath);
-              if (nonNull(it.getFirst())) {
-                return false;
+              Entity entity =
+                  txn.find(ClassIndex.FILE_ENTITY_TYPE, "filePath", filePath).getFirst();
+              if (isNull(entity)) {
+                entity = txn.newEntity(ClassIndex.FILE_ENTITY_TYPE);
+                entity.setProperty("filePath", filePath);
+              }
+              entity.setProperty(PROP_HASH, hash);
+              return true;
+            });
+  }
+
+  /**
+   * Deletes the class indexes of a changed jar that are no longer in it, and the cached members of
+   * the remaining ones.
+   *
+   * @return the number of deleted class indexes
+   */
+  public static int deleteStaleClassIndexes(String filePath, Set<String> declarations) {
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    AtomicInteger count = new AtomicInteger();
+    boolean b =
+        database.execute(
+            txn -> {
+              List<Entity> entities = new ArrayList<>(64);
+              for (Entity entity : txn.find(ClassIndex.ENTITY_TYPE, PROP_FILE_PATH, filePath)) {
+                entities.add(entity);
+              }
+              for (Entity entity : entities) {
+                Comparable<?> id = entity.getProperty(ID);
+                if (nonNull(id) && declarations.contains(id.toString())) {
+                  boolean deleted = entity.deleteBlob(BLOB_PROP_MEMBERS);
+                } else {
+                  boolean deleted = entity.delete();
+                  count.incrementAndGet();
+                }
               }
-              Entity entity = txn.newEntity(ClassIndex.FILE_ENTITY_TYPE);
-              entity.setProperty("filePath", filePath);
               return true;
             });
+    return count.get();
   }
 
   public static List<ClassIndex> getClassIndexes(String filePath) {
@@ -0,0 +1,158 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import meghanada.config.Config;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.telemetry.TelemetryUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * User-level, content-addressed cache of jar-derived class indexes and member descriptors.
+ *
+ * <p>Entries are keyed by the jar's content hash and {@link #FORMAT_VERSION}, so the same jar is
+ * indexed once per machine and shared by every project. Entries are immutable once written;
+ * projects only read them and never copy them into their own database.
+ */
+public class SharedJarCache {
+
+  // bump when the indexer or the serialized form of ClassIndex / MemberDescriptor changes
+  public static final int FORMAT_VERSION = 1;
+
+  private static final Logger log = LogManager.getLogger(SharedJarCache.class);
+  private static final String DIR_NAME = "shared";
+  private static final String CLASSES_DIR = "classes";
+  private static final String MEMBERS_DIR = "members";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private static SharedJarCache sharedJarCache;
+
+  private final File root;
+  private final JarFingerprints fingerprints;
+
+  SharedJarCache(File root) {
+    this(root, new JarFingerprints(new File(root, "fingerprints")));
+  }
+
+  SharedJarCache(File root, JarFingerprints fingerprints) {
+    this.root = root;
+    this.fingerprints = fingerprints;
+  }
+
+  public static synchronized SharedJarCache getInstance() {
+    if (isNull(sharedJarCache)) {
+      Config config = Config.load();
+      File root = new File(new File(config.getCacheRoot(), DIR_NAME), "v" + FORMAT_VERSION);
+      sharedJarCache = new SharedJarCache(root, JarFingerprints.getInstance());
+    }
+    return sharedJarCache;
+  }
+
+  public static boolean isEnabled() {
+    return Config.load().useSharedJarCache();
+  }
+
+  public static boolean isCacheable(File file) {
+    return file.isFile() && file.getName().endsWith(".jar");
+  }
+
+  public String getContentHash(File jar) throws IOException {
+    return this.fingerprints.get(jar).getHash();
+  }
+
+  public Optional<List<ClassIndex>> loadClassIndexes(File jar) throws IOException {
+    File file = this.getEntryFile(CLASSES_DIR, this.getContentHash(jar));
+    if (!file.exists()) {
+      return Optional.empty();
+    }
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("SharedJarCache.loadClassIndexes")) {
+      scope.addAnnotation(
+          TelemetryUtils.annotationBuilder().put("jar", jar.getPath()).build("args"));
+      @SuppressWarnings("unchecked")
+      List<ClassIndex> indexes = Serializer.readObjectFromFile(file, ArrayList.class);
+      return Optional.ofNullable(indexes);
+    }
+  }
+
+  public void saveClassIndexes(File jar, Collection<ClassIndex> indexes) throws IOException {
+    File file = this.getEntryFile(CLASSES_DIR, this.getContentHash(jar));
+    this.publish(file, new ArrayList<>(indexes));
+  }
+
+  public String getMemberKey(String fqcn, Collection<String> contentKeys) {
+    Hasher hasher =
+        Hashing.sha256().newHasher().putInt(FORMAT_VERSION).putString(fqcn, StandardCharsets.UTF_8);
+    for (String key : contentKeys) {
+      hasher.putString(key, StandardCharsets.UTF_8);
+    }
+    return hasher.hash().toString();
+  }
+
+  public Optional<List<MemberDescriptor>> loadMembers(String memberKey) {
+    File file = this.getEntryFile(MEMBERS_DIR, memberKey);
+    if (!file.exists()) {
+      return Optional.empty();
+    }
+    @SuppressWarnings("unchecked")
+    List<MemberDescriptor> members = Serializer.readObjectFromFile(file, ArrayList.class);
+    return Optional.ofNullable(members);
+  }
+
+  public void saveMembers(String memberKey, List<MemberDescriptor> members) {
+    File file = this.getEntryFile(MEMBERS_DIR, memberKey);
+    this.publish(file, new ArrayList<>(members));
+  }
+
+  private File getEntryFile(String kind, String hash) {
+    // fan out by the first two characters to keep directories small
+    File dir = new File(new File(this.root, kind), hash.substring(0, 2));
+    return new File(dir, hash);
+  }
+
+  private void publish(File file, Object obj) {
+    if (file.exists()) {
+      // content addressed, already published by another project or process
+      return;
+    }
+    File dir = file.getParentFile();
+    if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+      log.warn("{} mkdirs fail", dir);
+      return;
+    }
+    File temp = null;
+    try {
+      temp = File.createTempFile(file.getName(), TEMP_SUFFIX, dir);
+      try (FileOutputStream out = new FileOutputStream(temp)) {
+        Serializer.writeObject(out, obj);
+      }
+      try {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      log.warn("failed publish shared cache {} {}", file, e.getMessage());
+    } finally {
+      if (nonNull(temp) && temp.exists() && !temp.delete()) {
+        log.warn("{} delete fail", temp);
+      }
+    }
+  }
+}
@@ -76,6 +76,14 @@ public class TelemetryUtils {
       Measure.MeasureDouble.create("member_cache_miss_rate", "The member cache miss rate", "1.0");
   private static final Measure.MeasureDouble M_MEMORY =
       Measure.MeasureDouble.create("memory", "The used memory", "M");
+  private static final Measure.MeasureLong M_MEMORY_PRESSURE =
+      Measure.MeasureLong.create("memory_pressure", "The memory pressure stage", "1");
+  private static final Measure.MeasureDouble M_STORE_COMMIT_LATENCY_MS =
+      Measure.MeasureDouble.create(
+          "store_commit_latency", "The group commit latency in milliseconds", "ms");
+  private static final Measure.MeasureDouble M_STORE_THROUGHPUT =
+      Measure.MeasureDouble.create(
+          "store_throughput", "The number of entities stored per second", "1/s");
 
   private static final TagKey KEY_COMMAND = TagKey.create("command");
   private static final TagKey KEY_UID = TagKey.create("uid");
@@ -207,6 +215,26 @@ public class TelemetryUtils {
                     8000.0, // >=8s
                     10000.0 // >=10s
                     )));
+    Aggregation storeCommitLatencyDistribution =
+        Aggregation.Distribution.create(
+            BucketBoundaries.create(
+                Arrays.asList(
+                    0.0, // >=0ms
+                    1.0, // >=1ms
+                    5.0, // >=5ms
+                    10.0, // >=10ms
+                    25.0, // >=25ms
+                    50.0, // >=50ms
+                    100.0, // >=100ms
+                    250.0, // >=250ms
+                    500.0, // >=500ms
+                    1000.0 // >=1s
+                    )));
+    Aggregation storeThroughputDistribution =
+        Aggregation.Distribution.create(
+            BucketBoundaries.create(
+                Arrays.asList(
+                    0.0, 10.0, 100.0, 500.0, 1000.0, 5000.0, 10000.0, 50000.0, 100000.0)));
     View[] views =
         new View[] {
           View.create(
@@ -245,6 +273,24 @@ public class TelemetryUtils {
               M_MEMORY,
               Aggregation.LastValue.create(),
               Collections.unmodifiableList(Arrays.asList(KEY_UID))),
+          View.create(
+              View.Name.create("meghanada/memory_pressure"),
+              "The memory pressure stage",
+              M_MEMORY_PRESSURE,
+              Aggregation.LastValue.create(),
+              Collections.unmodifiableList(Arrays.asList(KEY_UID))),
+          View.create(
+              View.Name.create("meghanada/store_commit_latency"),
+              "The distribution of the store group commit latencies",
+              M_STORE_COMMIT_LATENCY_MS,
+              storeCommitLatencyDistribution,
+              Collections.unmodifiableList(Arrays.asList(KEY_UID))),
+          View.create(
+              View.Name.create("meghanada/store_throughput"),
+              "The distribution of the store throughput per group commit",
+              M_STORE_THROUGHPUT,
+              storeThroughputDistribution,
+              Collections.unmodifiableList(Arrays.asList(KEY_UID))),
         };
 
     ViewManager vmgr = Stats.getViewManager();
@@ -325,6 +371,16 @@ public class TelemetryUtils {
         TelemetryUtils.KEY_UID, getUID(), TelemetryUtils.M_MEMBER_CACHE_MISS_RATE, stats[2]);
   }
 
+  public static void recordStoreGroupCommit(long entities, double latency) {
+    TelemetryUtils.recordTaggedStat(
+        TelemetryUtils.KEY_UID, getUID(), TelemetryUtils.M_STORE_COMMIT_LATENCY_MS, latency);
+    if (latency > 0) {
+      double throughput = entities / (latency / 1000.0);
+      TelemetryUtils.recordTaggedStat(
+          TelemetryUtils.KEY_UID, getUID(), TelemetryUtils.M_STORE_THROUGHPUT, throughput);
+    }
+  }
+
   public static void recordMemory() {
     final Runtime runtime = Runtime.getRuntime();
     final double usedMemory = (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024;
@@ -332,6 +388,11 @@ public class TelemetryUtils {
         TelemetryUtils.KEY_UID, getUID(), TelemetryUtils.M_MEMORY, usedMemory);
   }
 
+  public static void recordMemoryPressure(long stage) {
+    TelemetryUtils.recordTaggedStat(
+        TelemetryUtils.KEY_UID, getUID(), TelemetryUtils.M_MEMORY_PRESSURE, stage);
+  }
+
   private static Annotation getBaseAnnotation() {
     if (isNull(meghanadaAnnotation)) {
       String version = System.getProperty("meghanada-server.version", "");
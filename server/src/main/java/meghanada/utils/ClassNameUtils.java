@@ -14,6 +14,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.TypeRef;
 import meghanada.reflect.asm.CachedASMReflector;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
@@ -282,10 +283,13 @@ public class ClassNameUtils {
     if (isNull(str) || str.isEmpty()) {
       return Collections.emptyList();
     }
-    final List<String> result = new ArrayList<>(4);
-
     final int idx = str.indexOf('<');
     if (idx >= 0) {
+      Optional<TypeRef> ref = TypeRef.of(str);
+      if (ref.isPresent()) {
+        return ref.get().getArgumentNames();
+      }
+      final List<String> result = new ArrayList<>(4);
       String gen = str.substring(idx + 1, str.length() - 1);
       int indent = 0;
       StringBuilder sb = new StringBuilder(16);
@@ -0,0 +1,25 @@
+package meghanada.cache;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import meghanada.analyze.Source;
+import org.junit.Test;
+
+public class CacheBudgetTest {
+
+  @Test
+  public void testWeighSourceByContentLength() throws Exception {
+    // the file does not exist, the weight comes from the analyzed length
+    File file = new File("/no/such/dir/Foo.java");
+    Source small = new Source(file.getPath());
+    small.setContentLength(100);
+    Source large = new Source(file.getPath());
+    large.setContentLength(100_000);
+
+    int smallWeight = CacheBudget.weighSource(file, small);
+    int largeWeight = CacheBudget.weighSource(file, large);
+    assertTrue(smallWeight > 0);
+    assertTrue(largeWeight > smallWeight * 100);
+  }
+}
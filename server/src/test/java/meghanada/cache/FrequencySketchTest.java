@@ -0,0 +1,38 @@
+package meghanada.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FrequencySketchTest {
+
+  @Test
+  public void testFrequency() throws Exception {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    for (int i = 0; i < 5; i++) {
+      sketch.increment("java.lang.String");
+    }
+    assertEquals(5, sketch.frequency("java.lang.String"));
+
+    // a scan of classes seen once keeps them below the hot class
+    for (int i = 0; i < 300; i++) {
+      sketch.increment("a.Scanned" + i);
+    }
+    assertTrue(sketch.frequency("a.Scanned1") < 2);
+    assertTrue(sketch.frequency("java.lang.String") >= 2);
+  }
+
+  @Test
+  public void testAging() throws Exception {
+    FrequencySketch sketch = new FrequencySketch(16);
+    for (int i = 0; i < 20; i++) {
+      sketch.increment("java.util.List");
+    }
+    assertEquals(15, sketch.frequency("java.util.List"));
+    for (int i = 0; i < 200; i++) {
+      sketch.increment("a.Scanned" + i);
+    }
+    assertTrue(sketch.frequency("java.util.List") < 15);
+  }
+}
@@ -0,0 +1,77 @@
+package meghanada.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import meghanada.GradleTestBase;
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class GlobalCacheTest extends GradleTestBase {
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    GradleTestBase.setupProject(false);
+  }
+
+  @Test
+  public void testRefreshAcrossResize() throws Exception {
+    List<MemberDescriptor> oldMembers = members("oldField");
+    List<MemberDescriptor> newMembers = members("newField");
+    BlockingLoader loader = new BlockingLoader();
+    loader.members.put("a.Foo", oldMembers);
+
+    GlobalCache cache = new GlobalCache();
+    cache.setupMemberCache(loader);
+    cache.loadMemberDescriptors("a.Foo");
+
+    loader.members.put("a.Foo", newMembers);
+    loader.blocking = true;
+    cache.refreshMemberDescriptors(Collections.singletonList("a.Foo"));
+    assertTrue(loader.loading.await(10, TimeUnit.SECONDS));
+    assertEquals(oldMembers, cache.getMemberDescriptors("a.Foo"));
+
+    // governor stage change while the reload runs
+    cache.resizeCaches();
+    assertEquals(oldMembers, cache.getMemberDescriptors("a.Foo"));
+
+    loader.release.countDown();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!cache.getMemberDescriptors("a.Foo").equals(newMembers)
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(newMembers, cache.getMemberDescriptors("a.Foo"));
+  }
+
+  private static List<MemberDescriptor> members(String name) {
+    return Collections.singletonList(
+        new FieldDescriptor("a.Foo", name, "public", "java.lang.String"));
+  }
+
+  private static class BlockingLoader extends MemberCacheLoader {
+
+    private final Map<String, List<MemberDescriptor>> members = new ConcurrentHashMap<>(4);
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean blocking;
+
+    @Override
+    public List<MemberDescriptor> load(String className) {
+      if (blocking) {
+        loading.countDown();
+        Uninterruptibles.awaitUninterruptibly(release, 10, TimeUnit.SECONDS);
+      }
+      return members.get(className);
+    }
+  }
+}
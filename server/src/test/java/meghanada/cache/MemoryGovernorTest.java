@@ -0,0 +1,26 @@
+package meghanada.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import meghanada.cache.MemoryGovernor.Stage;
+import org.junit.Test;
+
+public class MemoryGovernorTest {
+
+  @Test
+  public void testNextStage() throws Exception {
+    assertEquals(Stage.NORMAL, MemoryGovernor.nextStage(Stage.NORMAL, 0.5));
+    assertEquals(Stage.SHRINK, MemoryGovernor.nextStage(Stage.NORMAL, 0.8));
+    // raised straight to the stage of the usage
+    assertEquals(Stage.RELEASE, MemoryGovernor.nextStage(Stage.NORMAL, 0.95));
+
+    // kept until the usage is well below the threshold
+    assertEquals(Stage.RELEASE, MemoryGovernor.nextStage(Stage.RELEASE, 0.9));
+    assertEquals(Stage.RELEASE, MemoryGovernor.nextStage(Stage.RELEASE, 0.83));
+    // one step at a time
+    assertEquals(Stage.DROP, MemoryGovernor.nextStage(Stage.RELEASE, 0.5));
+    assertEquals(Stage.SHRINK, MemoryGovernor.nextStage(Stage.DROP, 0.5));
+    assertEquals(Stage.SHRINK, MemoryGovernor.nextStage(Stage.SHRINK, 0.7));
+    assertEquals(Stage.NORMAL, MemoryGovernor.nextStage(Stage.SHRINK, 0.6));
+  }
+}
@@ -0,0 +1,133 @@
+package meghanada.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WarmStateTest {
+
+  private File tempDir;
+  private File stateFile;
+  private String libJar;
+  private String superJar;
+
+  @Before
+  public void setup() throws IOException {
+    this.tempDir = Files.createTempDir();
+    this.stateFile = new File(this.tempDir, "warm/project.state");
+    this.libJar = jar("lib-1.0.jar");
+    this.superJar = jar("base-1.0.jar");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    List<MemberDescriptor> members = members();
+    List<String> jars = Arrays.asList(this.superJar, this.libJar);
+    WarmState state = new WarmState(this.tempDir.getPath());
+    state.putMembers("lib.Foo", members, jars);
+    state.write(this.stateFile);
+
+    WarmState restored = WarmState.read(this.stateFile);
+    assertNotNull(restored);
+    assertEquals(members, restored.takeMembers("lib.Foo", jars).orElse(null));
+    // used once, later loads read the jars
+    assertFalse(restored.takeMembers("lib.Foo", jars).isPresent());
+  }
+
+  @Test
+  public void testChangedSuperJar() throws Exception {
+    List<String> jars = Arrays.asList(this.superJar, this.libJar);
+    WarmState state = new WarmState(this.tempDir.getPath());
+    state.putMembers("lib.Foo", members(), jars);
+    state.putMembers("lib.Bar", members(), Collections.singletonList(this.libJar));
+    state.write(this.stateFile);
+
+    // the jar of an inherited class is bumped in place
+    File superFile = new File(this.superJar);
+    long lastModified = superFile.lastModified();
+    Files.write("base 1.1", superFile, StandardCharsets.UTF_8);
+    assertTrue(superFile.setLastModified(lastModified + 2000));
+
+    WarmState restored = WarmState.read(this.stateFile);
+    assertNotNull(restored);
+    assertFalse(restored.takeMembers("lib.Foo", jars).isPresent());
+    assertTrue(restored.takeMembers("lib.Bar", Collections.singletonList(this.libJar)).isPresent());
+  }
+
+  @Test
+  public void testMovedSuperClass() throws Exception {
+    List<String> jars = Arrays.asList(this.superJar, this.libJar);
+    WarmState state = new WarmState(this.tempDir.getPath());
+    state.putMembers("lib.Foo", members(), jars);
+    state.write(this.stateFile);
+
+    // the inherited class now comes from another jar, the old one is still on disk
+    String newJar = jar("base-1.1.jar");
+    WarmState restored = WarmState.read(this.stateFile);
+    assertNotNull(restored);
+    assertFalse(restored.takeMembers("lib.Foo", Arrays.asList(newJar, this.libJar)).isPresent());
+  }
+
+  @Test
+  public void testDeletedClass() throws Exception {
+    WarmState state = new WarmState(this.tempDir.getPath());
+    state.putClassIndex(classIndex("app.Kept", jar("Kept.class")));
+    state.putClassIndex(classIndex("app.Deleted", jar("Deleted.class")));
+    state.putClassIndex(classIndex("lib.Foo", this.libJar));
+    state.write(this.stateFile);
+
+    // removed by a rename before the next start
+    assertTrue(new File(this.tempDir, "Deleted.class").delete());
+
+    WarmState restored = WarmState.read(this.stateFile);
+    assertNotNull(restored);
+    Set<File> restoredJars = new HashSet<>(1);
+    List<ClassIndex> indexes =
+        restored.getValidClassIndexes(
+            Collections.singletonMap(this.libJar, new File(this.libJar)), restoredJars);
+    assertEquals(
+        Arrays.asList("app.Kept", "lib.Foo"),
+        indexes.stream().map(ClassIndex::getRawDeclaration).collect(Collectors.toList()));
+    assertEquals(Collections.singleton(new File(this.libJar)), restoredJars);
+  }
+
+  private static ClassIndex classIndex(String fqcn, String path) {
+    ClassIndex index = new ClassIndex(fqcn, Collections.emptyList(), Collections.emptyList());
+    index.setFilePath(path);
+    return index;
+  }
+
+  private String jar(String name) throws IOException {
+    File jar = new File(this.tempDir, name);
+    Files.write(name, jar, StandardCharsets.UTF_8);
+    return jar.getPath();
+  }
+
+  private static List<MemberDescriptor> members() {
+    return Collections.singletonList(
+        new FieldDescriptor("lib.Foo", "name", "public", "java.lang.String"));
+  }
+}
@@ -6,6 +6,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 import meghanada.GradleTestBase;
 import meghanada.analyze.CompileResult;
 import meghanada.config.Config;
@@ -227,7 +229,7 @@ public class JavaCompletionTest extends GradleTestBase {
     final Collection<? extends CandidateUnit> units =
         timeIt(() -> completion.completionAt(file, 65, 0, "*JavaCompletion#"));
     units.forEach(a -> System.out.println(a.getDeclaration()));
-    assertEquals(40, units.size());
+    assertEquals(45, units.size());
   }
 
   @Test
@@ -375,6 +377,60 @@ public class JavaCompletionTest extends GradleTestBase {
     assertEquals("analyze", unit1.getName());
   }
 
+  @Test
+  public void testNarrowCompletion() throws Exception {
+    JavaCompletion completion = getCompletion();
+    File file =
+        new File(
+                project.getProjectRootPath(),
+                "./src/main/java/meghanada/analyze/ExpressionScope.java")
+            .getCanonicalFile();
+    assertTrue(file.exists());
+    completion.completionAt(file, 17, 4, "*method:java.lang.System#");
+    final List<String> narrowed =
+        completion.completionAt(file, 17, 4, "*method:java.lang.System#getP").stream()
+            .map(CandidateUnit::getName)
+            .collect(Collectors.toList());
+    assertEquals(1, completion.getNarrowHits());
+    final List<String> computed =
+        getCompletion().completionAt(file, 17, 4, "*method:java.lang.System#getP").stream()
+            .map(CandidateUnit::getName)
+            .collect(Collectors.toList());
+    assertEquals(computed, narrowed);
+
+    // shorter prefix
+    completion.completionAt(file, 17, 4, "*method:java.lang.System#get");
+    assertEquals(1, completion.getNarrowHits());
+    assertEquals(2, completion.getNarrowMisses());
+  }
+
+  @Test
+  public void testNarrowSymbolCompletion() throws Exception {
+    JavaCompletion completion = getCompletion();
+    File file =
+        new File(
+                project.getProjectRootPath(),
+                "./src/main/java/meghanada/analyze/ExpressionScope.java")
+            .getCanonicalFile();
+    assertTrue(file.exists());
+    completion.completionAt(file, 17, 4, "Lis");
+    final List<String> narrowed =
+        completion.completionAt(file, 17, 4, "List").stream()
+            .map(CandidateUnit::getDeclaration)
+            .collect(Collectors.toList());
+    assertEquals(1, completion.getNarrowHits());
+    assertTrue(narrowed.size() > 0);
+    final List<String> computed =
+        getCompletion().completionAt(file, 17, 4, "List").stream()
+            .map(CandidateUnit::getDeclaration)
+            .collect(Collectors.toList());
+    assertEquals(computed, narrowed);
+
+    // a member completion doesn't narrow the symbols
+    completion.completionAt(file, 17, 4, "*method:java.lang.System#List");
+    assertEquals(1, completion.getNarrowHits());
+  }
+
   private JavaCompletion getCompletion() throws Exception {
     return new JavaCompletion(GradleTestBase::getProject);
   }
@@ -0,0 +1,562 @@
+package meghanada.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import jetbrains.exodus.env.ContextualEnvironment;
+import jetbrains.exodus.env.Environments;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class DocumentSearcherTest {
+
+  private static final Logger log = LogManager.getLogger(DocumentSearcherTest.class);
+
+  private File tempDir;
+
+  @Before
+  public void setup() {
+    this.tempDir = Files.createTempDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  private static Document create(String groupId, String code) {
+    Document doc = new Document();
+    doc.add(new StringField(SearchIndexable.GROUP_ID, groupId, Field.Store.YES));
+    doc.add(new TextField("code", code, Field.Store.YES));
+    return doc;
+  }
+
+  private static void index(DocumentSearcher searcher, String groupId, String... codes) {
+    searcher.executeInTransaction(
+        () -> {
+          try {
+            searcher.deleteDocuments(SearchIndexable.GROUP_ID, groupId);
+            for (String code : codes) {
+              searcher.addDocuments(Arrays.asList(create(groupId, code)));
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  private static List<String> search(DocumentSearcher searcher, String query) {
+    return search(searcher, query, 10);
+  }
+
+  private static List<String> search(DocumentSearcher searcher, String query, int cnt) {
+    return searcher.searchInTransaction(
+        indexSearcher -> {
+          try {
+            return searcher.search(
+                indexSearcher, "code", query, cnt, d -> Optional.of(d.get("code")));
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        });
+  }
+
+  @Test
+  public void testSearchAfterWrite() throws Exception {
+    ContextualEnvironment env = Environments.newContextualInstance(this.tempDir);
+    DocumentSearcher searcher = new DocumentSearcher(env);
+    assertEquals(0, search(searcher, "reader").size());
+
+    index(searcher, "A.java", "open reader", "close writer");
+    assertEquals(Arrays.asList("open reader"), search(searcher, "reader"));
+
+    // replaced group is visible without reopening
+    index(searcher, "A.java", "refresh reader");
+    index(searcher, "B.java", "reader manager");
+    assertEquals(2, search(searcher, "reader").size());
+    assertEquals(0, search(searcher, "writer").size());
+    searcher.close();
+    env.close();
+
+    // committed on close
+    env = Environments.newContextualInstance(this.tempDir);
+    searcher = new DocumentSearcher(env);
+    assertEquals(2, search(searcher, "reader").size());
+    searcher.close();
+    env.close();
+  }
+
+  @Test
+  public void testSearchDuringWrite() throws Exception {
+    ContextualEnvironment env = Environments.newContextualInstance(this.tempDir);
+    DocumentSearcher searcher = new DocumentSearcher(env);
+    index(searcher, "A.java", "open reader");
+
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread writer =
+        new Thread(
+            () ->
+                searcher.executeInTransaction(
+                    () -> {
+                      writing.countDown();
+                      Uninterruptibles.awaitUninterruptibly(release, 10, TimeUnit.SECONDS);
+                    }));
+    writer.start();
+    assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+    // the write holds the monitor, searches don't wait for it
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<List<String>> hits = pool.submit(() -> search(searcher, "reader"));
+      assertEquals(Arrays.asList("open reader"), hits.get(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      pool.shutdown();
+    }
+    writer.join();
+    searcher.close();
+    env.close();
+  }
+
+  @Test
+  public void testDirectoryBackend() throws Exception {
+    File indexDir = new File(this.tempDir, "lucene");
+    DocumentSearcher searcher = new DocumentSearcher(indexDir);
+    index(searcher, "A.java", "open reader", "close writer");
+    index(searcher, "A.java", "refresh reader");
+    assertEquals(Arrays.asList("refresh reader"), search(searcher, "reader"));
+    searcher.close();
+
+    searcher = new DocumentSearcher(indexDir);
+    assertEquals(Arrays.asList("refresh reader"), search(searcher, "reader"));
+    searcher.close();
+  }
+
+  @Test
+  public void testRecreateBrokenIndex() throws Exception {
+    File indexDir = new File(this.tempDir, "lucene");
+    DocumentSearcher searcher = new DocumentSearcher(indexDir);
+    index(searcher, "A.java", "open reader");
+    searcher.close();
+    File[] segments = indexDir.listFiles((dir, name) -> name.startsWith("segments_"));
+    assertEquals(1, segments.length);
+    Files.write(new byte[] {1, 2, 3}, segments[0]);
+
+    searcher = new DocumentSearcher(indexDir);
+    assertEquals(0, search(searcher, "reader").size());
+    index(searcher, "A.java", "open reader");
+    assertEquals(1, search(searcher, "reader").size());
+    searcher.close();
+  }
+
+  @Test
+  public void testCursor() throws Exception {
+    DocumentSearcher searcher = new DocumentSearcher(new File(this.tempDir, "lucene"));
+    for (int i = 0; i < 10; i++) {
+      index(searcher, "A" + i + ".java", "reader " + i);
+    }
+    SearchCursor<String> cursor =
+        new SearchCursor<>(
+            (after, n) ->
+                searcher.searchInTransaction(
+                    indexSearcher -> {
+                      try {
+                        return searcher.searchAfter(
+                            indexSearcher,
+                            "code",
+                            "*eader",
+                            after,
+                            n,
+                            Collections.singleton("code"),
+                            d -> Optional.of(d.get("code")));
+                      } catch (Exception e) {
+                        throw new RuntimeException(e);
+                      }
+                    }),
+            3,
+            8);
+    Set<String> hits = new HashSet<>();
+    List<String> page = cursor.nextPage();
+    assertEquals(3, page.size());
+    hits.addAll(page);
+    hits.addAll(cursor.nextPage());
+    page = cursor.nextPage();
+    assertEquals(2, page.size());
+    hits.addAll(page);
+    assertEquals(8, hits.size());
+    assertEquals(0, cursor.nextPage().size());
+    assertFalse(cursor.hasNext());
+    searcher.close();
+  }
+
+  @Test
+  public void testCursorHoldsReader() throws Exception {
+    DocumentSearcher searcher = new DocumentSearcher(new File(this.tempDir, "lucene"));
+    for (int i = 0; i < 10; i++) {
+      index(searcher, "A" + i + ".java", "reader " + i);
+    }
+    DocumentSearcher.HeldSearcher held = searcher.holdSearcher();
+    SearchCursor<String> cursor =
+        new SearchCursor<>(
+            (after, n) ->
+                held.search(
+                    indexSearcher -> {
+                      try {
+                        return searcher.searchAfter(
+                            indexSearcher,
+                            "code",
+                            "reader",
+                            after,
+                            n,
+                            Collections.singleton("code"),
+                            d -> Optional.of(d.get("code")));
+                      } catch (Exception e) {
+                        throw new RuntimeException(e);
+                      }
+                    }),
+            3,
+            100,
+            held::release);
+    List<String> hits = new ArrayList<>(cursor.nextPage());
+    assertEquals(3, hits.size());
+
+    // the later pages are read from the same reader
+    for (int i = 0; i < 10; i++) {
+      index(searcher, "B" + i + ".java", "reader " + i);
+    }
+    hits.addAll(cursor.stream().collect(Collectors.toList()));
+    assertEquals(10, hits.size());
+    assertEquals(10, new HashSet<>(hits).size());
+    assertFalse(cursor.hasNext());
+    assertEquals(20, search(searcher, "reader", 100).size());
+    searcher.close();
+  }
+
+  @Test
+  public void testCodeAnalyzer() throws Exception {
+    DocumentSearcher searcher = new DocumentSearcher(new File(this.tempDir, "lucene"));
+    index(searcher, "A.java", "DocumentSearcher searcher = new DocumentSearcher(indexDir);");
+    index(searcher, "B.java", "import java.util.List;", "int max_hits = 10;");
+    assertEquals(1, search(searcher, "documentSearcher").size());
+    assertEquals(1, search(searcher, "*Searcher").size());
+    assertEquals(1, search(searcher, "*Search*").size());
+    // inside a word
+    assertEquals(1, search(searcher, "*ocument*").size());
+    assertEquals(1, search(searcher, "java.util.List").size());
+    assertEquals(1, search(searcher, "util").size());
+    assertEquals(1, search(searcher, "hits").size());
+    assertEquals(1, search(searcher, "max_hits").size());
+    searcher.close();
+  }
+
+  @Test
+  public void testNgramPrefix() throws Exception {
+    DocumentSearcher searcher = new DocumentSearcher(new File(this.tempDir, "lucene"));
+    Document doc = create("A.java", "executeInTransaction(runnable);");
+    doc.add(new TextField("code" + SearchIndexable.NGRAM_SUFFIX, doc.get("code"), Field.Store.NO));
+    searcher.executeInTransaction(
+        () -> {
+          try {
+            searcher.addDocuments(Arrays.asList(doc));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+    assertEquals(1, search(searcher, "execute*").size());
+    assertEquals(1, search(searcher, "Trans*").size());
+    assertEquals(1, search(searcher, "*Trans*").size());
+    assertEquals(0, search(searcher, "query*").size());
+    searcher.close();
+  }
+
+  @Test
+  public void testGeneration() throws Exception {
+    DocumentSearcher searcher = new DocumentSearcher(new File(this.tempDir, "lucene"));
+    long generation = searcher.getGeneration();
+    assertEquals(0, search(searcher, "reader").size());
+    assertEquals(generation, searcher.getGeneration());
+    index(searcher, "A.java", "open reader");
+    assertTrue(searcher.getGeneration() > generation);
+    searcher.close();
+  }
+
+  @Test
+  public void testMemberRow() throws Exception {
+    DocumentSearcher searcher = new DocumentSearcher(new File(this.tempDir, "lucene"));
+    MethodDescriptor md =
+        new MethodDescriptor(
+            "java.util.Objects",
+            "requireNonNull",
+            "public static",
+            Arrays.asList(
+                new MethodParameter("T", "obj", false),
+                new MethodParameter("java.lang.String", "message", false)),
+            new String[0],
+            "T",
+            false,
+            CandidateUnit.MemberType.METHOD);
+    md.setTypeParameters(Collections.singleton("T"));
+    searcher.executeInTransaction(
+        () -> {
+          try {
+            searcher.addDocuments(Arrays.asList(md.toDocument()));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+    List<IndexedMember> members =
+        searcher.searchInTransaction(
+            indexSearcher -> {
+              try {
+                return searcher.searchAfter(
+                        indexSearcher,
+                        "completion",
+                        "requireNonNull",
+                        null,
+                        10,
+                        Collections.singleton(IndexedMember.FIELD),
+                        d -> IndexedMember.decode(d.getBinaryValue(IndexedMember.FIELD)))
+                    .items;
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            });
+    assertEquals(1, members.size());
+    IndexedMember member = members.get(0);
+    assertEquals("java.util.Objects", member.getDeclaringClass());
+    assertEquals("requireNonNull", member.getName());
+    assertEquals("METHOD", member.getType());
+    assertEquals("T", member.getReturnType());
+    assertEquals(md.getParameters(), member.getParameters());
+    md.showStaticClassName = true;
+    assertEquals(md.getDisplayDeclaration(), member.getDisplayDeclaration());
+    searcher.close();
+  }
+
+  private static void bulk(DocumentSearcher searcher, int groups, int lines) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      searcher.executeBulk(
+          () -> {
+            List<Future<?>> futures = new ArrayList<>(groups);
+            for (int i = 0; i < groups; i++) {
+              String groupId = "A" + i + ".java";
+              futures.add(
+                  pool.submit(
+                      () -> {
+                        List<Document> docs = new ArrayList<>(lines);
+                        for (int j = 0; j < lines; j++) {
+                          docs.add(create(groupId, "bulk reader " + j));
+                        }
+                        searcher.updateDocuments(SearchIndexable.GROUP_ID, groupId, docs);
+                        return null;
+                      }));
+            }
+            for (Future<?> future : futures) {
+              try {
+                future.get();
+              } catch (InterruptedException | ExecutionException e) {
+                throw new IOException(e);
+              }
+            }
+          });
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testBulk() throws Exception {
+    File indexDir = new File(this.tempDir, "lucene");
+    DocumentSearcher searcher = new DocumentSearcher(indexDir);
+    index(searcher, "A0.java", "old reader");
+    bulk(searcher, 8, 4);
+    // replaced
+    assertEquals(0, search(searcher, "old").size());
+    assertEquals(
+        32,
+        searcher
+            .searchInTransaction(
+                indexSearcher -> {
+                  try {
+                    return searcher.search(
+                        indexSearcher, "code", "bulk", 100, d -> Optional.of(d.get("code")));
+                  } catch (Exception e) {
+                    throw new RuntimeException(e);
+                  }
+                })
+            .size());
+    // committed without closing
+    try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(indexDir.toPath()))) {
+      assertEquals(32, reader.numDocs());
+    }
+    searcher.close();
+  }
+
+  @Ignore
+  @Test
+  public void benchmarkBulk() throws Exception {
+    int groups = 200;
+    int lines = 500;
+    DocumentSearcher serial = new DocumentSearcher(new File(this.tempDir, "serial"));
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    for (int i = 0; i < groups; i++) {
+      String[] codes = new String[lines];
+      for (int j = 0; j < lines; j++) {
+        codes[j] = "bulk reader " + j;
+      }
+      index(serial, "A" + i + ".java", codes);
+    }
+    serial.close();
+    log.info("serial {} docs/s", groups * lines * 1000L / stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+    DocumentSearcher bulk = new DocumentSearcher(new File(this.tempDir, "bulk"));
+    bulk.setRamBufferSize(64);
+    stopwatch.reset().start();
+    bulk(bulk, groups, lines);
+    log.info("bulk {} docs/s", groups * lines * 1000L / stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    bulk.close();
+  }
+
+  @Ignore
+  @Test
+  public void benchmarkBackends() throws Exception {
+    File srcDir = new File(System.getProperty("meghanada.benchmark.src", "src/main/java"));
+    List<File> files = new ArrayList<>();
+    for (File f : Files.fileTraverser().depthFirstPreOrder(srcDir)) {
+      if (f.getName().endsWith(".java")) {
+        files.add(f);
+      }
+    }
+    ContextualEnvironment env = Environments.newContextualInstance(new File(this.tempDir, "xodus"));
+    benchmark("xodus", new DocumentSearcher(env), files);
+    env.close();
+    benchmark("mmap", new DocumentSearcher(new File(this.tempDir, "lucene")), files);
+  }
+
+  private static void benchmark(String name, DocumentSearcher searcher, List<File> files)
+      throws IOException {
+    int docs = 0;
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    for (File f : files) {
+      List<String> lines = Files.readLines(f, StandardCharsets.UTF_8);
+      index(searcher, f.getPath(), lines.toArray(new String[0]));
+      docs += lines.size();
+    }
+    long indexed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    log.info(
+        "{} indexed {} files {} docs in {}ms ({} docs/s)",
+        name,
+        files.size(),
+        docs,
+        indexed,
+        docs * 1000L / Math.max(indexed, 1));
+
+    String[] queries = {"log", "searcher", "isNull", "executeInTransaction", "Config*", "*Cache"};
+    int rounds = 50;
+    stopwatch.reset().start();
+    for (int i = 0; i < rounds; i++) {
+      for (String query : queries) {
+        int size = search(searcher, query).size();
+      }
+    }
+    log.info(
+        "{} search {}us/query",
+        name,
+        stopwatch.elapsed(TimeUnit.MICROSECONDS) / (rounds * queries.length));
+    searcher.close();
+  }
+
+  @Ignore
+  @Test
+  public void benchmarkNgram() throws Exception {
+    File srcDir = new File(System.getProperty("meghanada.benchmark.src", "src/main/java"));
+    List<File> files = new ArrayList<>();
+    for (File f : Files.fileTraverser().depthFirstPreOrder(srcDir)) {
+      if (f.getName().endsWith(".java")) {
+        files.add(f);
+      }
+    }
+    String[] queries = {"searcher", "*Searcher", "Config*", "*Cache*", "*ocument*"};
+    for (boolean ngram : new boolean[] {false, true}) {
+      File indexDir = new File(this.tempDir, "lucene-" + ngram);
+      DocumentSearcher writer = new DocumentSearcher(indexDir);
+      for (File f : files) {
+        List<String> lines = Files.readLines(f, StandardCharsets.UTF_8);
+        writer.executeInTransaction(
+            () -> {
+              try {
+                for (String line : lines) {
+                  Document doc = create(f.getPath(), line);
+                  if (ngram) {
+                    doc.add(
+                        new TextField("code" + SearchIndexable.NGRAM_SUFFIX, line, Field.Store.NO));
+                  }
+                  writer.addDocuments(Arrays.asList(doc));
+                }
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+      }
+      writer.close();
+      long size = 0;
+      for (File f : indexDir.listFiles()) {
+        size += f.length();
+      }
+      log.info("ngram:{} index size {}KB", ngram, size / 1024);
+
+      DocumentSearcher searcher = new DocumentSearcher(indexDir);
+      for (String query : queries) {
+        int hits = search(searcher, query).size();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        for (int i = 0; i < 50; i++) {
+          hits = search(searcher, query).size();
+        }
+        log.info(
+            "ngram:{} query:{} hits:{} {}us",
+            ngram,
+            query,
+            hits,
+            stopwatch.elapsed(TimeUnit.MICROSECONDS) / 50);
+      }
+      searcher.close();
+    }
+  }
+}
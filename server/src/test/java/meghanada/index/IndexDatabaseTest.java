@@ -2,15 +2,27 @@ package meghanada.index;
 
 import static meghanada.config.Config.timeIt;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import meghanada.GradleTestBase;
 import meghanada.analyze.CompileResult;
-import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.MethodDescriptor;
 import meghanada.reflect.asm.CachedASMReflector;
-import meghanada.utils.ClassNameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
@@ -41,7 +53,7 @@ public class IndexDatabaseTest extends GradleTestBase {
     final CachedASMReflector reflector = CachedASMReflector.getInstance();
     timeIt(() -> reflector.scanAllStaticMembers());
     Thread.sleep(1000 * 10);
-    List<MemberDescriptor> members =
+    List<IndexedMember> members =
         IndexDatabase.getInstance().searchMembers("", "public static", "METHOD", "isNull");
     members.forEach(d -> log.info("{} {}", d.getDeclaringClass(), d.getDeclaration()));
     assertEquals(5, members.size());
@@ -53,12 +65,9 @@ public class IndexDatabaseTest extends GradleTestBase {
     final CachedASMReflector reflector = CachedASMReflector.getInstance();
     timeIt(() -> reflector.scanAllStaticMembers());
     Thread.sleep(1000 * 10);
-    List<MemberDescriptor> members =
+    List<IndexedMember> members =
         IndexDatabase.getInstance().searchMembers("java.util.List", "", "METHOD", "");
     members.forEach(d -> log.info("{} {}", d.getDeclaringClass(), d.getDeclaration()));
-    String declaringClass = "java.util.List<String>";
-    ClassNameUtils.replaceDescriptorsType(declaringClass, members);
-    members.forEach(d -> log.info("{} {}", declaringClass, d.getDeclaration()));
   }
 
   @Ignore
@@ -67,7 +76,7 @@ public class IndexDatabaseTest extends GradleTestBase {
     final CachedASMReflector reflector = CachedASMReflector.getInstance();
     timeIt(() -> reflector.scanAllStaticMembers());
     Thread.sleep(1000 * 10);
-    List<MemberDescriptor> members =
+    List<IndexedMember> members =
         IndexDatabase.getInstance()
             .searchMembers(
                 "(java.util.Objects OR org.junit.Assert)",
@@ -76,4 +85,130 @@ public class IndexDatabaseTest extends GradleTestBase {
                 "");
     members.forEach(d -> log.info("{} {}", d.getDeclaringClass(), d.getDeclaration()));
   }
+
+  @Test
+  public void searchMembersCache() throws Exception {
+    final String clazz = "meghanada.test.CacheTarget";
+    final IndexDatabase database = IndexDatabase.getInstance();
+    database.indexObject(members(clazz, "getFoo", "getBar", "getBaz", "setFoo"));
+
+    final String classQuery = IndexDatabase.doubleQuote(clazz);
+    final List<IndexedMember> first =
+        database.searchMembers(classQuery, "", "METHOD", IndexDatabase.prefix("get"));
+    assertEquals(Arrays.asList("getBar", "getBaz", "getFoo"), names(first));
+    // the same query in another spacing hits the cache
+    assertSame(
+        first, database.searchMembers(" " + classQuery, "", "METHOD", IndexDatabase.prefix("get")));
+
+    // a longer prefix is narrowed from the cached members
+    final List<IndexedMember> narrowed =
+        database.searchMembers(classQuery, "", "METHOD", IndexDatabase.prefix("getBa"));
+    assertEquals(Arrays.asList("getBar", "getBaz"), names(narrowed));
+    for (final IndexedMember m : narrowed) {
+      assertTrue(first.stream().anyMatch(f -> f == m));
+    }
+
+    // a change of the index invalidates the results
+    database.indexObject(members(clazz, "getFoo", "getBar", "getBaz", "getBay", "setFoo"));
+    final List<IndexedMember> second =
+        database.searchMembers(classQuery, "", "METHOD", IndexDatabase.prefix("get"));
+    assertNotSame(first, second);
+    assertEquals(Arrays.asList("getBar", "getBay", "getBaz", "getFoo"), names(second));
+    assertEquals(
+        Arrays.asList("getBar", "getBay", "getBaz"),
+        names(database.searchMembers(classQuery, "", "METHOD", IndexDatabase.prefix("getBa"))));
+  }
+
+  @Test
+  public void bulkIndexChunks() throws Exception {
+    final IndexDatabase database = IndexDatabase.getInstance();
+    final String first = "meghanada.test.BulkFirst";
+    final String second = "meghanada.test.BulkSecond";
+    final CountDownLatch release = new CountDownLatch(1);
+    final SearchIndexable blocked = members(second, "getSecond", "setSecond");
+    final SearchIndexable slow =
+        new SearchIndexable() {
+          @Override
+          public String getIndexGroupId() {
+            return second;
+          }
+
+          @Override
+          public List<Document> getDocumentIndices() {
+            Uninterruptibles.awaitUninterruptibly(release, 10, TimeUnit.SECONDS);
+            return blocked.getDocumentIndices();
+          }
+        };
+    database.setBulkChunkDocs(2);
+    final Thread bulk =
+        new Thread(
+            () -> database.bulkIndex(Arrays.asList(members(first, "getFirst", "setFirst"), slow)));
+    try {
+      bulk.start();
+      // the first chunk is searchable while the second is created
+      final String classQuery = IndexDatabase.doubleQuote(first);
+      final long deadline = System.currentTimeMillis() + 10000;
+      while (database.searchMembers(classQuery, "", "METHOD", "").isEmpty()
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(
+          Arrays.asList("getFirst", "setFirst"),
+          names(database.searchMembers(classQuery, "", "METHOD", "")));
+      // other writes are not blocked by the load
+      database.indexObject(members("meghanada.test.BulkOther", "getOther"));
+      assertTrue(
+          database.searchMembers(IndexDatabase.doubleQuote(second), "", "METHOD", "").isEmpty());
+    } finally {
+      release.countDown();
+      bulk.join();
+      database.setBulkChunkDocs(10000);
+    }
+    assertEquals(
+        Arrays.asList("getSecond", "setSecond"),
+        names(database.searchMembers(IndexDatabase.doubleQuote(second), "", "METHOD", "")));
+  }
+
+  @Test
+  public void prefix() throws Exception {
+    assertEquals("get*", IndexDatabase.prefix("get"));
+    assertEquals("", IndexDatabase.prefix(""));
+    assertEquals("", IndexDatabase.prefix(null));
+    assertEquals("", IndexDatabase.prefix("get bar"));
+  }
+
+  private static List<String> names(final List<IndexedMember> members) {
+    return members.stream().map(IndexedMember::getName).sorted().collect(Collectors.toList());
+  }
+
+  private static SearchIndexable members(final String clazz, final String... names) {
+    return new SearchIndexable() {
+      @Override
+      public String getIndexGroupId() {
+        return clazz;
+      }
+
+      @Override
+      public List<Document> getDocumentIndices() {
+        return Arrays.stream(names)
+            .map(
+                name -> {
+                  final MethodDescriptor md =
+                      new MethodDescriptor(
+                          clazz,
+                          name,
+                          "public static",
+                          Collections.emptyList(),
+                          new String[0],
+                          "void",
+                          false,
+                          CandidateUnit.MemberType.METHOD);
+                  final Document doc = md.toDocument();
+                  doc.add(new StringField(SearchIndexable.GROUP_ID, clazz, Field.Store.YES));
+                  return doc;
+                })
+            .collect(Collectors.toList());
+      }
+    };
+  }
 }
@@ -0,0 +1,145 @@
+package meghanada.index;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LineIndexerTest {
+
+  private File tempDir;
+  private FailingSearcher searcher;
+  private LineIndexer lineIndexer;
+
+  @Before
+  public void setup() throws IOException {
+    this.tempDir = Files.createTempDir();
+    this.searcher = new FailingSearcher(new File(this.tempDir, "lucene"));
+    this.lineIndexer = new LineIndexer();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    this.searcher.close();
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  private void index(String... lines) {
+    List<Document> docs = new ArrayList<>(lines.length);
+    for (int i = 0; i < lines.length; i++) {
+      Document doc = new Document();
+      doc.add(new StringField(SearchIndexable.GROUP_ID, "A.java", Field.Store.YES));
+      doc.add(new NumericDocValuesField(SearchIndexable.LINE_NUMBER, i + 1));
+      doc.add(new TextField("code", lines[i], Field.Store.YES));
+      docs.add(doc);
+    }
+    this.searcher.executeInTransaction(
+        () -> {
+          try {
+            this.lineIndexer.index(this.searcher, "A.java", docs);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  // code:line of all lines, in line order
+  private List<String> lines() {
+    return this.searcher.searchInTransaction(
+        indexSearcher -> {
+          try {
+            List<String> result =
+                this.searcher.search(
+                    indexSearcher,
+                    "code",
+                    "*:*",
+                    100,
+                    d -> Optional.of(d.get(SearchIndexable.LINE_NUMBER) + ":" + d.get("code")));
+            result.sort((a, b) -> Integer.compare(lineOf(a), lineOf(b)));
+            return result;
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        });
+  }
+
+  private static int lineOf(String s) {
+    return Integer.parseInt(s.substring(0, s.indexOf(':')));
+  }
+
+  @Test
+  public void testInsertDeleteChange() throws Exception {
+    index("package a", "class A {", "int x;", "int y;", "}");
+    assertEquals(
+        Arrays.asList("1:package a", "2:class A {", "3:int x;", "4:int y;", "5:}"), lines());
+
+    // insert
+    index("package a", "import b", "class A {", "int x;", "int y;", "}");
+    assertEquals(
+        Arrays.asList("1:package a", "2:import b", "3:class A {", "4:int x;", "5:int y;", "6:}"),
+        lines());
+
+    // delete
+    index("package a", "import b", "class A {", "int y;", "}");
+    assertEquals(
+        Arrays.asList("1:package a", "2:import b", "3:class A {", "4:int y;", "5:}"), lines());
+
+    // change
+    index("package a", "import b", "class B {", "int y;", "}");
+    assertEquals(
+        Arrays.asList("1:package a", "2:import b", "3:class B {", "4:int y;", "5:}"), lines());
+
+    // forgotten hashes replace the file
+    this.lineIndexer.invalidateAll();
+    index("package a", "class B {", "}");
+    assertEquals(Arrays.asList("1:package a", "2:class B {", "3:}"), lines());
+  }
+
+  @Test
+  public void testFailedUpdate() throws Exception {
+    index("package a", "class A {", "int x;", "int y;", "}");
+
+    // the add fails after the changed line was deleted
+    this.searcher.failAdd = true;
+    index("package a", "class A {", "int z;", "int y;", "}");
+    assertEquals(
+        Arrays.asList("1:package a", "2:class A {", "3:int z;", "4:int y;", "5:}"), lines());
+
+    // the replaced file is updated by lines again
+    index("package a", "class A {", "int z;", "}");
+    assertEquals(Arrays.asList("1:package a", "2:class A {", "3:int z;", "4:}"), lines());
+  }
+
+  private static class FailingSearcher extends DocumentSearcher {
+
+    boolean failAdd;
+
+    FailingSearcher(File indexDir) throws IOException {
+      super(indexDir);
+    }
+
+    @Override
+    void addDocuments(Collection<Document> docs) throws IOException {
+      if (this.failAdd) {
+        this.failAdd = false;
+        throw new IOException("add failed");
+      }
+      super.addDocuments(docs);
+    }
+  }
+}
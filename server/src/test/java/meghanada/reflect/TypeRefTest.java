@@ -0,0 +1,51 @@
+package meghanada.reflect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Test;
+
+public class TypeRefTest {
+
+  @Test
+  public void testParse() throws Exception {
+    String name = "java.util.Map<%%K, java.util.List<? extends %%V>>";
+    TypeRef ref = TypeRef.of(name).get();
+    assertTrue(ref instanceof TypeRef.ParameterizedType);
+    assertEquals(name, ref.toString());
+    assertEquals("java.util.Map", ref.getRawName());
+    assertEquals(Arrays.asList("%%K", "java.util.List<? extends %%V>"), ref.getArgumentNames());
+    assertTrue(ref.getArguments().get(0) instanceof TypeRef.TypeVariable);
+
+    // canonical instances
+    assertSame(ref, TypeRef.of("java.util.Map<%%K,java.util.List<? extends %%V>>").get());
+    assertSame(ref.getArguments().get(0), TypeRef.typeVariable("%%", "K"));
+
+    TypeRef array = TypeRef.of("java.util.List<java.lang.String>[][]").get();
+    assertEquals("java.util.List[][]", array.getRawName());
+    assertEquals(Collections.singletonList("java.lang.String"), array.getArgumentNames());
+
+    TypeRef inner = TypeRef.of("a.Outer<%%T>$Inner").get();
+    assertEquals("a.Outer$Inner", inner.getRawName());
+    assertEquals(Collections.singletonList("%%T"), inner.getArgumentNames());
+
+    assertFalse(TypeRef.of("capture of ? extends java.lang.Number").isPresent());
+    assertEquals("java.util.List<", TypeRef.intern("java.util.List<"));
+  }
+
+  @Test
+  public void testSubstitute() throws Exception {
+    TypeRef ref = TypeRef.of("java.util.AbstractMap<%%K, java.util.List<%%V[]>>").get();
+    Map<String, TypeRef> replace =
+        Collections.singletonMap("%%V", TypeRef.of("? super java.lang.Integer").get());
+    assertEquals(
+        "java.util.AbstractMap<%%K, java.util.List<? super java.lang.Integer[]>>",
+        ref.substitute(replace).toString());
+    assertSame(ref, ref.substitute(Collections.singletonMap("%%X", ref)));
+  }
+}
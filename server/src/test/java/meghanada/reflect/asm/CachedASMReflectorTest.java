@@ -301,7 +301,7 @@ public class CachedASMReflectorTest extends GradleTestBase {
     List<MemberDescriptor> memberDescriptors = cachedASMReflector.reflect(fqcn);
     memberDescriptors.sort(MemberDescriptor::compareTo);
     memberDescriptors.forEach(m -> System.out.println(m.getDisplayDeclaration()));
-    assertEquals(55, memberDescriptors.size());
+    assertEquals(56, memberDescriptors.size());
   }
 
   @Test
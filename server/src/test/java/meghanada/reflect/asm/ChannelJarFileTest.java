@@ -0,0 +1,97 @@
+package meghanada.reflect.asm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChannelJarFileTest {
+
+  private File tempDir;
+
+  @Before
+  public void setup() {
+    this.tempDir = Files.createTempDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  private static void putEntry(JarOutputStream out, String name, byte[] data, boolean stored)
+      throws IOException {
+    JarEntry entry = new JarEntry(name);
+    if (stored) {
+      CRC32 crc = new CRC32();
+      crc.update(data);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(data.length);
+      entry.setCrc(crc.getValue());
+    }
+    out.putNextEntry(entry);
+    out.write(data);
+    out.closeEntry();
+  }
+
+  @Test
+  public void testForEachClass() throws Exception {
+    byte[] deflated = new byte[40000];
+    for (int i = 0; i < deflated.length; i++) {
+      deflated[i] = (byte) (i % 7);
+    }
+    byte[] stored = "stored".getBytes(StandardCharsets.UTF_8);
+    File jar = new File(this.tempDir, "test.jar");
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      putEntry(out, "META-INF/test.txt", stored, false);
+      putEntry(out, "a/b/Deflated.class", deflated, false);
+      putEntry(out, "a/b/Stored.class", stored, true);
+      putEntry(out, "a/b/Skipped.class", stored, false);
+    }
+
+    Map<String, byte[]> classes = new ConcurrentHashMap<>();
+    try (ChannelJarFile jarFile = ChannelJarFile.open(jar)) {
+      assertEquals(3, jarFile.size());
+      jarFile.forEachClass(
+          name -> !name.endsWith("Skipped"),
+          (name, bytes, length) -> classes.put(name, Arrays.copyOf(bytes, length)));
+    }
+    assertEquals(2, classes.size());
+    assertArrayEquals(deflated, classes.get("a.b.Deflated"));
+    assertArrayEquals(stored, classes.get("a.b.Stored"));
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    File jar = new File(this.tempDir, "test.jar");
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      putEntry(out, "a/b/C.class", "c".getBytes(StandardCharsets.UTF_8), false);
+    }
+    ChannelJarFile jarFile = ChannelJarFile.open(jar);
+    jarFile.close();
+    try {
+      jarFile.forEachClass(name -> true, (name, bytes, length) -> {});
+      fail("read after close");
+    } catch (UncheckedIOException e) {
+      assertTrue(e.getCause() instanceof ClosedChannelException);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package meghanada.reflect.asm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import meghanada.reflect.ClassIndex;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+public class ClassHeaderReaderTest {
+
+  private static ClassReader classReader(String name) throws IOException {
+    String resource = name.replace('.', '/') + ".class";
+    ClassLoader loader = ClassHeaderReaderTest.class.getClassLoader();
+    try (InputStream in = loader.getResourceAsStream(resource)) {
+      return new ClassReader(in);
+    }
+  }
+
+  private static void assertSameIndex(String name) throws IOException {
+    ClassReader reader = classReader(name);
+    ClassAnalyzeVisitor visitor = new ClassAnalyzeVisitor(name, true, false);
+    reader.accept(visitor, 0);
+    ClassIndex expected = visitor.getClassIndex();
+    ClassIndex actual = ClassHeaderReader.read(reader, name);
+
+    assertEquals(expected.getRawDeclaration(), actual.getRawDeclaration());
+    assertEquals(expected.getTypeParameters(), actual.getTypeParameters());
+    assertEquals(expected.getSupers(), actual.getSupers());
+    assertEquals(expected.isInterface(), actual.isInterface());
+    assertEquals(expected.isFunctional(), actual.isFunctional());
+    assertEquals(expected.isAnonymous, actual.isAnonymous);
+  }
+
+  @Test
+  public void testSameAsFullParse() throws Exception {
+    assertSameIndex("java.lang.String");
+    assertSameIndex("java.util.Map");
+    assertSameIndex("java.util.Map$Entry");
+    assertSameIndex("java.util.HashMap");
+    assertSameIndex("java.lang.Runnable");
+    assertSameIndex("java.lang.annotation.Retention");
+    assertSameIndex(ClassHeaderReaderTest.class.getName());
+  }
+
+  @Test
+  public void testFlags() throws Exception {
+    ClassIndex runnable =
+        ClassHeaderReader.read(classReader("java.lang.Runnable"), "java.lang.Runnable");
+    assertTrue(runnable.isFunctional());
+
+    Object anonymous = new Object() {};
+    String name = anonymous.getClass().getName();
+    assertTrue(ClassHeaderReader.read(classReader(name), name).isAnonymous);
+
+    ClassIndex map = ClassHeaderReader.read(classReader("java.util.Map"), "java.util.Map");
+    assertFalse(map.isAnonymous);
+    assertEquals(2, map.getTypeParameters().size());
+  }
+}
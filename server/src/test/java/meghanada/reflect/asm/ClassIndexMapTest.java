@@ -0,0 +1,113 @@
+package meghanada.reflect.asm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import meghanada.reflect.ClassIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClassIndexMapTest {
+
+  private File tempDir;
+
+  @Before
+  public void setup() {
+    this.tempDir = Files.createTempDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  private static ClassIndex create(String fqcn, String path) {
+    ClassIndex index = new ClassIndex(fqcn, new ArrayList<>(), new ArrayList<>());
+    index.setFilePath(path);
+    return index;
+  }
+
+  private static List<String> declarations(Stream<ClassIndex> stream) {
+    return stream.map(ClassIndex::getRawDeclaration).sorted().collect(Collectors.toList());
+  }
+
+  @Test
+  public void testLayeredLookup() throws Exception {
+    File file = new File(this.tempDir, "snapshot.idx");
+    JDKClassSnapshot.write(
+        file,
+        Arrays.asList(
+            create("java.util.Map", "/jdk"),
+            create("java.util.Map$Entry", "/jdk"),
+            create("java.util.List", "/jdk")));
+
+    ClassIndexMap map = new ClassIndexMap(16);
+    map.setSnapshot(JDKClassSnapshot.open(file));
+    map.put("a.b.Entry", create("a.b.Entry", "/lib.jar"));
+    map.put("a.b.Outer", create("a.b.Outer", "/lib.jar"));
+    map.put("a.b.Outer$Inner", create("a.b.Outer$Inner", "/lib.jar"));
+    map.put("java.util.List", create("java.util.List", "/override.jar"));
+
+    assertEquals(6, map.size());
+    assertEquals(6, map.values().size());
+    assertEquals("/override.jar", map.get("java.util.List").getFilePath());
+    assertTrue(map.containsKey("java.util.Map$Entry"));
+
+    assertEquals(
+        Arrays.asList("java.util.List", "java.util.Map", "java.util.Map$Entry"),
+        declarations(map.packageClasses("java.util")));
+    assertEquals(
+        Arrays.asList("a.b.Entry", "java.util.Map$Entry"),
+        declarations(map.simpleNameClasses("Entry")));
+    assertEquals(Arrays.asList("a.b.Outer$Inner"), declarations(map.innerClasses("a.b.Outer")));
+    assertEquals(
+        Arrays.asList("java.util.Map$Entry"), declarations(map.innerClasses("java.util.Map")));
+
+    map.remove("a.b.Outer$Inner");
+    assertFalse(map.innerClasses("a.b.Outer").findAny().isPresent());
+    assertNull(map.get("a.b.Outer$Inner"));
+  }
+
+  @Test
+  public void testShadowedSize() throws Exception {
+    File file = new File(this.tempDir, "snapshot.idx");
+    JDKClassSnapshot.write(
+        file, Arrays.asList(create("java.util.Map", "/jdk"), create("java.util.List", "/jdk")));
+
+    ClassIndexMap map = new ClassIndexMap(16);
+    map.put("java.util.List", create("java.util.List", "/override.jar"));
+    map.put("a.b.C", create("a.b.C", "/lib.jar"));
+    assertEquals(2, map.size());
+
+    // shadowed entries are counted once
+    map.setSnapshot(JDKClassSnapshot.open(file));
+    assertEquals(3, map.size());
+    map.put("java.util.Map", create("java.util.Map", "/override.jar"));
+    assertEquals(3, map.size());
+    map.put("java.util.Map", create("java.util.Map", "/override2.jar"));
+    assertEquals(3, map.size());
+    map.remove("java.util.List");
+    assertEquals(3, map.size());
+    map.remove("a.b.C");
+    assertEquals(2, map.size());
+
+    assertEquals(
+        Arrays.asList("java.util.List", "java.util.Map"),
+        map.declarations().sorted().collect(Collectors.toList()));
+    map.put("a.b.D", create("a.b.D", "/lib.jar"));
+    assertEquals(
+        Arrays.asList("a.b.D", "java.util.List", "java.util.Map"),
+        map.declarations().sorted().collect(Collectors.toList()));
+  }
+}
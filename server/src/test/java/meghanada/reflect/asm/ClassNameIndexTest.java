@@ -0,0 +1,75 @@
+package meghanada.reflect.asm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import meghanada.completion.matcher.CamelCaseMatcher;
+import meghanada.completion.matcher.FuzzyMatcher;
+import org.junit.Test;
+
+public class ClassNameIndexTest {
+
+  private static ClassNameIndex create() {
+    ClassNameIndex index = new ClassNameIndex();
+    index.add("HashMap", "java.util.HashMap");
+    index.add("HashSet", "java.util.HashSet");
+    index.add("ConcurrentHashMap", "java.util.concurrent.ConcurrentHashMap");
+    index.add("Map$Entry", "java.util.Map$Entry");
+    index.add("Map", "java.util.Map");
+    index.add("String", "java.lang.String");
+    return index;
+  }
+
+  @Test
+  public void testPrefixed() {
+    ClassNameIndex index = create();
+    assertEquals(
+        Arrays.asList("HashMap", "HashSet"), index.prefixed("Hash").collect(Collectors.toList()));
+    assertEquals(
+        Arrays.asList("Map", "Map$Entry"), index.prefixed("Map").collect(Collectors.toList()));
+    assertEquals(6, index.prefixed("").count());
+    assertEquals(0, index.prefixed("Tree").count());
+  }
+
+  @Test
+  public void testContaining() {
+    ClassNameIndex index = create();
+    List<String> names = index.containing("Map").collect(Collectors.toList());
+    // prefix hits first
+    assertEquals(Arrays.asList("Map", "Map$Entry"), names.subList(0, 2));
+    assertEquals(4, names.size());
+    assertTrue(names.contains("ConcurrentHashMap"));
+    assertEquals(
+        Collections.singletonList("ConcurrentHashMap"),
+        index.containing("rentHa").collect(Collectors.toList()));
+    assertEquals(0, index.containing("map").count());
+    assertEquals(3, index.containing("as").count());
+  }
+
+  @Test
+  public void testRemove() {
+    ClassNameIndex index = create();
+    index.add("HashMap", "com.example.HashMap");
+    index.remove("HashMap", "java.util.HashMap");
+    assertEquals(Collections.singleton("com.example.HashMap"), index.declarations("HashMap"));
+    index.remove("HashMap", "com.example.HashMap");
+    assertEquals(0, index.containing("shMa").filter("HashMap"::equals).count());
+    index.add("HashMap", "java.util.HashMap");
+    assertEquals(1, index.containing("shMa").filter("HashMap"::equals).count());
+  }
+
+  @Test
+  public void testMatcherCandidates() {
+    ClassNameIndex index = create();
+    assertEquals(
+        Collections.singletonList("HashMap"),
+        new CamelCaseMatcher("HaMa").candidates(index).collect(Collectors.toList()));
+    assertEquals(
+        Collections.singletonList("HashSet"),
+        new FuzzyMatcher("HSet").candidates(index).collect(Collectors.toList()));
+  }
+}
@@ -0,0 +1,91 @@
+package meghanada.reflect.asm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.ClassIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JDKClassSnapshotTest {
+
+  private File tempDir;
+
+  @Before
+  public void setup() {
+    this.tempDir = Files.createTempDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  @Test
+  public void testWriteAndOpen() throws Exception {
+    ClassIndex map =
+        new ClassIndex(
+            "java.util.Map",
+            new ArrayList<>(Arrays.asList("K", "V")),
+            new ArrayList<>(Collections.singletonList("java.lang.Object")));
+    map.setInterface(true);
+    map.setMemberType(CandidateUnit.MemberType.PACKAGE);
+    map.setFilePath("/jdk/rt.jar");
+    ClassIndex entry =
+        new ClassIndex(
+            "java.util.Map$Entry",
+            new ArrayList<>(Arrays.asList("K", "V")),
+            new ArrayList<>(Collections.singletonList("java.lang.Object")));
+    entry.setFilePath("/jdk/rt.jar");
+    ClassIndex list = new ClassIndex("java.util.List", new ArrayList<>(), new ArrayList<>());
+    list.setFilePath("/jdk/rt.jar");
+    ClassIndex string = new ClassIndex("java.lang.String", new ArrayList<>(), new ArrayList<>());
+    string.setFilePath("/jdk/rt.jar");
+
+    File file = new File(this.tempDir, "jdk/snapshot.idx");
+    JDKClassSnapshot.write(file, Arrays.asList(map, entry, list, string));
+    JDKClassSnapshot snapshot = JDKClassSnapshot.open(file);
+
+    assertEquals(4, snapshot.size());
+    assertTrue(snapshot.contains("java.util.Map"));
+    assertFalse(snapshot.contains("java.util.Ma"));
+    assertNull(snapshot.get("java.util.Set"));
+
+    ClassIndex loaded = snapshot.get("java.util.Map");
+    assertEquals("java.util.Map", loaded.getRawDeclaration());
+    assertEquals(Arrays.asList("K", "V"), loaded.getTypeParameters());
+    assertEquals(Collections.singletonList("java.lang.Object"), loaded.getSupers());
+    assertEquals("/jdk/rt.jar", loaded.getFilePath());
+    assertTrue(loaded.isInterface());
+    assertFalse(loaded.isAnnotation());
+    assertEquals(CandidateUnit.MemberType.PACKAGE, loaded.getMemberType());
+
+    List<String> inners =
+        snapshot
+            .startsWith("java.util.Map$")
+            .map(ClassIndex::getRawDeclaration)
+            .collect(Collectors.toList());
+    assertEquals(Collections.singletonList("java.util.Map$Entry"), inners);
+    assertEquals(3, snapshot.startsWith("java.util.").count());
+
+    assertEquals(3, snapshot.packageClasses("java.util").count());
+    assertEquals(1, snapshot.packageClasses("java.lang").count());
+    assertEquals(0, snapshot.packageClasses("java").count());
+    assertEquals(
+        "java.util.Map$Entry",
+        snapshot.simpleNameClasses("Entry").findFirst().get().getRawDeclaration());
+    assertEquals(0, snapshot.simpleNameClasses("Set").count());
+  }
+}
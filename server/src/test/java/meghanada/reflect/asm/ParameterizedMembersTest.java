@@ -0,0 +1,53 @@
+package meghanada.reflect.asm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import org.junit.Test;
+
+public class ParameterizedMembersTest {
+
+  @Test
+  public void testViews() throws Exception {
+    MethodDescriptor get =
+        new MethodDescriptor(
+            "java.util.List",
+            "get",
+            "public",
+            Collections.emptyList(),
+            new String[0],
+            "%%E",
+            false,
+            CandidateUnit.MemberType.METHOD);
+    get.setTypeParameters(Collections.singleton("E"));
+    FieldDescriptor field = new FieldDescriptor("java.util.Collection", "size", "public", "int");
+    List<MemberDescriptor> base = Arrays.asList(get, field);
+
+    Map<String, String> typeArguments = Collections.singletonMap("E", "java.lang.String");
+    ParameterizedMembers members =
+        new ParameterizedMembers(base, "java.util.List<java.lang.String>", typeArguments);
+    MemberDescriptor view = members.get(0);
+    assertNotSame(get, view);
+    assertSame(view, members.get(0));
+    assertEquals("String", view.getReturnType());
+    assertEquals("java.util.List<java.lang.String>", view.getDeclaringClass());
+    assertEquals("java.util.Collection", members.get(1).getDeclaringClass());
+
+    // shared descriptors are left unchanged
+    assertTrue(get.typeParameterMap.isEmpty());
+    assertEquals("java.util.List", get.getDeclaringClass());
+
+    assertEquals(1, members.filter(m -> m.getName().equals("get")).size());
+    assertSame(get, ParameterizedMembers.of(base).get(0));
+  }
+}
@@ -0,0 +1,67 @@
+package meghanada.reflect.asm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import meghanada.reflect.ClassIndex;
+import org.junit.Test;
+
+public class SupertypeTableTest {
+
+  private static ClassIndex create(String fqcn, List<String> typeParameters, String... supers) {
+    ClassIndex index = new ClassIndex(fqcn, typeParameters, Arrays.asList(supers));
+    index.setFilePath("/" + fqcn);
+    return index;
+  }
+
+  private static void put(Map<String, ClassIndex> map, ClassIndex index) {
+    map.put(index.getRawDeclaration(), index);
+  }
+
+  @Test
+  public void testClosure() throws Exception {
+    ClassIndexMap map = new ClassIndexMap(16);
+    put(map, create("java.lang.Object", Collections.emptyList()));
+    put(map, create("a.Base", Collections.singletonList("T"), "java.lang.Object"));
+    put(map, create("a.Iface", Collections.emptyList()));
+    put(map, create("a.Child", Collections.singletonList("E"), "a.Base<%%E>", "a.Iface"));
+    put(map, create("a.Leaf", Collections.emptyList(), "a.Child<java.lang.String>"));
+
+    SupertypeTable table = map.getSupertypeTable();
+    assertEquals(
+        Arrays.asList("a.Child<java.lang.String>", "a.Base<E>", "a.Iface"),
+        table.superClasses("a.Leaf"));
+
+    // same result as the walk over a plain map
+    ASMReflector asmReflector = ASMReflector.getInstance();
+    Map<String, ClassIndex> plain = new HashMap<>(map);
+    for (String fqcn : Arrays.asList("a.Leaf", "a.Child<java.lang.Integer>")) {
+      InheritanceInfo expected = asmReflector.getReflectInfo(plain, fqcn);
+      InheritanceInfo actual = asmReflector.getReflectInfo(map, fqcn);
+      assertEquals(expected.inherit, actual.inherit);
+      assertEquals(expected.classFileMap, actual.classFileMap);
+    }
+
+    // recompiled interface gets a new super
+    put(map, create("a.Root", Collections.emptyList()));
+    put(map, create("a.Iface", Collections.emptyList(), "a.Root"));
+    assertEquals(
+        Arrays.asList("a.Child<java.lang.String>", "a.Base<E>", "a.Iface", "a.Root"),
+        table.superClasses("a.Leaf"));
+    assertEquals(
+        asmReflector.getReflectInfo(new HashMap<>(map), "a.Leaf").inherit,
+        asmReflector.getReflectInfo(map, "a.Leaf").inherit);
+
+    map.remove("a.Base");
+    assertEquals(
+        Arrays.asList("a.Child<java.lang.String>", "a.Base<E>", "a.Iface", "a.Root"),
+        table.superClasses("a.Leaf"));
+    assertEquals(
+        Arrays.asList("a.Leaf", "a.Child<java.lang.String>", "a.Iface", "a.Root"),
+        asmReflector.getReflectInfo(map, "a.Leaf").inherit);
+  }
+}
@@ -0,0 +1,42 @@
+package meghanada.server.formatter;
+
+import static org.junit.Assert.assertEquals;
+
+import meghanada.config.Config;
+import meghanada.session.Readiness;
+import org.junit.After;
+import org.junit.Test;
+
+public class SExprOutputFormatterTest {
+
+  @After
+  public void tearDown() {
+    Config.load().setReadinessInResponse(false);
+  }
+
+  @Test
+  public void testStatus() throws Exception {
+    Config.load().setReadinessInResponse(false);
+    SExprOutputFormatter formatter = new SExprOutputFormatter();
+    Readiness.Status status = new Readiness.Status(Readiness.Phase.SOURCES, 3, 10, 120, 280);
+    assertEquals("(success (sources 3 10 120 280))", formatter.status(1, status));
+  }
+
+  @Test
+  public void testStatusUnknownEta() throws Exception {
+    Config.load().setReadinessInResponse(false);
+    SExprOutputFormatter formatter = new SExprOutputFormatter();
+    Readiness.Status status = new Readiness.Status(Readiness.Phase.COMPILE, 0, 0, 5, -1);
+    assertEquals("(success (compile 0 0 5 -1))", formatter.status(1, status));
+  }
+
+  @Test
+  public void testReadinessInResponse() throws Exception {
+    Config.load().setReadinessInResponse(true);
+    SExprOutputFormatter formatter = new SExprOutputFormatter();
+    String phase = Readiness.getInstance().getPhase().getName();
+    Readiness.Status status = new Readiness.Status(Readiness.Phase.READY, 0, 0, 1, 0);
+    assertEquals("(success (ready 0 0 1 0) :readiness " + phase + ")", formatter.status(1, status));
+    assertEquals("(success \"pong\" :readiness " + phase + ")", formatter.ping(1, "pong"));
+  }
+}
@@ -0,0 +1,99 @@
+package meghanada.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ReadinessTest {
+
+  @Test
+  public void testStarting() throws Exception {
+    Readiness readiness = new Readiness();
+    Readiness.Status status = readiness.getStatus();
+    assertEquals(Readiness.Phase.STARTING, status.phase);
+    assertEquals(0, status.done);
+    assertEquals(0, status.total);
+    assertEquals(-1, status.eta);
+  }
+
+  @Test
+  public void testProgress() throws Exception {
+    Readiness readiness = new Readiness();
+    readiness.start(Readiness.Phase.CLASSPATH, 10);
+    assertEquals(-1, readiness.getStatus().eta);
+
+    readiness.progress(4);
+    readiness.progress(1);
+    Thread.sleep(20);
+    Readiness.Status status = readiness.getStatus();
+    assertEquals(Readiness.Phase.CLASSPATH, status.phase);
+    assertEquals(5, status.done);
+    assertEquals(10, status.total);
+    assertTrue(status.elapsed >= 20);
+    // half done, the rest takes about as long as the elapsed time
+    assertTrue(status.eta >= 0);
+  }
+
+  @Test
+  public void testStartResetsProgress() throws Exception {
+    Readiness readiness = new Readiness();
+    readiness.start(Readiness.Phase.CLASSPATH, 10);
+    readiness.progress(10);
+    readiness.start(Readiness.Phase.SOURCES, 3);
+    Readiness.Status status = readiness.getStatus();
+    assertEquals(Readiness.Phase.SOURCES, status.phase);
+    assertEquals(0, status.done);
+    assertEquals(3, status.total);
+  }
+
+  @Test
+  public void testEtaFromLastRun() throws Exception {
+    Readiness readiness = new Readiness();
+    long started = System.nanoTime();
+    readiness.start(Readiness.Phase.COMPILE, 0);
+    Thread.sleep(200);
+    readiness.ready();
+    long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+    // no progress in this phase, the eta comes from the previous duration
+    readiness.start(Readiness.Phase.COMPILE, 0);
+    Readiness.Status status = readiness.getStatus();
+    assertTrue(status.eta > 0);
+    assertTrue(status.eta <= took);
+  }
+
+  @Test
+  public void testEtaFromRestoredRun() throws Exception {
+    Readiness last = new Readiness();
+    last.start(Readiness.Phase.SOURCES, 0);
+    Thread.sleep(200);
+    last.start(Readiness.Phase.COMPILE, 0);
+    Thread.sleep(200);
+    last.ready();
+    Map<String, Long> durations = last.getLastDurations();
+
+    // a fresh process knows the durations once the warm state is restored
+    Readiness readiness = new Readiness();
+    readiness.start(Readiness.Phase.CLASSPATH, 1);
+    readiness.restoreLastDurations(durations);
+    readiness.start(Readiness.Phase.COMPILE, 0);
+    assertTrue(readiness.getStatus().eta > 0);
+    readiness.start(Readiness.Phase.SOURCES, 0);
+    assertTrue(readiness.getStatus().eta > 0);
+  }
+
+  @Test
+  public void testReady() throws Exception {
+    Readiness readiness = new Readiness();
+    readiness.start(Readiness.Phase.CLASSPATH, 10);
+    readiness.ready();
+    Readiness.Status status = readiness.getStatus();
+    assertEquals(Readiness.Phase.READY, status.phase);
+    assertEquals(Readiness.Phase.READY, readiness.getPhase());
+    assertEquals(0, status.eta);
+    assertEquals("ready", status.phase.getName());
+  }
+}
@@ -0,0 +1,267 @@
+package meghanada.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jetbrains.exodus.entitystore.Entity;
+import jetbrains.exodus.entitystore.StoreTransaction;
+import org.junit.After;
+import org.junit.Test;
+
+public class GroupCommitterTest {
+
+  private GroupCommitter committer;
+
+  @After
+  public void tearDown() throws InterruptedException {
+    if (committer != null) {
+      committer.shutdown(10, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testCloseBySize() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    committer = new GroupCommitter(sink, 64, 4, TimeUnit.MINUTES.toMillis(1));
+    for (int i = 0; i < 8; i++) {
+      committer.put(request(new Item("a" + i, i), true));
+    }
+    sink.await(2);
+    assertEquals(Arrays.asList(4, 4), sink.groupSizes());
+  }
+
+  @Test
+  public void testCloseByLatency() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    committer = new GroupCommitter(sink, 64, 512, 50);
+    long start = System.nanoTime();
+    committer.put(request(new Item("a", 0), true));
+    committer.put(request(new Item("b", 0), true));
+    sink.await(1);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertEquals(Arrays.asList(2), sink.groupSizes());
+    assertTrue(elapsed >= 50);
+  }
+
+  @Test
+  public void testShutdownCommitsPending() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    committer = new GroupCommitter(sink, 64, 512, TimeUnit.MINUTES.toMillis(1));
+    committer.put(request(new Item("a", 0), true));
+    committer.shutdown(10, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList(1), sink.groupSizes());
+  }
+
+  @Test
+  public void testOneSyncPerGroup() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    committer = new GroupCommitter(sink, 64, 10, TimeUnit.MINUTES.toMillis(1));
+    List<Storable> items = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      items.add(new Item("a" + i, i));
+    }
+    for (int i = 0; i < 30; i += 5) {
+      committer.put(requests(items.subList(i, i + 5), true));
+    }
+    sink.await(3);
+    assertEquals(3, sink.writes.get());
+    assertEquals(3, sink.syncs.get());
+  }
+
+  @Test
+  public void testBackpressure() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingSink sink = new RecordingSink(release);
+    committer = new GroupCommitter(sink, 2, 1, 0);
+
+    // taken by the committer, blocked in the sink
+    committer.put(request(new Item("a", 0), true));
+    sink.awaitWriting();
+    // fill the queue
+    committer.put(request(new Item("b", 0), true));
+    committer.put(request(new Item("c", 0), true));
+
+    CountDownLatch put = new CountDownLatch(1);
+    Thread producer =
+        new Thread(
+            () -> {
+              try {
+                committer.put(request(new Item("d", 0), true));
+                put.countDown();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    producer.start();
+    assertFalse(put.await(200, TimeUnit.MILLISECONDS));
+
+    release.countDown();
+    assertTrue(put.await(10, TimeUnit.SECONDS));
+    sink.await(4);
+    producer.join();
+  }
+
+  @Test
+  public void testLastUpdateWins() {
+    GroupCommitter.GroupCommit group = new GroupCommitter.GroupCommit();
+    Item first = new Item("a", 1);
+    Item second = new Item("a", 2);
+    group.add(request(first, true));
+    group.add(request(second, true));
+    assertEquals(1, group.size());
+    GroupCommitter.PendingWrite w = group.writes().iterator().next();
+    assertSame(second, w.storable);
+    assertTrue(w.allowUpdate);
+  }
+
+  @Test
+  public void testInsertOnlyKeepsFirst() {
+    GroupCommitter.GroupCommit group = new GroupCommitter.GroupCommit();
+    Item first = new Item("a", 1);
+    Item second = new Item("a", 2);
+    group.add(request(first, false));
+    group.add(request(second, false));
+    assertEquals(1, group.size());
+    assertSame(first, group.writes().iterator().next().storable);
+
+    // a later update replaces an insert-only write
+    Item third = new Item("a", 3);
+    group.add(request(third, true));
+    assertEquals(1, group.size());
+    assertSame(third, group.writes().iterator().next().storable);
+
+    // a later insert-only write does not replace an update
+    group.add(request(new Item("a", 4), false));
+    assertSame(third, group.writes().iterator().next().storable);
+  }
+
+  @Test
+  public void testDedupByEntityType() {
+    GroupCommitter.GroupCommit group = new GroupCommitter.GroupCommit();
+    group.add(request(new Item("a", 1), true));
+    group.add(request(new Item("Other", "a", 1), true));
+    assertEquals(2, group.size());
+  }
+
+  private static ProjectDatabase.StoreRequest request(Storable s, boolean allowUpdate) {
+    ProjectDatabase.StoreRequest req = new ProjectDatabase.StoreRequest();
+    req.setAllowUpdate(allowUpdate);
+    req.setStorable(s);
+    return req;
+  }
+
+  private static ProjectDatabase.StoreRequest requests(
+      Collection<? extends Storable> storables, boolean allowUpdate) {
+    ProjectDatabase.StoreRequest req = new ProjectDatabase.StoreRequest();
+    req.setAllowUpdate(allowUpdate);
+    req.setStorables(storables);
+    return req;
+  }
+
+  private static class Item implements Storable {
+
+    private final String type;
+    private final String id;
+    private final int version;
+
+    Item(String id, int version) {
+      this("Item", id, version);
+    }
+
+    Item(String type, String id, int version) {
+      this.type = type;
+      this.id = id;
+      this.version = version;
+    }
+
+    @Override
+    public String getStoreId() {
+      return this.id;
+    }
+
+    @Override
+    public String getEntityType() {
+      return this.type;
+    }
+
+    @Override
+    public void store(StoreTransaction txn, Entity mainEntity) {}
+
+    @Override
+    public String toString() {
+      return this.type + ':' + this.id + '@' + this.version;
+    }
+  }
+
+  private static class RecordingSink implements GroupCommitter.Sink {
+
+    private final List<Integer> groups = new ArrayList<>();
+    private final AtomicInteger writes = new AtomicInteger();
+    private final AtomicInteger syncs = new AtomicInteger();
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release;
+
+    RecordingSink() {
+      this(new CountDownLatch(0));
+    }
+
+    RecordingSink(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public int write(Collection<GroupCommitter.PendingWrite> pending) {
+      writing.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      synchronized (groups) {
+        groups.add(pending.size());
+        groups.notifyAll();
+      }
+      writes.incrementAndGet();
+      return pending.size();
+    }
+
+    @Override
+    public void sync() {
+      syncs.incrementAndGet();
+    }
+
+    void awaitWriting() throws InterruptedException {
+      assertTrue(writing.await(10, TimeUnit.SECONDS));
+    }
+
+    void await(int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 10000;
+      synchronized (groups) {
+        while (groups.size() < count) {
+          long remain = deadline - System.currentTimeMillis();
+          assertTrue("timed out waiting for " + count + " groups", remain > 0);
+          groups.wait(remain);
+        }
+      }
+      // sync follows the write
+      while (syncs.get() < count && System.currentTimeMillis() < deadline) {
+        Thread.sleep(5);
+      }
+    }
+
+    List<Integer> groupSizes() {
+      synchronized (groups) {
+        return new ArrayList<>(groups);
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package meghanada.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JarFingerprintsTest {
+
+  private File tempDir;
+
+  @Before
+  public void setup() {
+    this.tempDir = Files.createTempDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  @Test
+  public void testFingerprint() throws Exception {
+    File jar = new File(this.tempDir, "lib-1.0-SNAPSHOT.jar");
+    Files.write("content", jar, StandardCharsets.UTF_8);
+    File file = new File(this.tempDir, "fingerprints");
+
+    JarFingerprints fingerprints = new JarFingerprints(file);
+    JarFingerprint first = fingerprints.get(jar);
+    assertEquals(jar.length(), first.getSize());
+    fingerprints.save();
+    assertTrue(file.exists());
+
+    // stored fingerprint is reused while size and mtime are unchanged
+    JarFingerprints reloaded = new JarFingerprints(file);
+    assertEquals(first, reloaded.get(jar));
+
+    // same content, new mtime
+    assertTrue(jar.setLastModified(first.getLastModified() + 2000));
+    JarFingerprint touched = reloaded.get(jar);
+    assertNotEquals(first, touched);
+    assertEquals(first.getHash(), touched.getHash());
+
+    // replaced at the same path
+    Files.write("replaced", jar, StandardCharsets.UTF_8);
+    assertTrue(jar.setLastModified(first.getLastModified() + 4000));
+    assertNotEquals(first.getHash(), reloaded.get(jar).getHash());
+  }
+}
@@ -121,4 +121,24 @@ public class ProjectDatabaseTest {
           System.out.println(c.getEntityId());
         });
   }
+
+  @Test
+  public void testAsyncStoreGroup() throws Exception {
+    String name = "java.lang.String";
+    int count = 100;
+    for (int i = 0; i < count; i++) {
+      ClassIndex c = new ClassIndex(name + i, Collections.emptyList(), Collections.emptyList());
+      database.asyncStoreObject(c, true);
+    }
+    // same entities again, deduplicated within the group
+    List<ClassIndex> lst = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      lst.add(new ClassIndex(name + i, Collections.emptyList(), Collections.emptyList()));
+    }
+    database.asyncStoreObjects(lst, false);
+    // shutdown commits the pending groups
+    database.shutdown();
+    database = ProjectDatabase.getInstance();
+    assertEquals(count, database.size(ClassIndex.ENTITY_TYPE));
+  }
 }
@@ -0,0 +1,73 @@
+package meghanada.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import meghanada.reflect.ClassIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedJarCacheTest {
+
+  private File tempDir;
+  private SharedJarCache cache;
+
+  @Before
+  public void setup() {
+    this.tempDir = Files.createTempDir();
+    this.cache = new SharedJarCache(new File(this.tempDir, "cache"));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  @Test
+  public void testClassIndexes() throws Exception {
+    File jar1 = new File(this.tempDir, "a/lib-1.0.jar");
+    File jar2 = new File(this.tempDir, "b/lib-1.0.jar");
+    Files.createParentDirs(jar1);
+    Files.createParentDirs(jar2);
+    Files.write("same content", jar1, StandardCharsets.UTF_8);
+    Files.write("same content", jar2, StandardCharsets.UTF_8);
+
+    assertFalse(cache.loadClassIndexes(jar1).isPresent());
+
+    List<ClassIndex> indexes = new ArrayList<>(1);
+    indexes.add(new ClassIndex("a.b.C", Collections.emptyList(), Collections.emptyList()));
+    cache.saveClassIndexes(jar1, indexes);
+
+    // content addressed, another path with the same content hits
+    Optional<List<ClassIndex>> loaded = cache.loadClassIndexes(jar2);
+    assertTrue(loaded.isPresent());
+    assertEquals(indexes, loaded.get());
+
+    Files.write("changed content", jar2, StandardCharsets.UTF_8);
+    assertTrue(jar2.setLastModified(jar1.lastModified() + 2000));
+    assertFalse(cache.loadClassIndexes(jar2).isPresent());
+  }
+
+  @Test
+  public void testMemberKey() {
+    String key1 = cache.getMemberKey("a.b.C", Collections.singletonList("hash1"));
+    String key2 = cache.getMemberKey("a.b.C", Collections.singletonList("hash2"));
+    assertNotEquals(key1, key2);
+    assertEquals(key1, cache.getMemberKey("a.b.C", Collections.singletonList("hash1")));
+
+    assertFalse(cache.loadMembers(key1).isPresent());
+    cache.saveMembers(key1, Collections.emptyList());
+    assertTrue(cache.loadMembers(key1).isPresent());
+  }
+}